@@ -0,0 +1,116 @@
+import benchmarks.Application;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.web3j.protocol.Web3j;
+
+/**
+ * The application side of {@link Application}, loaded by name from {@code benchmarks.BenchmarkData}.
+ */
+public class BenchmarkApplication implements Application {
+
+  @Override
+  public File generateUsers(int users) throws IOException {
+    Map<String, String> passwords = new LinkedHashMap<>();
+    Map<String, List<String>> wallets = new LinkedHashMap<>();
+    for (int i = 0; i < users; i++) {
+      String username = "user" + i;
+      passwords.put(username, "password" + i);
+      wallets.put(username, List.of(
+          "UTC--2024-04-12T00-37-40.547468000Z--" + String.format("%040x", i) + ".json",
+          "UTC--2024-04-12T00-37-42.612484000Z--" + String.format("%040x", i + 2) + ".json"));
+    }
+    File userFile = File.createTempFile("users", ".xml");
+    userFile.deleteOnExit();
+    XMLParser.writeSnapshot(userFile, passwords, wallets);
+    return userFile;
+  }
+
+  @Override
+  public Object loadUsers(File userFile, boolean streaming) {
+    return new XMLParser(userFile, false, streaming);
+  }
+
+  @Override
+  public UserStore openUserStore(File userFile, boolean journaled) {
+    return new XMLParser(userFile, journaled)::addNewWallet;
+  }
+
+  @Override
+  public Node startNode() throws IOException {
+    return new StubNode(new StubEthereumNode());
+  }
+
+  private static class StubNode implements Node {
+
+    private final StubEthereumNode node;
+    private final Web3j web3;
+
+    StubNode(StubEthereumNode node) {
+      this.node = node;
+      web3 = RpcClientFactory.getInstance().web3j(node.url());
+    }
+
+    @Override
+    public void setDefaultBalance(BigInteger wei) {
+      node.setDefaultBalance(wei);
+    }
+
+    @Override
+    public Web3j web3() {
+      return web3;
+    }
+
+    @Override
+    public Wallets user() {
+      return new UserWallets(new User("batman", XMLParser.getInstance(), web3));
+    }
+
+    @Override
+    public Map<String, BigInteger> fetchBalances(List<String> addresses) throws IOException {
+      return BalanceBatch.fetch(web3, addresses, BalanceBatch.chunkSize());
+    }
+
+    @Override
+    public void close() {
+      node.close();
+    }
+  }
+
+  private static class UserWallets implements Wallets {
+
+    private final User user;
+
+    UserWallets(User user) {
+      this.user = user;
+    }
+
+    @Override
+    public void loadWallet(String walletName, String walletPassword) throws Exception {
+      user.loadWallet(walletName, walletPassword);
+    }
+
+    @Override
+    public void setCredentialCache(boolean enabled) {
+      user.setCredentialCache(enabled ? CredentialCache.fromProperties() : null);
+    }
+
+    @Override
+    public double getBalance() throws IOException {
+      return user.getBalance();
+    }
+
+    @Override
+    public String signMessage(String message) {
+      return user.signMessage(message);
+    }
+
+    @Override
+    public byte[] signMessages(List<String> messages) {
+      return user.signMessages(messages);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Write latency of {@code XMLParser.addNewWallet}, with the journal and with a full DOM rewrite
+ * per call. Each iteration starts from a fresh snapshot so the file does not keep growing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dusers.journal.compactBytes=9223372036854775807"})
+public class AddWalletBenchmark {
+
+  @Param({"1000", "100000"})
+  public int users;
+
+  @Param({"journal", "dom"})
+  public String persistence;
+
+  private File template;
+  private File userFile;
+  private Application.UserStore parser;
+  private long next;
+
+  @Setup(Level.Trial)
+  public void writeTemplate() throws Exception {
+    template = BenchmarkData.APPLICATION.generateUsers(users);
+  }
+
+  @Setup(Level.Iteration)
+  public void openStore() throws Exception {
+    userFile = File.createTempFile("users", ".xml");
+    Files.copy(template.toPath(), userFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    parser = BenchmarkData.APPLICATION.openUserStore(userFile, "journal".equals(persistence));
+  }
+
+  @TearDown(Level.Iteration)
+  public void deleteStore() throws Exception {
+    Files.deleteIfExists(userFile.toPath());
+    Files.deleteIfExists(Path.of(userFile + ".journal"));
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteTemplate() throws Exception {
+    Files.deleteIfExists(template.toPath());
+  }
+
+  @Benchmark
+  public void addNewWallet() {
+    parser.addNewWallet("user" + (next % users), "bench-" + next++ + ".json");
+  }
+}
@@ -0,0 +1,101 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import org.web3j.protocol.Web3j;
+
+/**
+ * What the benchmarks call in the application. JMH refuses benchmarks in the default package and
+ * a named package cannot import the application's classes, so the benchmarks go through this
+ * interface, implemented by {@code BenchmarkApplication} in the default package.
+ */
+public interface Application {
+
+  /**
+   * Writes a users.xml snapshot with two wallets per user.
+   * @param users The number of users.
+   * @return The temporary snapshot file.
+   * @throws IOException If the file cannot be written.
+   */
+  File generateUsers(int users) throws IOException;
+
+  /**
+   * Loads a users.xml snapshot the way the application does at startup.
+   * @param userFile The snapshot.
+   * @param streaming Whether to use the StAX loader rather than DOM.
+   * @return The loaded user store.
+   */
+  Object loadUsers(File userFile, boolean streaming);
+
+  /**
+   * @param userFile The snapshot.
+   * @param journaled Whether writes are journaled rather than rewriting the file.
+   * @return The user store.
+   */
+  UserStore openUserStore(File userFile, boolean journaled);
+
+  /**
+   * @return A running stub JSON-RPC node on loopback.
+   * @throws IOException If the node cannot be started.
+   */
+  Node startNode() throws IOException;
+
+  /**
+   * Writes to the users.xml store.
+   */
+  interface UserStore {
+
+    void addNewWallet(String username, String walletName);
+  }
+
+  /**
+   * A stub JSON-RPC node and the application's clients for it.
+   */
+  interface Node extends AutoCloseable {
+
+    void setDefaultBalance(BigInteger wei);
+
+    /**
+     * @return The shared RPC client, pointed at this node.
+     */
+    Web3j web3();
+
+    /**
+     * @return The UserTest user, backed by the shared user store and this node.
+     */
+    Wallets user();
+
+    /**
+     * Fetches balances in JSON-RPC batches of the configured size.
+     * @param addresses The addresses.
+     * @return Balances in wei keyed by lower-case address.
+     * @throws IOException If a batch fails.
+     */
+    Map<String, BigInteger> fetchBalances(List<String> addresses) throws IOException;
+
+    @Override
+    void close();
+  }
+
+  /**
+   * The calls a logged-in user makes.
+   */
+  interface Wallets {
+
+    void loadWallet(String walletName, String walletPassword) throws Exception;
+
+    /**
+     * @param enabled Whether decrypted wallets are kept for the session.
+     */
+    void setCredentialCache(boolean enabled);
+
+    double getBalance() throws IOException;
+
+    String signMessage(String message);
+
+    byte[] signMessages(List<String> messages);
+  }
+}
@@ -0,0 +1,25 @@
+package benchmarks;
+
+/**
+ * Fixtures shared by the JMH benchmarks.
+ */
+final class BenchmarkData {
+
+  /** The wallet and password UserTest signs with. */
+  static final String WALLET_NAME = "UTC--2024-04-11T23-40-09.892441000Z--ea2d2e276033772f09311e0ce64dde5f2f329c17.json";
+  static final String WALLET_PASSWORD = "fun";
+
+  /** The application under test, looked up by name because it is in the default package. */
+  static final Application APPLICATION = load();
+
+  private BenchmarkData() {
+  }
+
+  private static Application load() {
+    try {
+      return (Application) Class.forName("BenchmarkApplication").getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("BenchmarkApplication is not on the class path", e);
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package benchmarks;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.utils.Convert;
+
+/**
+ * The wei/ether conversions {@code User.getBalance} and {@code User.submitTransaction} do on
+ * every call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+
+  public BigInteger balanceWei = new BigInteger("1234567890123456789");
+  public double amountEther = 0.0123;
+
+  @Benchmark
+  public double weiToEther() {
+    return Convert.fromWei(new BigDecimal(balanceWei), Convert.Unit.ETHER).doubleValue();
+  }
+
+  @Benchmark
+  public BigInteger etherToWei() {
+    return Convert.toWei(BigDecimal.valueOf(amountEther), Convert.Unit.ETHER).toBigIntegerExact();
+  }
+}
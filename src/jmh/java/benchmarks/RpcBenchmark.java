@@ -0,0 +1,77 @@
+package benchmarks;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+
+/**
+ * RPC round trips through the shared client against a {@code StubEthereumNode} on loopback, so
+ * the numbers measure this code and the HTTP stack rather than a remote node.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class RpcBenchmark {
+
+  private static final String ADDRESS = "0xea2d2e276033772f09311e0ce64dde5f2f329c17";
+
+  private Application.Node node;
+  private Web3j web3;
+  private Application.Wallets user;
+  private List<String> addresses;
+
+  @Setup(Level.Trial)
+  public void startNode() throws Exception {
+    node = BenchmarkData.APPLICATION.startNode();
+    node.setDefaultBalance(new BigInteger("1234567890123456789"));
+    web3 = node.web3();
+    user = node.user();
+    user.loadWallet(BenchmarkData.WALLET_NAME, BenchmarkData.WALLET_PASSWORD);
+    addresses = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      addresses.add(String.format("0x%040x", i));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stopNode() {
+    node.close();
+  }
+
+  @Benchmark
+  public BigInteger ethGetBalance() throws Exception {
+    return web3.ethGetBalance(ADDRESS, DefaultBlockParameterName.LATEST).send().getBalance();
+  }
+
+  /** Mostly answered by the BalanceCache, since the stub's head only moves when told to. */
+  @Benchmark
+  public double getBalance() throws Exception {
+    return user.getBalance();
+  }
+
+  @Benchmark
+  public Map<String, BigInteger> batchedBalances100() throws Exception {
+    return node.fetchBalances(addresses);
+  }
+}
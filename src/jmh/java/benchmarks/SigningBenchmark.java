@@ -0,0 +1,60 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Message signing with the wallet UserTest uses: one message through {@code User.signMessage}
+ * and a batch of 1000 through {@code User.signMessages}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SigningBenchmark {
+
+  private Application.Node node;
+  private Application.Wallets user;
+  private List<String> batch;
+
+  @Setup(Level.Trial)
+  public void loadWallet() throws Exception {
+    node = BenchmarkData.APPLICATION.startNode();
+    user = node.user();
+    user.loadWallet(BenchmarkData.WALLET_NAME, BenchmarkData.WALLET_PASSWORD);
+    batch = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      batch.add("Attestation " + i);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stopNode() {
+    node.close();
+  }
+
+  @Benchmark
+  public String signMessage() {
+    return user.signMessage("Message");
+  }
+
+  @Benchmark
+  public byte[] signMessages1000() {
+    return user.signMessages(batch);
+  }
+}
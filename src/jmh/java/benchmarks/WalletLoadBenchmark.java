@@ -0,0 +1,52 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code User.loadWallet}, which is dominated by the keystore's scrypt run unless the session's
+ * {@code CredentialCache} already holds the wallet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class WalletLoadBenchmark {
+
+  @Param({"false", "true"})
+  public boolean credentialCache;
+
+  private Application.Node node;
+  private Application.Wallets user;
+
+  @Setup(Level.Trial)
+  public void createUser() throws Exception {
+    node = BenchmarkData.APPLICATION.startNode();
+    user = node.user();
+    user.setCredentialCache(credentialCache);
+  }
+
+  @TearDown(Level.Trial)
+  public void stopNode() {
+    node.close();
+  }
+
+  @Benchmark
+  public void loadWallet() throws Exception {
+    user.loadWallet(BenchmarkData.WALLET_NAME, BenchmarkData.WALLET_PASSWORD);
+  }
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Startup parse of a users.xml snapshot with each loader, at 1k, 100k and 1M users, and the heap
+ * the loaded store keeps (the {@code retainedMegabytes} secondary result).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class XMLParserBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int users;
+
+  @Param({"stax", "dom"})
+  public String loader;
+
+  private File userFile;
+
+  @Setup(Level.Trial)
+  public void writeSnapshot() throws Exception {
+    userFile = BenchmarkData.APPLICATION.generateUsers(users);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteSnapshot() throws Exception {
+    Files.deleteIfExists(userFile.toPath());
+  }
+
+  @Benchmark
+  public Object load(RetainedHeap heap) {
+    heap.store = BenchmarkData.APPLICATION.loadUsers(userFile, "stax".equals(loader));
+    return heap.store;
+  }
+
+  /**
+   * Measures, outside the timed call, how much heap the store loaded in an iteration still holds
+   * after a full collection.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class RetainedHeap {
+
+    public long retainedMegabytes;
+    private long baseline;
+    private Object store;
+
+    @Setup(Level.Iteration)
+    public void measureBaseline() {
+      baseline = usedAfterGc();
+    }
+
+    @TearDown(Level.Iteration)
+    public void measureRetained() {
+      retainedMegabytes = (usedAfterGc() - baseline) / (1024 * 1024);
+      store = null;
+    }
+
+    private static long usedAfterGc() {
+      Runtime runtime = Runtime.getRuntime();
+      System.gc();
+      return runtime.totalMemory() - runtime.freeMemory();
+    }
+  }
+}
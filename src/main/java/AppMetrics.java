@@ -0,0 +1,235 @@
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Process-wide Micrometer registry for timing RPC calls, wallet crypto and user store I/O.
+ * Every timer carries {@code outcome} (success or failure) and {@code exception} (the simple class
+ * name, or none) tags and publishes a latency histogram with p50/p95/p99. Setting
+ * {@code metrics.port} serves the registry in Prometheus text format at
+ * {@code http://127.0.0.1:<port>/metrics}.
+ */
+public final class AppMetrics {
+
+  private static volatile AppMetrics instance;
+
+  private final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+  private HttpServer scrapeServer;
+
+  private AppMetrics() {
+  }
+
+  /**
+   * @return The shared metrics, starting the scrape endpoint on first use if
+   *     {@code metrics.port} is set.
+   */
+  public static AppMetrics getInstance() {
+    AppMetrics metrics = instance;
+    if (metrics == null) {
+      synchronized (AppMetrics.class) {
+        metrics = instance;
+        if (metrics == null) {
+          metrics = new AppMetrics();
+          Integer port = Integer.getInteger("metrics.port");
+          if (port != null) {
+            try {
+              metrics.startScrapeEndpoint(port);
+            } catch (IOException e) {
+              e.printStackTrace();
+            }
+          }
+          instance = metrics;
+        }
+      }
+    }
+    return metrics;
+  }
+
+  /**
+   * Starts timing an operation. Finish with {@link Sample#success()} or {@link Sample#failure}; prefer
+   * {@link #time} unless the outcome is decided outside a single call.
+   * @param name The timer name, e.g. {@code wallet.decrypt}.
+   * @param tags Extra tag key/value pairs.
+   * @return The running sample.
+   */
+  public static Sample start(String name, String... tags) {
+    return new Sample(getInstance().registry, name, tags);
+  }
+
+  /**
+   * Times an operation, recording it as a success if it returns and as a failure if it throws.
+   * @param name The timer name, e.g. {@code wallet.decrypt}.
+   * @param call The operation.
+   * @return What the operation returned.
+   * @throws E1 If the operation does.
+   * @throws E2 If the operation does.
+   */
+  public static <T, E1 extends Exception, E2 extends Exception> T time(String name,
+      TimedCall<T, E1, E2> call) throws E1, E2 {
+    return time(start(name), call);
+  }
+
+  /**
+   * Times an operation under one extra tag, e.g. {@code method}.
+   * @param name The timer name, e.g. {@code wallet.rpc}.
+   * @param tagKey The tag's key.
+   * @param tagValue The tag's value.
+   * @param call The operation.
+   * @return What the operation returned.
+   * @throws E1 If the operation does.
+   * @throws E2 If the operation does.
+   */
+  public static <T, E1 extends Exception, E2 extends Exception> T time(String name, String tagKey,
+      String tagValue, TimedCall<T, E1, E2> call) throws E1, E2 {
+    return time(start(name, tagKey, tagValue), call);
+  }
+
+  /**
+   * Times an operation that returns nothing.
+   * @param name The timer name, e.g. {@code userstore.save}.
+   * @param tagKey The tag's key.
+   * @param tagValue The tag's value.
+   * @param run The operation.
+   * @throws E1 If the operation does.
+   * @throws E2 If the operation does.
+   */
+  public static <E1 extends Exception, E2 extends Exception> void time(String name, String tagKey,
+      String tagValue, TimedRun<E1, E2> run) throws E1, E2 {
+    AppMetrics.<Void, E1, E2>time(start(name, tagKey, tagValue), () -> {
+      run.run();
+      return null;
+    });
+  }
+
+  private static <T, E1 extends Exception, E2 extends Exception> T time(Sample sample,
+      TimedCall<T, E1, E2> call) throws E1, E2 {
+    T result;
+    try {
+      result = call.call();
+    } catch (Throwable e) {
+      sample.failure(e);
+      throw e;
+    }
+    sample.success();
+    return result;
+  }
+
+  /**
+   * Increments a counter.
+   * @param name The counter name.
+   * @param tags Tag key/value pairs.
+   */
+  public static void count(String name, String... tags) {
+    Counter.builder(name).tags(tags).register(getInstance().registry).increment();
+  }
+
+  /**
+   * @return The registry, for callers that want to register their own meters.
+   */
+  public MeterRegistry registry() {
+    return registry;
+  }
+
+  /**
+   * @return The current values in Prometheus text format.
+   */
+  public String scrape() {
+    return registry.scrape();
+  }
+
+  /**
+   * Serves {@link #scrape()} at {@code /metrics} on a loopback port.
+   * @param port The port, or 0 for any free port.
+   * @return The port the endpoint listens on.
+   * @throws IOException If the port cannot be bound.
+   */
+  public synchronized int startScrapeEndpoint(int port) throws IOException {
+    if (scrapeServer == null) {
+      scrapeServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+      scrapeServer.createContext("/metrics", exchange -> {
+        byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(body);
+        }
+      });
+      scrapeServer.setExecutor(BackgroundExecutor.get());
+      scrapeServer.start();
+    }
+    return scrapeServer.getAddress().getPort();
+  }
+
+  /**
+   * An operation timed by {@link #time}. Type inference merges two checked exceptions into
+   * {@code Exception}, so a call that throws two kinds names them: {@code
+   * AppMetrics.<Credentials, CipherException, IOException>time(...)}.
+   * @param <T> What the operation returns.
+   * @param <E1> A checked exception the operation throws.
+   * @param <E2> Another checked exception the operation throws.
+   */
+  @FunctionalInterface
+  public interface TimedCall<T, E1 extends Exception, E2 extends Exception> {
+    T call() throws E1, E2;
+  }
+
+  /**
+   * An operation timed by {@link #time} that returns nothing.
+   * @param <E1> A checked exception the operation throws.
+   * @param <E2> Another checked exception the operation throws.
+   */
+  @FunctionalInterface
+  public interface TimedRun<E1 extends Exception, E2 extends Exception> {
+    void run() throws E1, E2;
+  }
+
+  /**
+   * A running timing of one operation.
+   */
+  public static final class Sample {
+
+    private final MeterRegistry registry;
+    private final String name;
+    private final String[] tags;
+    private final long start = System.nanoTime();
+
+    private Sample(MeterRegistry registry, String name, String[] tags) {
+      this.registry = registry;
+      this.name = name;
+      this.tags = tags;
+    }
+
+    public void success() {
+      stop("success", "none");
+    }
+
+    /**
+     * @param error What the operation failed with.
+     */
+    public void failure(Throwable error) {
+      stop("failure", error.getClass().getSimpleName());
+    }
+
+    private void stop(String outcome, String exception) {
+      Timer.builder(name)
+          .tags(tags)
+          .tag("outcome", outcome)
+          .tag("exception", exception)
+          .publishPercentiles(0.5, 0.95, 0.99)
+          .publishPercentileHistogram()
+          .minimumExpectedValue(Duration.ofMillis(1))
+          .maximumExpectedValue(Duration.ofSeconds(60))
+          .register(registry)
+          .record(Duration.ofNanos(System.nanoTime() - start));
+    }
+  }
+}
@@ -0,0 +1,75 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executor for blocking work such as RPC calls and scrypt. Uses one virtual thread per
+ * task when the runtime supports them (Java 21+) and a cached pool of daemon threads otherwise,
+ * so the code still runs on the Java 17 baseline.
+ */
+public final class BackgroundExecutor {
+
+  private static volatile boolean virtualThreads;
+  private static final ExecutorService executor = createExecutor();
+
+  private BackgroundExecutor() {
+  }
+
+  /**
+   * @return The shared executor.
+   */
+  public static ExecutorService get() {
+    return executor;
+  }
+
+  /**
+   * @return True if each task gets its own virtual thread, false if tasks share an unbounded
+   *     pool of platform threads.
+   */
+  public static boolean usesVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * Runs a blocking task in the background. Cancelling the returned future interrupts the task.
+   * @param task The task to run.
+   * @param <T> The task's result type.
+   * @return A future completed with the task's result or the exception it threw.
+   */
+  public static <T> CompletableFuture<T> submit(Callable<T> task) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    Future<?> running = executor.submit(() -> {
+      try {
+        result.complete(task.call());
+      } catch (Throwable e) {
+        result.completeExceptionally(e);
+      }
+    });
+    result.whenComplete((value, error) -> {
+      if (result.isCancelled()) {
+        running.cancel(true);
+      }
+    });
+    return result;
+  }
+
+  private static ExecutorService createExecutor() {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      ExecutorService virtual = (ExecutorService) factory.invoke(null);
+      virtualThreads = true;
+      return virtual;
+    } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      AtomicInteger count = new AtomicInteger();
+      return Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "background-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+}
@@ -0,0 +1,87 @@
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGetBalance;
+
+/**
+ * Reads the balances of many addresses with JSON-RPC batch requests instead of one round trip
+ * per address. Large lists are split into chunks of {@code rpc.batchSize} (100 by default) so a
+ * single request stays within what providers accept.
+ */
+public final class BalanceBatch {
+
+  public static final int DEFAULT_CHUNK_SIZE = 100;
+
+  private BalanceBatch() {
+  }
+
+  /**
+   * @return The configured chunk size.
+   */
+  public static int chunkSize() {
+    return Integer.getInteger("rpc.batchSize", DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Fetches the latest balance of every address.
+   * @param web3 The RPC client.
+   * @param addresses The addresses to look up.
+   * @param chunkSize The maximum number of calls per batch request.
+   * @return Balances in wei keyed by address, in the order given.
+   * @throws IOException If a batch cannot be sent or any call in it returns an error.
+   */
+  public static Map<String, BigInteger> fetch(Web3j web3, List<String> addresses, int chunkSize)
+      throws IOException {
+    Map<String, BigInteger> balances = new LinkedHashMap<>();
+    for (int start = 0; start < addresses.size(); start += chunkSize) {
+      List<String> chunk = addresses.subList(start, Math.min(start + chunkSize, addresses.size()));
+      fetchChunk(web3, chunk, balances);
+    }
+    return balances;
+  }
+
+  // Identical chunks requested at the same time, e.g. by two sessions of the same user, share one batch.
+  private static void fetchChunk(Web3j web3, List<String> chunk, Map<String, BigInteger> balances)
+      throws IOException {
+    Map<String, BigInteger> chunkBalances = RpcCoalescer.forClient(web3)
+        .call("eth_getBalance_batch", List.copyOf(chunk), () -> sendChunk(web3, chunk));
+    for (String address : chunk) {
+      BigInteger wei = chunkBalances.get(address);
+      if (wei == null) {
+        throw new IOException("No balance returned for " + address);
+      }
+      balances.put(address, wei);
+    }
+  }
+
+  private static Map<String, BigInteger> sendChunk(Web3j web3, List<String> chunk) throws IOException {
+    BatchRequest batch = web3.newBatch();
+    Map<Long, String> addressById = new HashMap<>();
+    for (String address : chunk) {
+      var request = web3.ethGetBalance(address, DefaultBlockParameterName.LATEST);
+      addressById.put(request.getId(), address);
+      batch.add(request);
+    }
+    BatchResponse response = AppMetrics.time("wallet.rpc", "method", "eth_getBalance_batch", batch::send);
+
+    // Providers may answer a batch in any order, so match responses to requests by id.
+    Map<String, BigInteger> chunkBalances = new HashMap<>();
+    for (Response<?> result : response.getResponses()) {
+      String address = addressById.get(result.getId());
+      if (result.hasError()) {
+        throw new IOException("eth_getBalance failed for " + address + ": "
+            + result.getError().getMessage());
+      }
+      chunkBalances.put(address, ((EthGetBalance) result).getBalance());
+    }
+    return chunkBalances;
+  }
+}
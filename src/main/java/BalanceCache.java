@@ -0,0 +1,126 @@
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.web3j.protocol.Web3j;
+
+/**
+ * Caches wei balances by address for as long as the chain head stays on the block they were read
+ * at, so repeated balance reads inside one block cost no RPC round trip. Configured with
+ * {@code balance.cache.maxEntries} and {@code balance.cache.ttlMillis}, an age limit of three
+ * mainnet blocks by default so a stalled head tracker does not serve old balances for good (0
+ * leaves only block-based invalidation).
+ */
+public class BalanceCache {
+
+  private static final int DEFAULT_MAX_ENTRIES = 10_000;
+  private static final long DEFAULT_TTL_MILLIS = 36_000;
+  private static final Map<Web3j, BalanceCache> caches = new ConcurrentHashMap<>();
+
+  private final ChainHeadTracker headTracker;
+  private final long ttlMillis;
+  private final LruCache<String, Entry> entries;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @param headTracker Supplies the current chain head.
+   * @param maxEntries The number of addresses kept before the least recently read is evicted.
+   * @param ttlMillis The maximum age of an entry, or 0 for no limit besides the block.
+   */
+  public BalanceCache(ChainHeadTracker headTracker, int maxEntries, long ttlMillis) {
+    this.headTracker = headTracker;
+    this.ttlMillis = ttlMillis;
+    this.entries = new LruCache<>(maxEntries);
+    headTracker.addListener(block -> entries.clear());
+  }
+
+  /**
+   * Returns the shared cache for the given client, configured from system properties.
+   * @param web3 The RPC client whose balances are cached.
+   * @return The shared cache.
+   */
+  public static BalanceCache forClient(Web3j web3) {
+    return caches.computeIfAbsent(web3, client -> new BalanceCache(
+        ChainHeadTracker.forClient(client),
+        Integer.getInteger("balance.cache.maxEntries", DEFAULT_MAX_ENTRIES),
+        Long.getLong("balance.cache.ttlMillis", DEFAULT_TTL_MILLIS)));
+  }
+
+  /**
+   * Returns the cached balance if it was read at the current head, otherwise loads and caches it.
+   * @param address The address to look up.
+   * @param loader Fetches the balance from the network on a miss.
+   * @return The balance in wei.
+   * @throws IOException If the loader fails.
+   */
+  public BigInteger get(String address, BalanceLoader loader) throws IOException {
+    long head = headTracker.head();
+    BigInteger cached = getIfFresh(address);
+    if (cached != null) {
+      return cached;
+    }
+    BigInteger wei = loader.load(address);
+    put(address, wei, head);
+    return wei;
+  }
+
+  /**
+   * Returns the cached balance if it was read at the current head, counting a hit or a miss.
+   * @param address The address to look up.
+   * @return The balance in wei, or null if it has to be fetched.
+   */
+  public BigInteger getIfFresh(String address) {
+    Entry entry = entries.get(address.toLowerCase());
+    if (entry != null && isFresh(entry, headTracker.head())) {
+      hits.incrementAndGet();
+      return entry.wei;
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Records a balance read elsewhere, for example as part of a batch, at the given block.
+   * @param address The address the balance belongs to.
+   * @param wei The balance in wei.
+   * @param block The block the balance was read at.
+   */
+  public void put(String address, BigInteger wei, long block) {
+    if (block >= 0) {
+      entries.put(address.toLowerCase(), new Entry(wei, block, System.currentTimeMillis()));
+    }
+  }
+
+  /**
+   * Drops the cached balance of one address, for example after it sends a transaction.
+   * @param address The address to forget.
+   */
+  public void invalidate(String address) {
+    entries.remove(address.toLowerCase());
+  }
+
+  public long hits() {
+    return hits.get();
+  }
+
+  public long misses() {
+    return misses.get();
+  }
+
+  private boolean isFresh(Entry entry, long head) {
+    return head >= 0 && entry.block == head
+        && (ttlMillis <= 0 || System.currentTimeMillis() - entry.fetchedAt < ttlMillis);
+  }
+
+  /**
+   * Fetches a balance on a cache miss.
+   */
+  public interface BalanceLoader {
+    BigInteger load(String address) throws IOException;
+  }
+
+  private record Entry(BigInteger wei, long block, long fetchedAt) {
+  }
+}
@@ -0,0 +1,260 @@
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthBlock;
+
+/**
+ * Keeps the balances of watched addresses current from the shared {@link ChainHeadTracker}
+ * instead of polling each one. On every new head it reads the new blocks' transactions in one
+ * batch, re-reads only the watched addresses that sent or received something, and tells listeners
+ * what changed. The balances it re-reads are put in the {@link BalanceCache} at the new head, so
+ * {@link User#getBalance()} is free for wallets that just moved; the others expire as usual, since
+ * contract calls may have changed them unseen.
+ * <p>
+ * Value moved inside contract calls does not appear in a block's transaction list, so every
+ * watched address is also re-read every {@code balances.watch.fullRefreshBlocks} blocks (64 by
+ * default) and whenever more than {@code balances.watch.maxBlockScan} blocks (32) arrive at once.
+ */
+public class BalanceWatcher {
+
+  private static final Map<Web3j, BalanceWatcher> watchers = new ConcurrentHashMap<>();
+  private static final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "balance-watcher");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Web3j web3;
+  private final ChainHeadTracker headTracker;
+  private final BalanceCache balanceCache;
+  private final int maxBlockScan;
+  private final int fullRefreshBlocks;
+  private final Map<Listener, Set<String>> listeners = new ConcurrentHashMap<>();
+  private final Map<String, BigInteger> balances = new ConcurrentHashMap<>();
+  private volatile long lastBlock = -1;
+  private volatile long latestHead = -1;
+  private boolean scanQueued;
+
+  BalanceWatcher(Web3j web3, ChainHeadTracker headTracker, BalanceCache balanceCache, int maxBlockScan,
+      int fullRefreshBlocks) {
+    this.web3 = web3;
+    this.headTracker = headTracker;
+    this.balanceCache = balanceCache;
+    this.maxBlockScan = maxBlockScan;
+    this.fullRefreshBlocks = fullRefreshBlocks;
+    headTracker.addListener(this::onNewHead);
+  }
+
+  /**
+   * Returns the shared watcher for the given client, configured from system properties.
+   * @param web3 The RPC client to watch through.
+   * @return The shared watcher.
+   */
+  public static BalanceWatcher forClient(Web3j web3) {
+    return watchers.computeIfAbsent(web3, client -> new BalanceWatcher(client,
+        ChainHeadTracker.forClient(client), BalanceCache.forClient(client),
+        Integer.getInteger("balances.watch.maxBlockScan", 32),
+        Integer.getInteger("balances.watch.fullRefreshBlocks", 64)));
+  }
+
+  /**
+   * Starts pushing balance changes of the given addresses to the listener. Its first call, made
+   * once the current balances are read, carries all of them. Watching more addresses with the same
+   * listener adds to its set.
+   * @param addresses The addresses to watch, in any case.
+   * @param listener Called on the watcher thread.
+   */
+  public void watch(Collection<String> addresses, Listener listener) {
+    Set<String> added = new HashSet<>();
+    for (String address : addresses) {
+      added.add(address.toLowerCase());
+    }
+    listeners.computeIfAbsent(listener, key -> ConcurrentHashMap.newKeySet()).addAll(added);
+    worker.execute(() -> sendInitialBalances(added, listener));
+  }
+
+  /**
+   * Stops calling the listener. Addresses no other listener watches are forgotten.
+   * @param listener A listener passed to {@link #watch}.
+   */
+  public void unwatch(Listener listener) {
+    Set<String> removed = listeners.remove(listener);
+    if (removed != null) {
+      Set<String> stillWatched = watchedAddresses();
+      removed.stream().filter(address -> !stillWatched.contains(address)).forEach(balances::remove);
+    }
+  }
+
+  /**
+   * @param address A watched address, in any case.
+   * @return Its last known balance in wei, or null if it is not watched or not read yet.
+   */
+  public BigInteger balance(String address) {
+    return balances.get(address.toLowerCase());
+  }
+
+  /**
+   * @return The last block whose transactions were applied, or -1 before the first one.
+   */
+  public long lastBlock() {
+    return lastBlock;
+  }
+
+  private void onNewHead(long head) {
+    latestHead = head;
+    synchronized (this) {
+      // Heads that arrive while a scan is queued are picked up by that scan.
+      if (scanQueued || listeners.isEmpty()) {
+        return;
+      }
+      scanQueued = true;
+    }
+    worker.execute(this::scan);
+  }
+
+  private void sendInitialBalances(Set<String> addresses, Listener listener) {
+    long head = headTracker.head();
+    List<String> missing = addresses.stream().filter(address -> !balances.containsKey(address)).toList();
+    try {
+      Map<String, BigInteger> fetched = BalanceBatch.fetch(web3, missing, BalanceBatch.chunkSize());
+      fetched.forEach((address, wei) -> {
+        balances.put(address, wei);
+        balanceCache.put(address, wei, head);
+      });
+    } catch (IOException e) {
+      // Whatever could not be read now is read by the next full refresh.
+    }
+    if (lastBlock < 0) {
+      lastBlock = head;
+    }
+    Map<String, BigInteger> snapshot = new LinkedHashMap<>();
+    for (String address : addresses) {
+      BigInteger wei = balances.get(address);
+      if (wei != null) {
+        snapshot.put(address, wei);
+      }
+    }
+    if (!snapshot.isEmpty() && listeners.containsKey(listener)) {
+      deliver(listener, snapshot, head);
+    }
+  }
+
+  private void scan() {
+    synchronized (this) {
+      scanQueued = false;
+    }
+    long head = latestHead;
+    long from = lastBlock + 1;
+    if (head < from) {
+      return;
+    }
+    Set<String> watched = watchedAddresses();
+    try {
+      Set<String> refresh;
+      if (lastBlock < 0 || head - lastBlock > maxBlockScan || head / fullRefreshBlocks != lastBlock / fullRefreshBlocks) {
+        refresh = watched;
+      } else {
+        refresh = touchedAddresses(from, head, watched);
+      }
+      Map<String, BigInteger> fetched = BalanceBatch.fetch(web3, new ArrayList<>(refresh), BalanceBatch.chunkSize());
+      Map<String, BigInteger> changed = new HashMap<>();
+      fetched.forEach((address, wei) -> {
+        BigInteger previous = balances.put(address, wei);
+        if (!wei.equals(previous)) {
+          changed.put(address, wei);
+        }
+        balanceCache.put(address, wei, head);
+      });
+      lastBlock = head;
+      if (!changed.isEmpty()) {
+        listeners.forEach((listener, addresses) -> {
+          Map<String, BigInteger> mine = new LinkedHashMap<>();
+          changed.forEach((address, wei) -> {
+            if (addresses.contains(address)) {
+              mine.put(address, wei);
+            }
+          });
+          if (!mine.isEmpty()) {
+            deliver(listener, mine, head);
+          }
+        });
+      }
+    } catch (IOException e) {
+      // Leave lastBlock where it is so the next head scans these blocks again.
+    }
+  }
+
+  // Reads blocks from..to in one batch and returns the watched addresses that appear in them, or
+  // every watched address if a block is not available yet.
+  private Set<String> touchedAddresses(long from, long to, Set<String> watched) throws IOException {
+    BatchRequest batch = web3.newBatch();
+    for (long number = from; number <= to; number++) {
+      batch.add(web3.ethGetBlockByNumber(DefaultBlockParameter.valueOf(BigInteger.valueOf(number)), true));
+    }
+    List<? extends Response<?>> responses = AppMetrics.time("wallet.rpc", "method", "eth_getBlockByNumber_batch",
+        () -> batch.send().getResponses());
+    Set<String> touched = new HashSet<>();
+    for (Response<?> response : responses) {
+      if (response.hasError()) {
+        throw new IOException("eth_getBlockByNumber failed: " + response.getError().getMessage());
+      }
+      EthBlock.Block block = ((EthBlock) response).getBlock();
+      if (block == null) {
+        return watched;
+      }
+      for (EthBlock.TransactionResult<?> result : block.getTransactions()) {
+        if (result instanceof EthBlock.TransactionObject transaction) {
+          addIfWatched(transaction.getFrom(), watched, touched);
+          addIfWatched(transaction.getTo(), watched, touched);
+        }
+      }
+    }
+    return touched;
+  }
+
+  private static void addIfWatched(String address, Set<String> watched, Set<String> touched) {
+    if (address != null && watched.contains(address.toLowerCase())) {
+      touched.add(address.toLowerCase());
+    }
+  }
+
+  private Set<String> watchedAddresses() {
+    Set<String> watched = new HashSet<>();
+    listeners.values().forEach(watched::addAll);
+    return watched;
+  }
+
+  private static void deliver(Listener listener, Map<String, BigInteger> changed, long block) {
+    try {
+      listener.balancesChanged(changed, block);
+    } catch (RuntimeException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Receives balance changes of watched addresses.
+   */
+  public interface Listener {
+
+    /**
+     * @param balances The new balances in wei, keyed by lower-case address.
+     * @param block The chain head they were read at.
+     */
+    void balancesChanged(Map<String, BigInteger> balances, long block);
+  }
+}
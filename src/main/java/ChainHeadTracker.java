@@ -0,0 +1,193 @@
+import io.reactivex.disposables.Disposable;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.websocket.WebSocketService;
+import org.web3j.utils.Numeric;
+
+/**
+ * Follows the chain head of one RPC client with a cheap {@code eth_blockNumber} poll, shared by
+ * everything in the process that needs to know when a new block arrives. The poll interval is
+ * read from {@code chain.headPollMillis}.
+ * <p>
+ * With {@link #subscribe} (or {@code rpc.wsEndpoint} for the default client) heads are pushed over
+ * a WebSocket {@code newHeads} subscription instead, and the poll only takes over again if the
+ * subscription fails.
+ */
+public class ChainHeadTracker {
+
+  private static final long DEFAULT_POLL_MILLIS = 2000;
+  private static final Map<Web3j, ChainHeadTracker> trackers = new ConcurrentHashMap<>();
+  private static final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "chain-head-poller");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Web3j web3;
+  private final long pollMillis;
+  private final List<LongConsumer> listeners = new CopyOnWriteArrayList<>();
+  private volatile long head = -1;
+  // Serializes listener calls so heads are announced in order, without holding the tracker's lock.
+  private final Object deliveryLock = new Object();
+  private long delivered = -1;
+  private ScheduledFuture<?> polling;
+  private WebSocketService webSocket;
+  private Disposable subscription;
+
+  ChainHeadTracker(Web3j web3, long pollMillis) {
+    this.web3 = web3;
+    this.pollMillis = pollMillis;
+  }
+
+  /**
+   * Returns the tracker for the given client, starting its poll on first use.
+   * @param web3 The RPC client to follow.
+   * @return The shared tracker.
+   */
+  public static ChainHeadTracker forClient(Web3j web3) {
+    return trackers.computeIfAbsent(web3, client -> {
+      ChainHeadTracker tracker =
+          new ChainHeadTracker(client, Long.getLong("chain.headPollMillis", DEFAULT_POLL_MILLIS));
+      String webSocketUrl = System.getProperty("rpc.wsEndpoint");
+      if (webSocketUrl != null && client == RpcClientFactory.getInstance().web3j()) {
+        tracker.subscribe(webSocketUrl);
+      }
+      tracker.start();
+      return tracker;
+    });
+  }
+
+  synchronized void start() {
+    if (polling == null) {
+      polling = poller.scheduleWithFixedDelay(this::poll, 0, pollMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Receives new heads from a WebSocket subscription on the same chain, polling only while the
+   * subscription is down. If the endpoint cannot be reached, polling simply carries on.
+   * @param webSocketUrl The node's WebSocket URL.
+   * @return Whether the subscription was opened.
+   */
+  public boolean subscribe(String webSocketUrl) {
+    // Connecting can block for a long time, so it happens before taking the lock.
+    WebSocketService service = new WebSocketService(webSocketUrl, false);
+    try {
+      service.connect();
+    } catch (Exception e) {
+      e.printStackTrace();
+      return false;
+    }
+    synchronized (this) {
+      closeSubscription();
+      webSocket = service;
+      subscription = Web3j.build(service).newHeadsNotifications().subscribe(
+          notification -> advanceTo(Numeric.decodeQuantity(notification.getParams().getResult().getNumber()).longValue()),
+          error -> {
+            error.printStackTrace();
+            unsubscribe();
+          });
+    }
+    return true;
+  }
+
+  /**
+   * @return Whether heads are currently pushed over a WebSocket subscription.
+   */
+  public synchronized boolean isSubscribed() {
+    return subscription != null && !subscription.isDisposed();
+  }
+
+  /**
+   * Closes the WebSocket subscription, if any, and goes back to polling.
+   */
+  public synchronized void unsubscribe() {
+    closeSubscription();
+  }
+
+  /**
+   * Stops polling and closes any subscription. Listeners stay registered but are no longer called.
+   */
+  public synchronized void stop() {
+    if (polling != null) {
+      polling.cancel(false);
+      polling = null;
+    }
+    closeSubscription();
+    trackers.remove(web3, this);
+  }
+
+  private void closeSubscription() {
+    if (subscription != null) {
+      subscription.dispose();
+      subscription = null;
+    }
+    if (webSocket != null) {
+      webSocket.close();
+      webSocket = null;
+    }
+  }
+
+  /**
+   * @return The latest block number seen, or -1 before the first successful poll.
+   */
+  public long head() {
+    return head;
+  }
+
+  /**
+   * Registers a callback run on the poller thread each time the head advances.
+   * @param listener Receives the new block number.
+   */
+  public void addListener(LongConsumer listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(LongConsumer listener) {
+    listeners.remove(listener);
+  }
+
+  void poll() {
+    if (isSubscribed()) {
+      return;
+    }
+    try {
+      BigInteger blockNumber = web3.ethBlockNumber().send().getBlockNumber();
+      advanceTo(blockNumber.longValue());
+    } catch (Exception e) {
+      // Keep the last known head; the next poll will try again.
+    }
+  }
+
+  void advanceTo(long blockNumber) {
+    synchronized (this) {
+      if (blockNumber <= head) {
+        return;
+      }
+      head = blockNumber;
+    }
+    synchronized (deliveryLock) {
+      if (blockNumber <= delivered) {
+        // A newer head was announced while this one waited.
+        return;
+      }
+      delivered = blockNumber;
+      for (LongConsumer listener : listeners) {
+        try {
+          listener.accept(blockNumber);
+        } catch (RuntimeException e) {
+          e.printStackTrace();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,202 @@
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.utils.Numeric;
+
+/**
+ * Per-session cache of decrypted wallet keys, so switching back to a wallet skips the keystore's
+ * scrypt run. Opt-in, because it keeps key material in memory: entries expire after an idle
+ * period and after an absolute lifetime, the cache holds a bounded number of wallets, and a
+ * cached key's bytes are zeroed when it leaves the cache. The {@link Credentials} handed out are
+ * rebuilt from those bytes on each hit; their own BigInteger copy cannot be zeroed.
+ */
+public class CredentialCache {
+
+  private static final long SWEEP_SECONDS = 15;
+  private static final SecureRandom random = new SecureRandom();
+  private static final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "credential-cache-sweeper");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final long idleMillis;
+  private final long maxAgeMillis;
+  private final LruCache<String, Entry> entries;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong scryptRuns = new AtomicLong();
+  private final AtomicLong scryptNanos = new AtomicLong();
+
+  /**
+   * @param maxEntries The number of wallets kept before the least recently used is evicted.
+   * @param idleSeconds How long an unused entry is kept.
+   * @param maxAgeSeconds How long any entry is kept after the wallet was decrypted.
+   */
+  public CredentialCache(int maxEntries, long idleSeconds, long maxAgeSeconds) {
+    this.idleMillis = TimeUnit.SECONDS.toMillis(idleSeconds);
+    this.maxAgeMillis = TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+    this.entries = new LruCache<>(maxEntries) {
+      @Override
+      protected void onEvict(String walletName, Entry entry) {
+        entry.destroy();
+      }
+    };
+    scheduleSweep(this);
+  }
+
+  /**
+   * Builds a cache from {@code wallets.credentialCache.maxEntries}, {@code .idleSeconds} and
+   * {@code .maxAgeSeconds}.
+   * @return A new, empty cache.
+   */
+  public static CredentialCache fromProperties() {
+    return new CredentialCache(
+        Integer.getInteger("wallets.credentialCache.maxEntries", 16),
+        Long.getLong("wallets.credentialCache.idleSeconds", 300),
+        Long.getLong("wallets.credentialCache.maxAgeSeconds", 1800));
+  }
+
+  /**
+   * Returns the cached credentials if the wallet was decrypted recently with the same password.
+   * @param walletName The wallet file name.
+   * @param password The password the caller supplied.
+   * @return The credentials, or null if the wallet has to be decrypted.
+   */
+  public Credentials get(String walletName, String password) {
+    long now = System.currentTimeMillis();
+    synchronized (entries) {
+      Entry entry = entries.get(walletName);
+      if (entry != null && entry.isExpired(now, idleMillis, maxAgeMillis)) {
+        entries.remove(walletName);
+        entry = null;
+      }
+      if (entry == null || !entry.matches(password)) {
+        misses.incrementAndGet();
+        return null;
+      }
+      entry.lastUsedAt = now;
+      hits.incrementAndGet();
+      return Credentials.create(ECKeyPair.create(entry.privateKey));
+    }
+  }
+
+  /**
+   * Caches a freshly decrypted wallet.
+   * @param walletName The wallet file name.
+   * @param password The password that decrypted it.
+   * @param credentials The decrypted credentials.
+   * @param decryptNanos How long the keystore decryption took, for the savings estimate.
+   */
+  public void put(String walletName, String password, Credentials credentials, long decryptNanos) {
+    scryptRuns.incrementAndGet();
+    scryptNanos.addAndGet(decryptNanos);
+    byte[] privateKey = Numeric.toBytesPadded(credentials.getEcKeyPair().getPrivateKey(), 32);
+    synchronized (entries) {
+      entries.remove(walletName);
+      entries.put(walletName, new Entry(privateKey, password, System.currentTimeMillis()));
+    }
+  }
+
+  /**
+   * Evicts every entry, zeroing its key material.
+   */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  public long hits() {
+    return hits.get();
+  }
+
+  public long misses() {
+    return misses.get();
+  }
+
+  /**
+   * @return The average time one keystore decryption took, in milliseconds.
+   */
+  public double averageScryptMillis() {
+    long runs = scryptRuns.get();
+    return runs == 0 ? 0 : scryptNanos.get() / 1e6 / runs;
+  }
+
+  /**
+   * @return The scrypt time cache hits avoided, estimated from the average decryption time.
+   */
+  public double savedScryptMillis() {
+    return hits.get() * averageScryptMillis();
+  }
+
+  private void sweep() {
+    long now = System.currentTimeMillis();
+    entries.removeIf((walletName, entry) -> entry.isExpired(now, idleMillis, maxAgeMillis));
+  }
+
+  // The sweep only holds the cache weakly, so a session that is dropped without calling clear()
+  // still gets collected, and its task cancels itself.
+  private static void scheduleSweep(CredentialCache cache) {
+    WeakReference<CredentialCache> reference = new WeakReference<>(cache);
+    ScheduledFuture<?>[] task = new ScheduledFuture<?>[1];
+    task[0] = sweeper.scheduleWithFixedDelay(() -> {
+      CredentialCache current = reference.get();
+      if (current == null) {
+        task[0].cancel(false);
+      } else {
+        current.sweep();
+      }
+    }, SWEEP_SECONDS, SWEEP_SECONDS, TimeUnit.SECONDS);
+  }
+
+  private static byte[] digest(byte[] salt, String password) {
+    try {
+      MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+      sha256.update(salt);
+      return sha256.digest(password.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static class Entry {
+
+    private final byte[] privateKey;
+    private final byte[] salt = new byte[16];
+    private final byte[] passwordDigest;
+    private final long createdAt;
+    private long lastUsedAt;
+
+    Entry(byte[] privateKey, String password, long now) {
+      this.privateKey = privateKey;
+      random.nextBytes(salt);
+      this.passwordDigest = digest(salt, password);
+      this.createdAt = now;
+      this.lastUsedAt = now;
+    }
+
+    boolean matches(String password) {
+      return MessageDigest.isEqual(passwordDigest, digest(salt, password));
+    }
+
+    boolean isExpired(long now, long idleMillis, long maxAgeMillis) {
+      return now - lastUsedAt > idleMillis || now - createdAt > maxAgeMillis;
+    }
+
+    void destroy() {
+      Arrays.fill(privateKey, (byte) 0);
+      Arrays.fill(passwordDigest, (byte) 0);
+    }
+  }
+}
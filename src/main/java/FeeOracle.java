@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthChainId;
+import org.web3j.protocol.core.methods.response.EthFeeHistory;
+
+/**
+ * Shared EIP-1559 fee estimate for every sender in the process. Fees are read from
+ * {@code eth_feeHistory} at most once per block, as seen by the shared {@link ChainHeadTracker}:
+ * the base fee is the one the history gives for the next block, and the priority fee is the
+ * median of the {@code fees.rewardPercentile} (50) tip paid over the last {@code fees.historyBlocks}
+ * (10) blocks, but at least {@code fees.minPriorityFeeWei} (0.1 gwei). The max fee leaves room for
+ * the base fee to double. Fees are also read again once they are {@code fees.maxAgeMillis} (24000)
+ * old, and on every call while the head is unknown, so a stalled tracker cannot pin them. The chain
+ * id is read once.
+ */
+public class FeeOracle {
+
+  private static final Map<Web3j, FeeOracle> oracles = new ConcurrentHashMap<>();
+
+  private final Web3j web3;
+  private final ChainHeadTracker headTracker;
+  private final int historyBlocks;
+  private final double rewardPercentile;
+  private final BigInteger minPriorityFee;
+  private final long maxAgeMillis;
+  private volatile Fees fees;
+  private volatile Long chainId;
+
+  FeeOracle(Web3j web3, ChainHeadTracker headTracker, int historyBlocks, double rewardPercentile,
+      BigInteger minPriorityFee, long maxAgeMillis) {
+    this.web3 = web3;
+    this.headTracker = headTracker;
+    this.historyBlocks = historyBlocks;
+    this.rewardPercentile = rewardPercentile;
+    this.minPriorityFee = minPriorityFee;
+    this.maxAgeMillis = maxAgeMillis;
+  }
+
+  /**
+   * Returns the oracle for the given client, configured from system properties.
+   * @param web3 The RPC client to read fees through.
+   * @return The shared oracle.
+   */
+  public static FeeOracle forClient(Web3j web3) {
+    return oracles.computeIfAbsent(web3, client -> new FeeOracle(client, ChainHeadTracker.forClient(client),
+        Integer.getInteger("fees.historyBlocks", 10),
+        Double.parseDouble(System.getProperty("fees.rewardPercentile", "50")),
+        new BigInteger(System.getProperty("fees.minPriorityFeeWei", "100000000")),
+        Long.getLong("fees.maxAgeMillis", 24_000)));
+  }
+
+  /**
+   * @return Fees for a transaction in the next block, cached until a new block arrives or they
+   *     are {@code maxAgeMillis} old.
+   * @throws IOException If the fee history cannot be fetched.
+   */
+  public Fees fees() throws IOException {
+    Fees current = fees;
+    long head = headTracker.head();
+    if (current != null && head >= 0 && current.block >= head
+        && System.currentTimeMillis() - current.fetchedAt < maxAgeMillis) {
+      return current;
+    }
+    Fees fetched = RpcCoalescer.forClient(web3)
+        .call("eth_feeHistory", List.of(historyBlocks, "latest", rewardPercentile), this::fetchFees);
+    fees = fetched;
+    return fetched;
+  }
+
+  /**
+   * @return The chain id for signing, read from the node on first use.
+   * @throws IOException If the node cannot be reached.
+   */
+  public long chainId() throws IOException {
+    Long id = chainId;
+    if (id == null) {
+      id = RpcCoalescer.forClient(web3).call("eth_chainId", List.of(), this::fetchChainId);
+      chainId = id;
+    }
+    return id;
+  }
+
+  private Fees fetchFees() throws IOException {
+    EthFeeHistory.FeeHistory history = AppMetrics.time("wallet.rpc", "method", "eth_feeHistory", () -> {
+      EthFeeHistory response = web3.ethFeeHistory(historyBlocks, DefaultBlockParameterName.LATEST,
+          List.of(rewardPercentile)).send();
+      if (response.hasError()) {
+        throw new IOException("eth_feeHistory failed: " + response.getError().getMessage());
+      }
+      return response.getFeeHistory();
+    });
+    List<BigInteger> baseFees = history.getBaseFeePerGas();
+    if (baseFees == null || baseFees.isEmpty()) {
+      throw new IOException("eth_feeHistory returned no base fee; the chain may not support EIP-1559");
+    }
+    // The list has one more entry than blocks asked for: the base fee of the block after the newest.
+    BigInteger baseFee = baseFees.get(baseFees.size() - 1);
+    long newestBlock = history.getOldestBlock().longValueExact() + baseFees.size() - 2;
+    return new Fees(newestBlock, baseFee, medianTip(history.getReward()).max(minPriorityFee));
+  }
+
+  private static BigInteger medianTip(List<List<BigInteger>> rewards) {
+    List<BigInteger> tips = new ArrayList<>();
+    if (rewards != null) {
+      for (List<BigInteger> reward : rewards) {
+        if (!reward.isEmpty()) {
+          tips.add(reward.get(0));
+        }
+      }
+    }
+    if (tips.isEmpty()) {
+      return BigInteger.ZERO;
+    }
+    Collections.sort(tips);
+    return tips.get(tips.size() / 2);
+  }
+
+  private Long fetchChainId() throws IOException {
+    EthChainId response = web3.ethChainId().send();
+    if (response.hasError()) {
+      throw new IOException("eth_chainId failed: " + response.getError().getMessage());
+    }
+    return response.getChainId().longValueExact();
+  }
+
+  /**
+   * Per-gas fees for a transaction in the block after {@link #getBlock()}.
+   */
+  public static final class Fees {
+
+    private final long block;
+    private final BigInteger baseFee;
+    private final BigInteger priorityFee;
+    private final long fetchedAt = System.currentTimeMillis();
+
+    Fees(long block, BigInteger baseFee, BigInteger priorityFee) {
+      this.block = block;
+      this.baseFee = baseFee;
+      this.priorityFee = priorityFee;
+    }
+
+    /**
+     * @return The newest block the fees were read at.
+     */
+    public long getBlock() {
+      return block;
+    }
+
+    /**
+     * @return The base fee of the next block, in wei.
+     */
+    public BigInteger getBaseFee() {
+      return baseFee;
+    }
+
+    /**
+     * @return The tip to offer, in wei.
+     */
+    public BigInteger getPriorityFee() {
+      return priorityFee;
+    }
+
+    /**
+     * @return The most to pay per gas: twice the base fee plus the tip, so the transaction stays
+     *     valid for several blocks of rising base fees.
+     */
+    public BigInteger getMaxFee() {
+      return baseFee.shiftLeft(1).add(priorityFee);
+    }
+  }
+}
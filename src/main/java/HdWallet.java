@@ -0,0 +1,391 @@
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.bouncycastle.crypto.digests.SHA512Digest;
+import org.bouncycastle.crypto.generators.SCrypt;
+import org.bouncycastle.crypto.macs.HMac;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.math.ec.ECPoint;
+import org.web3j.crypto.Bip32ECKeyPair;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.Sign;
+import org.web3j.crypto.exception.CipherException;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.utils.Numeric;
+
+/**
+ * One user's hierarchical deterministic wallet: a single BIP-32 seed, encrypted with scrypt and
+ * AES-GCM, from which every wallet is derived along the BIP-44 Ethereum path
+ * {@code m/44'/60'/0'/0/<index>}. A derived wallet is named {@code hd-<index>}, which is all the
+ * user store records; the account path is kept in the seed file. Creating a wallet only picks the
+ * next index, so it takes microseconds instead of a scrypt run. The seed is decrypted once, on the
+ * first load of the session, and every child key is derived from it in memory afterwards.
+ *
+ * <p>The seed file also stores the public key and chain code of the account path, so addresses
+ * are derived without the password.
+ */
+public class HdWallet {
+
+  /** Path of the key every wallet is a child of. */
+  public static final String ACCOUNT_PATH = "m/44'/60'/0'/0";
+
+  private static final String NAME_PREFIX = "hd-";
+  private static final String SEED_SUFFIX = ".seed";
+  private static final int[] ACCOUNT = {
+      44 | Bip32ECKeyPair.HARDENED_BIT, 60 | Bip32ECKeyPair.HARDENED_BIT, Bip32ECKeyPair.HARDENED_BIT, 0};
+  private static final int SEED_BYTES = 64;
+  private static final int SCRYPT_R = 8;
+  private static final int SCRYPT_P = 1;
+  private static final SecureRandom random = new SecureRandom();
+  private static final Map<File, HdWallet> wallets = new ConcurrentHashMap<>();
+  // Lower-case 0x addresses of every child derived in this process, for the transaction history.
+  private static final Set<String> derivedAddresses = ConcurrentHashMap.newKeySet();
+
+  private final File seedFile;
+  private final int scryptCost;
+  private final Map<Integer, String> addresses = new ConcurrentHashMap<>();
+  private volatile SeedFile stored;
+  // Guarded by this; set while the seed is unlocked.
+  private Bip32ECKeyPair accountKey;
+  private byte[] passwordSalt;
+  private byte[] passwordDigest;
+
+  HdWallet(File seedFile, int scryptCost) {
+    this.seedFile = seedFile;
+    this.scryptCost = scryptCost;
+  }
+
+  /**
+   * Returns the shared wallet for a seed file, using {@code wallets.hd.scryptCost} (262144) for a
+   * new seed.
+   * @param seedFile The file holding the encrypted seed; it need not exist yet.
+   * @return The shared wallet.
+   */
+  public static HdWallet forFile(File seedFile) {
+    return wallets.computeIfAbsent(seedFile.getAbsoluteFile(),
+        file -> new HdWallet(file, Integer.getInteger("wallets.hd.scryptCost", 1 << 18)));
+  }
+
+  /**
+   * @param walletDirectory The wallet directory.
+   * @param username The seed's owner.
+   * @return The shared wallet for the user's seed in that directory.
+   */
+  public static HdWallet forUser(File walletDirectory, String username) {
+    return forFile(new File(walletDirectory, NAME_PREFIX + username + SEED_SUFFIX));
+  }
+
+  /**
+   * Derives the address of every derived wallet in the user store whose owner has a seed in the
+   * directory, so {@link #isDerivedAddress} knows them from startup rather than from first use.
+   * @param walletDirectory The wallet directory holding the seed files.
+   * @param users The user store.
+   * @throws IOException If a seed file cannot be read.
+   */
+  public static void deriveAddresses(File walletDirectory, XMLParser users) throws IOException {
+    File[] seeds = walletDirectory.listFiles(
+        (directory, name) -> name.startsWith(NAME_PREFIX) && name.endsWith(SEED_SUFFIX));
+    if (seeds == null) {
+      return;
+    }
+    for (File seed : seeds) {
+      String name = seed.getName();
+      String username = name.substring(NAME_PREFIX.length(), name.length() - SEED_SUFFIX.length());
+      HdWallet wallet = forFile(seed);
+      for (String walletName : users.getUserWallets(username)) {
+        if (isDerivedName(walletName)) {
+          wallet.address(walletName);
+        }
+      }
+    }
+  }
+
+  /**
+   * @param walletName A wallet name.
+   * @return True if the name is one from {@link #nameOf} rather than a keystore file name.
+   */
+  public static boolean isDerivedName(String walletName) {
+    return walletName.startsWith(NAME_PREFIX);
+  }
+
+  /**
+   * @param index The child index.
+   * @return The wallet name, which contains no path separators so it can be used in URLs.
+   */
+  public static String nameOf(int index) {
+    if (index < 0) {
+      throw new IllegalArgumentException("Child index must not be negative: " + index);
+    }
+    return NAME_PREFIX + index;
+  }
+
+  /**
+   * @param walletName A wallet name from {@link #nameOf}.
+   * @return Its child index.
+   * @throws IllegalArgumentException If the name is not one of this scheme.
+   */
+  public static int indexOf(String walletName) {
+    if (isDerivedName(walletName)) {
+      String index = walletName.substring(NAME_PREFIX.length());
+      if (index.matches("\\d{1,10}")) {
+        long value = Long.parseLong(index);
+        if (value <= Integer.MAX_VALUE) {
+          return (int) value;
+        }
+      }
+    }
+    throw new IllegalArgumentException("Not a derived wallet name: " + walletName);
+  }
+
+  /**
+   * @param address A 0x-prefixed address.
+   * @return True if the address is a child that was derived in this process.
+   */
+  public static boolean isDerivedAddress(String address) {
+    return derivedAddresses.contains(address.toLowerCase());
+  }
+
+  /**
+   * @param walletName A wallet name from {@link #nameOf}.
+   * @return The wallet's full derivation path, from the account path stored with the seed.
+   * @throws IOException If the seed file cannot be read.
+   */
+  public String path(String walletName) throws IOException {
+    return seedFile().accountPath + "/" + indexOf(walletName);
+  }
+
+  /**
+   * @return True if the seed file exists.
+   */
+  public boolean exists() {
+    return stored != null || seedFile.exists();
+  }
+
+  /**
+   * Generates a new seed, writes it encrypted with the password, and leaves it unlocked.
+   * @param password The password for the seed.
+   * @throws IOException If a seed already exists or cannot be written.
+   */
+  public void create(String password) throws IOException {
+    byte[] seed = new byte[SEED_BYTES];
+    random.nextBytes(seed);
+    try {
+      create(password, seed);
+    } finally {
+      Arrays.fill(seed, (byte) 0);
+    }
+  }
+
+  // Also used by tests to start from a known seed.
+  synchronized void create(String password, byte[] seed) throws IOException {
+    if (exists()) {
+      throw new IOException("A seed already exists: " + seedFile);
+    }
+    Bip32ECKeyPair account = Bip32ECKeyPair.deriveKeyPair(Bip32ECKeyPair.generateKeyPair(seed), ACCOUNT);
+    SeedFile file = new SeedFile();
+    file.n = scryptCost;
+    file.r = SCRYPT_R;
+    file.p = SCRYPT_P;
+    file.salt = randomBytes(32);
+    file.iv = randomBytes(12);
+    file.accountPublicKey = account.getPublicKeyPoint().getEncoded(true);
+    file.accountChainCode = account.getChainCode();
+    try {
+      file.ciphertext = cipher(Cipher.ENCRYPT_MODE, deriveKey(password, file), file).doFinal(seed);
+    } catch (GeneralSecurityException e) {
+      throw new IOException("Unable to encrypt the seed", e);
+    }
+    write(file);
+    stored = file;
+    remember(account, password);
+  }
+
+  /**
+   * Decrypts the seed unless it is already unlocked. Only the first call runs scrypt; later calls
+   * just check the password.
+   * @param password The seed's password.
+   * @throws CipherException If the password is wrong.
+   * @throws IOException If the seed file cannot be read.
+   */
+  public synchronized void unlock(String password) throws CipherException, IOException {
+    if (accountKey != null) {
+      if (!MessageDigest.isEqual(passwordDigest, digest(passwordSalt, password))) {
+        throw new CipherException("Invalid password provided");
+      }
+      return;
+    }
+    SeedFile file = seedFile();
+    byte[] seed;
+    try {
+      seed = cipher(Cipher.DECRYPT_MODE, deriveKey(password, file), file).doFinal(file.ciphertext);
+    } catch (AEADBadTagException e) {
+      throw new CipherException("Invalid password provided");
+    } catch (GeneralSecurityException e) {
+      throw new IOException("Unable to decrypt the seed", e);
+    }
+    try {
+      remember(Bip32ECKeyPair.deriveKeyPair(Bip32ECKeyPair.generateKeyPair(seed), ACCOUNT), password);
+    } finally {
+      Arrays.fill(seed, (byte) 0);
+    }
+  }
+
+  /**
+   * @return True if the seed has been decrypted this session.
+   */
+  public synchronized boolean isUnlocked() {
+    return accountKey != null;
+  }
+
+  /**
+   * Forgets the decrypted seed; the next {@link #unlock} runs scrypt again.
+   */
+  public synchronized void lock() {
+    accountKey = null;
+    passwordSalt = null;
+    passwordDigest = null;
+  }
+
+  /**
+   * Derives a wallet's keys, unlocking the seed first if needed.
+   * @param walletName A wallet name from {@link #nameOf}.
+   * @param password The seed's password.
+   * @return The wallet's credentials.
+   * @throws CipherException If the password is wrong.
+   * @throws IOException If the seed file cannot be read.
+   */
+  public Credentials credentials(String walletName, String password) throws CipherException, IOException {
+    int index = indexOf(walletName);
+    Bip32ECKeyPair account;
+    synchronized (this) {
+      unlock(password);
+      account = accountKey;
+    }
+    Credentials credentials = Credentials.create(Bip32ECKeyPair.deriveKeyPair(account, new int[] {index}));
+    derivedAddresses.add(credentials.getAddress().toLowerCase());
+    return credentials;
+  }
+
+  /**
+   * Derives a wallet's address from the stored account public key, without the password.
+   * @param walletName A wallet name from {@link #nameOf}.
+   * @return The lower-case 0x-prefixed address.
+   * @throws IOException If the seed file cannot be read.
+   */
+  public String address(String walletName) throws IOException {
+    int index = indexOf(walletName);
+    String address = addresses.get(index);
+    if (address == null) {
+      SeedFile file = seedFile();
+      address = Numeric.prependHexPrefix(Keys.getAddress(
+          childPublicKey(file.accountPublicKey, file.accountChainCode, index)));
+      addresses.put(index, address);
+      derivedAddresses.add(address);
+    }
+    return address;
+  }
+
+  // BIP-32 public parent to public child derivation; index must not be hardened.
+  private static BigInteger childPublicKey(byte[] parentPublicKey, byte[] chainCode, int index) {
+    HMac hmac = new HMac(new SHA512Digest());
+    hmac.init(new KeyParameter(chainCode));
+    hmac.update(parentPublicKey, 0, parentPublicKey.length);
+    byte[] indexBytes = {(byte) (index >>> 24), (byte) (index >>> 16), (byte) (index >>> 8), (byte) index};
+    hmac.update(indexBytes, 0, indexBytes.length);
+    byte[] output = new byte[64];
+    hmac.doFinal(output, 0);
+    BigInteger tweak = new BigInteger(1, Arrays.copyOf(output, 32));
+    ECPoint child = Sign.CURVE_PARAMS.getG().multiply(tweak)
+        .add(Sign.CURVE_PARAMS.getCurve().decodePoint(parentPublicKey)).normalize();
+    byte[] encoded = child.getEncoded(false);
+    return new BigInteger(1, Arrays.copyOfRange(encoded, 1, encoded.length));
+  }
+
+  private void remember(Bip32ECKeyPair account, String password) {
+    accountKey = account;
+    passwordSalt = randomBytes(16);
+    passwordDigest = digest(passwordSalt, password);
+  }
+
+  private SeedFile seedFile() throws IOException {
+    SeedFile file = stored;
+    if (file == null) {
+      if (!seedFile.exists()) {
+        throw new IOException("No seed has been created: " + seedFile);
+      }
+      file = ObjectMapperFactory.getObjectMapper().readValue(seedFile, SeedFile.class);
+      if (!ACCOUNT_PATH.equals(file.accountPath)) {
+        throw new IOException("Unsupported account path " + file.accountPath + " in " + seedFile);
+      }
+      stored = file;
+    }
+    return file;
+  }
+
+  // Written to a temporary file first so a crash cannot leave half a seed behind.
+  private void write(SeedFile file) throws IOException {
+    File parent = seedFile.getAbsoluteFile().getParentFile();
+    Files.createDirectories(parent.toPath());
+    File temporary = new File(parent, seedFile.getName() + ".tmp");
+    ObjectMapperFactory.getObjectMapper().writeValue(temporary, file);
+    Files.move(temporary.toPath(), seedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static byte[] deriveKey(String password, SeedFile file) {
+    return SCrypt.generate(password.getBytes(StandardCharsets.UTF_8), file.salt, file.n, file.r, file.p, 32);
+  }
+
+  private static Cipher cipher(int mode, byte[] key, SeedFile file) throws GeneralSecurityException {
+    Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+    cipher.init(mode, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, file.iv));
+    Arrays.fill(key, (byte) 0);
+    return cipher;
+  }
+
+  private static byte[] digest(byte[] salt, String password) {
+    try {
+      MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+      sha256.update(salt);
+      return sha256.digest(password.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+
+  /**
+   * On-disk form of the seed; byte arrays are written as base64.
+   */
+  static final class SeedFile {
+    public int version = 1;
+    public String accountPath = ACCOUNT_PATH;
+    public int n;
+    public int r;
+    public int p;
+    public byte[] salt;
+    public byte[] iv;
+    public byte[] ciphertext;
+    public byte[] accountPublicKey;
+    public byte[] accountChainCode;
+  }
+}
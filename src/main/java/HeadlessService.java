@@ -0,0 +1,51 @@
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Runs the wallet core as an HTTP service instead of the JavaFX desktop app. All sessions share
+ * the one user store from {@link XMLParser#getInstance()} and the pooled RPC client from
+ * {@link RpcClientFactory}. On Java 21+ Tomcat hands each request to the {@link BackgroundExecutor},
+ * which uses a virtual thread per request, so blocking RPC and scrypt calls do not tie up a
+ * platform thread each. On older runtimes Tomcat keeps its own pool, bounded by
+ * {@code server.tomcat.threads.max}.
+ * <p>
+ * Start with {@code java HeadlessService} or {@code java Main --headless}; the port is set with
+ * {@code --server.port}.
+ * <p>
+ * Components are imported explicitly rather than found by component scanning, which Spring does
+ * not support for classes in the default package.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@Import(WalletController.class)
+public class HeadlessService {
+
+  @Bean
+  public XMLParser userStore() {
+    return XMLParser.getInstance();
+  }
+
+  @Bean
+  public SessionRegistry sessionRegistry(XMLParser userStore) {
+    return new SessionRegistry(userStore);
+  }
+
+  @Bean
+  public TomcatProtocolHandlerCustomizer<ProtocolHandler> backgroundExecutorCustomizer() {
+    return protocolHandler -> {
+      // The platform-thread fallback is unbounded, so it would lift Tomcat's thread limit.
+      if (BackgroundExecutor.usesVirtualThreads()) {
+        protocolHandler.setExecutor(BackgroundExecutor.get());
+      }
+    };
+  }
+
+  public static void main(String[] args) {
+    SpringApplication.run(HeadlessService.class, args);
+  }
+}
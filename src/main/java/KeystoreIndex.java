@@ -0,0 +1,443 @@
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.web3j.crypto.WalletFile;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.utils.Numeric;
+
+/**
+ * In-memory index of the keystore files in a wallet directory, mapping each file name to its
+ * address without decrypting anything. Built with a parallel scan at startup, kept current by a
+ * directory watcher, and persisted next to the directory so the next start only re-reads keystores
+ * that changed.
+ */
+public class KeystoreIndex {
+
+  private static final Pattern WEB3J_FILE_NAME = Pattern.compile(
+      "UTC--(\\d{4}-\\d{2}-\\d{2}T)(\\d{2})-(\\d{2})-(\\d{2}(?:\\.\\d+)?Z)--.*");
+  private static final Map<Path, KeystoreIndex> indexes = new ConcurrentHashMap<>();
+
+  private final Path directory;
+  private final Path indexFile;
+  private final Map<String, Entry> byName = new ConcurrentHashMap<>();
+  private final Map<String, String> byAddress = new ConcurrentHashMap<>();
+  private final Object writeLock = new Object();
+  private BufferedWriter writer;
+  private WatchService watcher;
+
+  /**
+   * Scans the directory and starts watching it. Most callers should use {@link #forDirectory}.
+   * @param directory The wallet directory.
+   * @param indexFile Where the index is persisted.
+   * @throws IOException If the directory cannot be read.
+   */
+  public KeystoreIndex(File directory, File indexFile) throws IOException {
+    this.directory = directory.toPath().toAbsolutePath();
+    this.indexFile = indexFile.toPath().toAbsolutePath();
+    Files.createDirectories(this.directory);
+    rescan();
+    startWatching();
+  }
+
+  /**
+   * Returns the shared index for a wallet directory, building it on first use. The index is stored
+   * in a file named after the directory with an {@code .index} suffix.
+   * @param directory The wallet directory.
+   * @return The shared index.
+   * @throws IOException If the directory cannot be read.
+   */
+  public static KeystoreIndex forDirectory(File directory) throws IOException {
+    Path key = directory.toPath().toAbsolutePath();
+    KeystoreIndex existing = indexes.get(key);
+    if (existing != null) {
+      return existing;
+    }
+    synchronized (indexes) {
+      KeystoreIndex index = indexes.get(key);
+      if (index == null) {
+        index = new KeystoreIndex(directory, new File(key + ".index"));
+        indexes.put(key, index);
+      }
+      return index;
+    }
+  }
+
+  /**
+   * @param walletName The keystore file name.
+   * @return The wallet's 0x-prefixed address, or null if the file is not indexed.
+   */
+  public String address(String walletName) {
+    Entry entry = byName.get(walletName);
+    return entry == null ? null : entry.getAddress();
+  }
+
+  /**
+   * @param address An address, with or without the 0x prefix, in any case.
+   * @return The keystore file name for that address, or null if none is indexed.
+   */
+  public String walletName(String address) {
+    return byAddress.get(normalize(address));
+  }
+
+  /**
+   * @param walletName The keystore file name.
+   * @return The index entry, or null if the file is not indexed.
+   */
+  public Entry entry(String walletName) {
+    return byName.get(walletName);
+  }
+
+  /**
+   * @return The number of indexed keystores.
+   */
+  public int size() {
+    return byName.size();
+  }
+
+  /**
+   * Re-reads one keystore now rather than waiting for the watcher, e.g. right after creating it.
+   * @param walletName The keystore file name.
+   */
+  public void refresh(String walletName) {
+    Path file = directory.resolve(walletName);
+    Entry updated = Files.exists(file) ? read(file, byName.get(walletName)) : null;
+    synchronized (writeLock) {
+      Entry current = byName.get(walletName);
+      if (updated != null && updated != current) {
+        index(updated);
+        append(updated.toLine());
+      } else if (updated == null && current != null && !Files.exists(file)) {
+        byName.remove(walletName);
+        byAddress.remove(current.getAddress(), walletName);
+        append("-\t" + walletName);
+      }
+    }
+  }
+
+  /**
+   * Reconciles the index with the directory. Keystores whose size and modification time match
+   * the index are not re-read; the rest are parsed in parallel. The index file is rewritten
+   * afterwards, and later changes are appended to it.
+   * @throws IOException If the directory cannot be listed or the index cannot be written.
+   */
+  public void rescan() throws IOException {
+    Map<String, Entry> known = new HashMap<>(byName);
+    if (known.isEmpty()) {
+      known.putAll(loadIndexFile());
+    }
+    List<Path> files;
+    try (Stream<Path> listing = Files.list(directory)) {
+      files = listing.filter(KeystoreIndex::isKeystore).collect(Collectors.toList());
+    }
+    List<Entry> scanned = files.parallelStream()
+        .map(file -> read(file, known.get(file.getFileName().toString())))
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+
+    synchronized (writeLock) {
+      byName.clear();
+      byAddress.clear();
+      scanned.forEach(this::index);
+      rewriteIndexFile();
+    }
+  }
+
+  /**
+   * Stops watching the directory and closes the index file.
+   */
+  public void close() {
+    indexes.remove(directory, this);
+    try {
+      if (watcher != null) {
+        watcher.close();
+      }
+      synchronized (writeLock) {
+        if (writer != null) {
+          writer.close();
+          writer = null;
+        }
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void index(Entry entry) {
+    Entry previous = byName.put(entry.getFileName(), entry);
+    if (previous != null && !previous.getAddress().equals(entry.getAddress())) {
+      byAddress.remove(previous.getAddress(), previous.getFileName());
+    }
+    byAddress.put(entry.getAddress(), entry.getFileName());
+  }
+
+  // Returns the known entry unchanged when the file has not been touched since it was indexed,
+  // and null when the file is not a readable keystore (for example, still being written).
+  private static Entry read(Path file, Entry known) {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      long size = attributes.size();
+      long modified = attributes.lastModifiedTime().toMillis();
+      if (known != null && known.size == size && known.modified == modified) {
+        return known;
+      }
+      WalletFile walletFile = ObjectMapperFactory.getObjectMapper()
+          .readValue(file.toFile(), WalletFile.class);
+      if (walletFile.getAddress() == null || walletFile.getCrypto() == null) {
+        return null;
+      }
+      String fileName = file.getFileName().toString();
+      String kdf = walletFile.getCrypto().getKdf();
+      int cost = 0;
+      int blockSize = 0;
+      int parallelism = 0;
+      if (walletFile.getCrypto().getKdfparams() instanceof WalletFile.ScryptKdfParams scrypt) {
+        cost = scrypt.getN();
+        blockSize = scrypt.getR();
+        parallelism = scrypt.getP();
+      } else if (walletFile.getCrypto().getKdfparams() instanceof WalletFile.Aes128CtrKdfParams pbkdf2) {
+        cost = pbkdf2.getC();
+      }
+      return new Entry(fileName, normalize(walletFile.getAddress()),
+          createdAt(fileName, attributes), kdf, cost, blockSize, parallelism, size, modified);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static long createdAt(String fileName, BasicFileAttributes attributes) {
+    Matcher matcher = WEB3J_FILE_NAME.matcher(fileName);
+    if (matcher.matches()) {
+      try {
+        return Instant.parse(matcher.group(1) + matcher.group(2) + ":" + matcher.group(3) + ":"
+            + matcher.group(4)).toEpochMilli();
+      } catch (DateTimeParseException e) {
+        // Fall back to the file system's creation time.
+      }
+    }
+    return attributes.creationTime().toMillis();
+  }
+
+  private static boolean isKeystore(Path file) {
+    return file.getFileName().toString().endsWith(".json") && Files.isRegularFile(file);
+  }
+
+  private static String normalize(String address) {
+    return Numeric.prependHexPrefix(Numeric.cleanHexPrefix(address).toLowerCase());
+  }
+
+  private Map<String, Entry> loadIndexFile() {
+    Map<String, Entry> entries = new HashMap<>();
+    if (!Files.exists(indexFile)) {
+      return entries;
+    }
+    try {
+      for (String line : Files.readAllLines(indexFile, StandardCharsets.UTF_8)) {
+        String[] fields = line.split("\t");
+        if (fields.length == 2 && "-".equals(fields[0])) {
+          entries.remove(fields[1]);
+        } else {
+          Entry entry = Entry.fromLine(fields);
+          if (entry != null) {
+            entries.put(entry.getFileName(), entry);
+          }
+        }
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    return entries;
+  }
+
+  private void rewriteIndexFile() throws IOException {
+    if (writer != null) {
+      writer.close();
+    }
+    Path temp = Path.of(indexFile + ".tmp");
+    try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      for (Entry entry : byName.values()) {
+        out.write(entry.toLine());
+        out.newLine();
+      }
+    }
+    Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    writer = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+  }
+
+  private void append(String line) {
+    synchronized (writeLock) {
+      if (writer == null) {
+        return;
+      }
+      try {
+        writer.write(line);
+        writer.newLine();
+        writer.flush();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  private void startWatching() throws IOException {
+    watcher = directory.getFileSystem().newWatchService();
+    directory.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+    Thread thread = new Thread(this::watch, "keystore-index-watcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void watch() {
+    boolean overflow = false;
+    try {
+      while (true) {
+        WatchKey key = watcher.take();
+        List<String> changed = new ArrayList<>();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == OVERFLOW) {
+            overflow = true;
+          } else {
+            String name = event.context().toString();
+            if (name.endsWith(".json") && !changed.contains(name)) {
+              changed.add(name);
+            }
+          }
+        }
+        key.reset();
+        if (overflow) {
+          try {
+            rescan();
+            overflow = false;
+          } catch (IOException e) {
+            // Events were lost, so keep rescanning on each new event until one succeeds.
+            e.printStackTrace();
+          }
+        } else {
+          changed.forEach(this::refresh);
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // Closed.
+    }
+  }
+
+  /**
+   * What the index knows about one keystore file.
+   */
+  public static final class Entry {
+
+    private final String fileName;
+    private final String address;
+    private final long createdAt;
+    private final String kdf;
+    private final int cost;
+    private final int blockSize;
+    private final int parallelism;
+    private final long size;
+    private final long modified;
+
+    Entry(String fileName, String address, long createdAt, String kdf, int cost, int blockSize,
+        int parallelism, long size, long modified) {
+      this.fileName = fileName;
+      this.address = address;
+      this.createdAt = createdAt;
+      this.kdf = kdf;
+      this.cost = cost;
+      this.blockSize = blockSize;
+      this.parallelism = parallelism;
+      this.size = size;
+      this.modified = modified;
+    }
+
+    public String getFileName() {
+      return fileName;
+    }
+
+    /**
+     * @return The 0x-prefixed, lowercase address.
+     */
+    public String getAddress() {
+      return address;
+    }
+
+    /**
+     * @return When the keystore was created, in epoch milliseconds.
+     */
+    public long getCreatedAt() {
+      return createdAt;
+    }
+
+    /**
+     * @return The key derivation function, "scrypt" or "pbkdf2".
+     */
+    public String getKdf() {
+      return kdf;
+    }
+
+    /**
+     * @return The scrypt N parameter, or the pbkdf2 iteration count.
+     */
+    public int getCost() {
+      return cost;
+    }
+
+    /**
+     * @return The scrypt r parameter, or 0 for pbkdf2.
+     */
+    public int getBlockSize() {
+      return blockSize;
+    }
+
+    /**
+     * @return The scrypt p parameter, or 0 for pbkdf2.
+     */
+    public int getParallelism() {
+      return parallelism;
+    }
+
+    private String toLine() {
+      return String.join("\t", "+", fileName, address, Long.toString(createdAt), kdf,
+          Integer.toString(cost), Integer.toString(blockSize), Integer.toString(parallelism),
+          Long.toString(size), Long.toString(modified));
+    }
+
+    private static Entry fromLine(String[] fields) {
+      if (fields.length != 10 || !"+".equals(fields[0])) {
+        return null;
+      }
+      try {
+        return new Entry(fields[1], fields[2], Long.parseLong(fields[3]), fields[4],
+            Integer.parseInt(fields[5]), Integer.parseInt(fields[6]), Integer.parseInt(fields[7]),
+            Long.parseLong(fields[8]), Long.parseLong(fields[9]));
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+  }
+}
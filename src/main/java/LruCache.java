@@ -0,0 +1,79 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * Size-bounded map that evicts the least recently used entry once full. All operations are
+ * synchronized, which is cheap next to the network or crypto work the cached values stand in for.
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+public class LruCache<K, V> {
+
+  private final Map<K, V> entries;
+
+  /**
+   * @param maxEntries The number of entries kept before the least recently used is evicted.
+   */
+  public LruCache(int maxEntries) {
+    entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        if (size() > maxEntries) {
+          onEvict(eldest.getKey(), eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  public synchronized V get(K key) {
+    return entries.get(key);
+  }
+
+  public synchronized void put(K key, V value) {
+    entries.put(key, value);
+  }
+
+  public synchronized V remove(K key) {
+    V value = entries.remove(key);
+    if (value != null) {
+      onEvict(key, value);
+    }
+    return value;
+  }
+
+  /**
+   * Evicts every entry the predicate matches, without counting them as used.
+   * @param predicate Tested against each key and value.
+   */
+  public synchronized void removeIf(BiPredicate<K, V> predicate) {
+    Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<K, V> entry = iterator.next();
+      if (predicate.test(entry.getKey(), entry.getValue())) {
+        iterator.remove();
+        onEvict(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  public synchronized void clear() {
+    entries.forEach(this::onEvict);
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Called with the lock held whenever an entry leaves the cache. Does nothing by default.
+   * @param key The evicted key.
+   * @param value The evicted value.
+   */
+  protected void onEvict(K key, V value) {
+  }
+}
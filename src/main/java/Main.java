@@ -9,6 +9,7 @@ import javafx.scene.control.TextField;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import java.util.Arrays;
 
 public class Main extends Application {
 
@@ -19,7 +20,7 @@ public class Main extends Application {
   public static final String DEFAULT_RESOURCE_PACKAGE = "stylesheets.";
   public static final String DEFAULT_RESOURCE_FOLDER =
       "/" + DEFAULT_RESOURCE_PACKAGE.replace(".", "/");
-  private final XMLParser xmlParser = new XMLParser();
+  private final XMLParser xmlParser = XMLParser.getInstance();
 
   @Override
   public void start(Stage primaryStage) {
@@ -61,7 +62,7 @@ public class Main extends Application {
 
   private void handleLogin(String username, String password, Stage stage) {
     if (xmlParser.validPassword(username, password)) {
-      UI ui = new UI(new User(username), stage);
+      UI ui = new UI(new User(username, xmlParser), stage);
     } else {
       showError("Invalid Username or Password");
     }
@@ -69,11 +70,12 @@ public class Main extends Application {
 
   private void handleSignUp(String username, String password) {
     try {
-      if (!xmlParser.existingUsername(username)) {
-        xmlParser.newUser(username, password);
+      if (xmlParser.newUser(username, password)) {
         showConfirmation("User created successfully. Please login.");
-      } else {
+      } else if (xmlParser.existingUsername(username)) {
         showError("Username Already Exists");
+      } else {
+        showError("Unable to save the new user.");
       }
     } catch (Exception e) {
       showError("An error occurred: " + e.getMessage());
@@ -98,7 +100,16 @@ public class Main extends Application {
     alert.showAndWait();
   }
 
+  /**
+   * Starts the desktop app, or the HTTP service from {@link HeadlessService} when the first
+   * argument is {@code --headless}.
+   * @param args Command line arguments; with {@code --headless}, the rest go to Spring Boot.
+   */
   public static void main(String[] args) {
+    if (args.length > 0 && "--headless".equals(args[0])) {
+      HeadlessService.main(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
     launch(args);
   }
 }
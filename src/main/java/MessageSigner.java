@@ -0,0 +1,163 @@
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.bouncycastle.jcajce.provider.digest.Keccak;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+
+/**
+ * Signs many messages with one key, producing the same signatures as {@link User#signMessage}.
+ * Batches are split across a fork/join pool. Each worker reuses its own Keccak digest and hash
+ * buffers, and signatures are written into one flat array of {@value #SIGNATURE_LENGTH}-byte
+ * slots rather than one array and hex string per message.
+ */
+public class MessageSigner {
+
+  public static final int SIGNATURE_LENGTH = 65;
+  private static final int SPLIT_THRESHOLD = 32;
+  // The message signed is always a 32-byte hash, so the EIP-191 prefix never changes.
+  private static final byte[] PREFIX =
+      "\u0019Ethereum Signed Message:\n32".getBytes(StandardCharsets.US_ASCII);
+  private static final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+  private final ECKeyPair keyPair;
+  private final ForkJoinPool pool;
+
+  /**
+   * @param credentials The wallet to sign with.
+   */
+  public MessageSigner(Credentials credentials) {
+    this(credentials, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param credentials The wallet to sign with.
+   * @param pool The pool batches are split across.
+   */
+  public MessageSigner(Credentials credentials, ForkJoinPool pool) {
+    this.keyPair = credentials.getEcKeyPair();
+    this.pool = pool;
+  }
+
+  /**
+   * Signs one message.
+   * @param message The message to sign.
+   * @return The 65-byte signature: r, s, then v.
+   */
+  public byte[] sign(String message) {
+    byte[] signature = new byte[SIGNATURE_LENGTH];
+    sign(message, signature, 0);
+    return signature;
+  }
+
+  /**
+   * Signs every message in parallel.
+   * @param messages The messages to sign.
+   * @return The signatures, {@value #SIGNATURE_LENGTH} bytes each, in message order.
+   */
+  public byte[] signAll(List<String> messages) {
+    byte[] signatures = new byte[messages.size() * SIGNATURE_LENGTH];
+    signAll(messages, signatures, 0);
+    return signatures;
+  }
+
+  /**
+   * Signs every message of a stream in parallel.
+   * @param messages The messages to sign.
+   * @return The signatures, {@value #SIGNATURE_LENGTH} bytes each, in stream order.
+   */
+  public byte[] signAll(Stream<String> messages) {
+    return signAll(messages.collect(Collectors.toList()));
+  }
+
+  /**
+   * Signs every message in parallel into a caller-supplied array, so a caller signing batch after
+   * batch can reuse one output buffer.
+   * @param messages The messages to sign.
+   * @param out Receives the signatures, {@value #SIGNATURE_LENGTH} bytes each, in message order.
+   * @param offset Where in {@code out} the first signature goes.
+   */
+  public void signAll(List<String> messages, byte[] out, int offset) {
+    if (offset < 0 || out.length - offset < (long) messages.size() * SIGNATURE_LENGTH) {
+      throw new IllegalArgumentException("Output buffer too small for " + messages.size() + " signatures");
+    }
+    pool.invoke(new SignTask(messages, 0, messages.size(), out, offset));
+  }
+
+  /**
+   * @param signatures Signatures from {@link #signAll}.
+   * @param index The position of the signature in the batch.
+   * @return That signature as the 0x-prefixed hex string {@link User#signMessage} returns.
+   */
+  public static String toHex(byte[] signatures, int index) {
+    return Numeric.toHexString(signatures, index * SIGNATURE_LENGTH, SIGNATURE_LENGTH, true);
+  }
+
+  private void sign(String message, byte[] out, int offset) {
+    Buffers local = buffers.get();
+    Sign.SignatureData signature = Sign.signMessage(local.prefixedHash(message.getBytes()), keyPair, false);
+    System.arraycopy(signature.getR(), 0, out, offset, 32);
+    System.arraycopy(signature.getS(), 0, out, offset + 32, 32);
+    out[offset + 64] = signature.getV().length > 0 ? signature.getV()[0] : 0;
+  }
+
+  private class SignTask extends RecursiveAction {
+
+    private final List<String> messages;
+    private final int from;
+    private final int to;
+    private final byte[] out;
+    private final int offset;
+
+    SignTask(List<String> messages, int from, int to, byte[] out, int offset) {
+      this.messages = messages;
+      this.from = from;
+      this.to = to;
+      this.out = out;
+      this.offset = offset;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= SPLIT_THRESHOLD) {
+        for (int i = from; i < to; i++) {
+          sign(messages.get(i), out, offset + i * SIGNATURE_LENGTH);
+        }
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new SignTask(messages, from, middle, out, offset),
+          new SignTask(messages, middle, to, out, offset));
+    }
+  }
+
+  /**
+   * Per-thread digest and hash buffers.
+   */
+  private static class Buffers {
+
+    private final Keccak.Digest256 keccak = new Keccak.Digest256();
+    private final byte[] hash = new byte[32];
+    private final byte[] prefixedHash = new byte[32];
+
+    // keccak256(PREFIX || keccak256(message)), as Sign.signPrefixedMessage computes it.
+    byte[] prefixedHash(byte[] message) {
+      try {
+        keccak.update(message);
+        keccak.digest(hash, 0, hash.length);
+        keccak.update(PREFIX);
+        keccak.update(hash);
+        keccak.digest(prefixedHash, 0, prefixedHash.length);
+        return prefixedHash;
+      } catch (DigestException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,728 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.LongConsumer;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.crypto.WalletUtils;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGetTransactionCount;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.tx.Transfer;
+import org.web3j.utils.Numeric;
+
+/**
+ * Pays a list of addresses from one wallet without waiting for each transfer to be mined. Nonces
+ * are assigned locally from a single {@code eth_getTransactionCount} read, transfers are signed
+ * offline with fees from the shared {@link FeeOracle}, and at most {@code window} of them are
+ * unmined at any time.
+ * <p>
+ * Every signed transaction is written to a checkpoint file and forced to disk before it is
+ * broadcast, so a run that crashes can be started again with the same list and checkpoint: what
+ * was mined is skipped, what was signed is broadcast again as the same transaction, and nothing is
+ * paid twice. A transfer that stays unmined for {@code replaceAfterMillis} is replaced at the same
+ * nonce with fees raised by an eighth. If the node rejects a new transfer for a reason that cannot
+ * change, such as insufficient funds, it is reported as failed and its nonce goes to the next
+ * transfer, or to a zero-value transfer to the sender if none is left, so later nonces are not
+ * stuck behind a gap. Other rejections and failed reads are retried on the next pass.
+ * <p>
+ * A transfer is only signed again at a new nonce once its nonce has been used for
+ * {@value #REQUEUE_CONFIRMATIONS} blocks and the node has no receipt for any of its attempts.
+ */
+public class PayoutEngine {
+
+  private static final byte HEADER = 1;
+  private static final byte SIGNED = 2;
+  private static final byte MINED = 3;
+  private static final byte FAILED = 4;
+  private static final byte REQUEUED = 5;
+  private static final int REQUEUE_CONFIRMATIONS = 12;
+  private static final int MAX_CONSECUTIVE_FAILURES = 10;
+
+  private final Web3j web3;
+  private final Credentials sender;
+  private final FeeOracle feeOracle;
+  private final ChainHeadTracker headTracker;
+  private final int window;
+  private final long replaceAfterMillis;
+  private final long pollMillis;
+  private final Object headLock = new Object();
+  private long lastSeenHead = -1;
+  private FileChannel checkpoint;
+
+  /**
+   * @param web3 The RPC client to send through.
+   * @param sender The paying wallet.
+   * @param feeOracle Prices the transfers.
+   * @param headTracker Announces new blocks, which is when mined transfers are looked for.
+   * @param window The most transfers left unmined at once.
+   * @param replaceAfterMillis How long a transfer may stay unmined before it is replaced.
+   * @param pollMillis How often to check for mined transfers if no new block is announced.
+   */
+  public PayoutEngine(Web3j web3, Credentials sender, FeeOracle feeOracle, ChainHeadTracker headTracker,
+      int window, long replaceAfterMillis, long pollMillis) {
+    this.web3 = web3;
+    this.sender = sender;
+    this.feeOracle = feeOracle;
+    this.headTracker = headTracker;
+    this.window = window;
+    this.replaceAfterMillis = replaceAfterMillis;
+    this.pollMillis = pollMillis;
+  }
+
+  /**
+   * Creates an engine for the given client, configured from {@code payouts.window} (16),
+   * {@code payouts.replaceAfterMillis} (120000) and {@code payouts.pollMillis} (2000).
+   * @param web3 The RPC client to send through.
+   * @param sender The paying wallet.
+   * @return The engine.
+   */
+  public static PayoutEngine forClient(Web3j web3, Credentials sender) {
+    return new PayoutEngine(web3, sender, FeeOracle.forClient(web3), ChainHeadTracker.forClient(web3),
+        Integer.getInteger("payouts.window", 16), Long.getLong("payouts.replaceAfterMillis", 120_000),
+        Long.getLong("payouts.pollMillis", 2000));
+  }
+
+  /**
+   * Reads payouts from CSV lines of {@code address,wei}. Blank lines, lines starting with
+   * {@code #} and a header line whose amount is not a number are skipped.
+   * @param reader The CSV text.
+   * @return The payouts, in file order.
+   * @throws IOException If the text cannot be read or a line is not a valid payout.
+   */
+  public static List<Payout> readCsv(Reader reader) throws IOException {
+    List<Payout> payouts = new ArrayList<>();
+    BufferedReader lines = new BufferedReader(reader);
+    String line;
+    int lineNumber = 0;
+    while ((line = lines.readLine()) != null) {
+      lineNumber++;
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split(",");
+      if (fields.length != 2) {
+        throw new IOException("Line " + lineNumber + ": expected address,wei");
+      }
+      String address = fields[0].trim();
+      String amount = fields[1].trim();
+      if (payouts.isEmpty() && !amount.isEmpty() && !Character.isDigit(amount.charAt(0))) {
+        continue;
+      }
+      if (!WalletUtils.isValidAddress(address)) {
+        throw new IOException("Line " + lineNumber + ": invalid address " + address);
+      }
+      try {
+        payouts.add(new Payout(address, new BigInteger(amount)));
+      } catch (NumberFormatException e) {
+        throw new IOException("Line " + lineNumber + ": invalid amount " + amount);
+      }
+    }
+    return payouts;
+  }
+
+  /**
+   * Pays every payout in the list, resuming from the checkpoint if it is from an earlier run of
+   * the same list, and returns once each one is mined or has failed.
+   * @param payouts What to pay. Must be the same list, in the same order, when resuming.
+   * @param checkpointFile Where progress is recorded.
+   * @return One outcome per payout, in list order.
+   * @throws IOException If the checkpoint belongs to another list, the node cannot be reached, or
+   *     the node keeps rejecting the transfer that would fill a nonce left by a rejected payout.
+   * @throws InterruptedException If the calling thread is interrupted; the run can be resumed.
+   */
+  public List<Outcome> run(List<Payout> payouts, File checkpointFile) throws IOException, InterruptedException {
+    List<Entry> entries = new ArrayList<>();
+    for (int i = 0; i < payouts.size(); i++) {
+      entries.add(new Entry(i, payouts.get(i)));
+    }
+    LongConsumer onNewHead = this::onNewHead;
+    headTracker.addListener(onNewHead);
+    try {
+      checkpoint = FileChannel.open(checkpointFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      replay(checkpointFile, entries, runId(payouts));
+      pay(entries);
+    } finally {
+      headTracker.removeListener(onNewHead);
+      if (checkpoint != null) {
+        checkpoint.close();
+      }
+    }
+    List<Outcome> outcomes = new ArrayList<>();
+    for (int i = 0; i < payouts.size(); i++) {
+      Entry entry = entries.get(i);
+      outcomes.add(new Outcome(entry.payout, entry.minedHash, entry.error));
+    }
+    return outcomes;
+  }
+
+  private void pay(List<Entry> entries) throws IOException, InterruptedException {
+    Deque<Entry> queue = new ArrayDeque<>();
+    List<Entry> inFlight = new ArrayList<>();
+    long maxNonce = -1;
+    for (Entry entry : entries) {
+      if (entry.isDone()) {
+        continue;
+      }
+      if (entry.attempts.isEmpty()) {
+        queue.add(entry);
+      } else {
+        // Signed before the restart: send the same transaction again, never a new one.
+        entry.needsBroadcast = true;
+        entry.accepted = true;
+        inFlight.add(entry);
+        maxNonce = Math.max(maxNonce, entry.nonce);
+      }
+    }
+    long nextNonce = -1;
+    TreeSet<Long> freeNonces = new TreeSet<>();
+    int failures = 0;
+    int fillerRejections = 0;
+    String fillerError = null;
+
+    while (!queue.isEmpty() || !inFlight.isEmpty()) {
+      try {
+        if (nextNonce < 0) {
+          nextNonce = Math.max(transactionCount(DefaultBlockParameterName.PENDING), maxNonce + 1);
+        }
+        // Refill nonces given up by rejected transfers before any new ones, so later nonces are not stuck.
+        while (inFlight.size() < window && (!queue.isEmpty() || !freeNonces.isEmpty())) {
+          // Read before taking an entry, so a failed read leaves the queue as it was.
+          FeeOracle.Fees fees = feeOracle.fees();
+          feeOracle.chainId();
+          Entry entry = queue.poll();
+          if (entry == null) {
+            long gap = freeNonces.first();
+            if (inFlight.stream().noneMatch(pending -> pending.nonce > gap)) {
+              // Nothing is waiting behind the gap, so the nonces are simply handed out again later.
+              nextNonce = gap;
+              freeNonces.clear();
+              break;
+            }
+            entry = new Entry(entries.size(), new Payout(sender.getAddress(), BigInteger.ZERO));
+            entry.filler = true;
+            entries.add(entry);
+          }
+          Long free = freeNonces.pollFirst();
+          entry.nonce = free != null ? free : nextNonce++;
+          try {
+            sign(entry, fees.getPriorityFee(), fees.getMaxFee());
+          } catch (IOException e) {
+            freeNonces.add(entry.nonce);
+            entry.reset();
+            if (!entry.filler) {
+              queue.addFirst(entry);
+            }
+            throw e;
+          }
+          if (!broadcast(entry)) {
+            freeNonces.add(entry.nonce);
+            if (entry.filler) {
+              // The next filler would be refused straight away too, e.g. for want of gas money.
+              fillerRejections++;
+              fillerError = entry.error;
+              break;
+            }
+          } else {
+            if (entry.filler) {
+              fillerRejections = 0;
+            }
+            inFlight.add(entry);
+          }
+        }
+        for (Iterator<Entry> it = inFlight.iterator(); it.hasNext(); ) {
+          Entry entry = it.next();
+          if (entry.needsBroadcast && !broadcast(entry)) {
+            freeNonces.add(entry.nonce);
+            it.remove();
+          }
+        }
+        if (!inFlight.isEmpty()) {
+          awaitNextHead();
+          collectMined(inFlight, queue);
+          replaceStuck(inFlight);
+        }
+        failures = 0;
+      } catch (IOException e) {
+        // Nodes fail reads now and then, e.g. when rate limited; only give up if they keep failing.
+        if (++failures >= MAX_CONSECUTIVE_FAILURES) {
+          throw e;
+        }
+        awaitNextHead();
+      }
+      if (fillerRejections >= MAX_CONSECUTIVE_FAILURES) {
+        throw new IOException("Payouts after nonce " + freeNonces.first()
+            + " cannot be mined; the node rejects filling it: " + fillerError);
+      }
+    }
+  }
+
+  // Looks up which transfer took each nonce the chain has moved past.
+  private void collectMined(List<Entry> inFlight, Deque<Entry> queue) throws IOException {
+    long minedCount = transactionCount(DefaultBlockParameterName.LATEST);
+    List<Entry> settled = new ArrayList<>();
+    for (Entry entry : inFlight) {
+      if (entry.nonce < minedCount) {
+        settled.add(entry);
+      }
+    }
+    if (settled.isEmpty()) {
+      return;
+    }
+    long head = headTracker.head();
+    Map<String, TransactionReceipt> receipts = receipts(settled);
+    for (Entry entry : settled) {
+      TransactionReceipt mined = null;
+      boolean anyReceipt = false;
+      for (Attempt attempt : entry.attempts) {
+        TransactionReceipt receipt = receipts.get(attempt.hash);
+        if (receipt != null) {
+          anyReceipt = true;
+          if (receipt.getBlockNumberRaw() != null) {
+            mined = receipt;
+            break;
+          }
+        }
+      }
+      if (entry.settledAt < 0) {
+        entry.settledAt = head;
+      }
+      if (mined != null) {
+        entry.minedHash = mined.getTransactionHash();
+        if (!mined.isStatusOK()) {
+          entry.error = "Transaction has failed with status: " + mined.getStatus();
+        }
+        append(mined(entry.index, entry.minedHash, entry.error), false);
+        inFlight.remove(entry);
+      } else if (!anyReceipt && head >= 0 && entry.settledAt >= 0
+          && head - entry.settledAt >= REQUEUE_CONFIRMATIONS) {
+        // Something else used the nonce long enough ago that a receipt of ours would show by now,
+        // and every transfer of ours at it is in the checkpoint, so paying again is safe.
+        append(indexRecord(REQUEUED, entry.index), true);
+        entry.reset();
+        inFlight.remove(entry);
+        queue.addFirst(entry);
+      }
+    }
+    checkpoint.force(false);
+  }
+
+  private void replaceStuck(List<Entry> inFlight) throws IOException {
+    long now = System.currentTimeMillis();
+    for (Entry entry : inFlight) {
+      // Only bump what the node has accepted; an unsent attempt is sent again as it is.
+      if (entry.needsBroadcast || entry.sentAt == 0 || now - entry.sentAt < replaceAfterMillis) {
+        continue;
+      }
+      Attempt last = entry.attempts.get(entry.attempts.size() - 1);
+      FeeOracle.Fees fees = feeOracle.fees();
+      // Nodes only accept a replacement that raises both fees by at least a tenth.
+      BigInteger tip = bump(last.tip).max(fees.getPriorityFee());
+      BigInteger maxFee = bump(last.maxFee).max(fees.getMaxFee()).max(tip);
+      sign(entry, tip, maxFee);
+      broadcast(entry);
+    }
+  }
+
+  private static BigInteger bump(BigInteger fee) {
+    return fee.add(fee.shiftRight(3)).add(BigInteger.ONE);
+  }
+
+  private void sign(Entry entry, BigInteger tip, BigInteger maxFee) throws IOException {
+    RawTransaction transaction = RawTransaction.createEtherTransaction(feeOracle.chainId(),
+        BigInteger.valueOf(entry.nonce), Transfer.GAS_LIMIT, entry.payout.getAddress(), entry.payout.getWei(),
+        tip, maxFee);
+    byte[] raw = TransactionEncoder.signMessage(transaction, sender);
+    Attempt attempt = new Attempt(entry.nonce, tip, maxFee, raw);
+    // Written and forced before the broadcast, so a crash can never lose a transfer that was sent.
+    append(signed(entry.index, attempt), true);
+    entry.attempts.add(attempt);
+    entry.needsBroadcast = true;
+  }
+
+  // Sends the newest attempt. Returns false only if a transfer the node never accepted was
+  // rejected for good, which is then recorded as failed. After any other failure the attempt is
+  // left to be sent again on the next pass.
+  private boolean broadcast(Entry entry) throws IOException {
+    Attempt attempt = entry.attempts.get(entry.attempts.size() - 1);
+    EthSendTransaction sent;
+    try {
+      sent = AppMetrics.time("wallet.rpc", "method", "eth_sendRawTransaction",
+          () -> web3.ethSendRawTransaction(Numeric.toHexString(attempt.raw)).send());
+    } catch (IOException e) {
+      // It may or may not have reached the node; sending the same bytes again is harmless.
+      return true;
+    }
+    String message = sent.hasError() ? sent.getError().getMessage().toLowerCase() : null;
+    if (message == null || message.contains("already known") || message.contains("known transaction")
+        || message.contains("nonce too low")) {
+      // Accepted, sent before, or the nonce is settled; collectMined works out which.
+      markSent(entry);
+      return true;
+    }
+    if (entry.attempts.size() > 1) {
+      // A rejected replacement leaves the earlier attempt pending; try again after another wait.
+      entry.attempts.remove(entry.attempts.size() - 1);
+      markSent(entry);
+      return true;
+    }
+    if (entry.accepted) {
+      // Sent before a restart; it may still be pending, which collectMined works out.
+      markSent(entry);
+      return true;
+    }
+    if (!isPermanent(message)) {
+      return true;
+    }
+    entry.error = sent.getError().getMessage();
+    append(failed(entry.index, entry.error), true);
+    entry.attempts.clear();
+    entry.needsBroadcast = false;
+    return false;
+  }
+
+  private static void markSent(Entry entry) {
+    entry.needsBroadcast = false;
+    entry.accepted = true;
+    entry.sentAt = System.currentTimeMillis();
+  }
+
+  // Rejections that sending the same transaction again cannot fix.
+  private static boolean isPermanent(String message) {
+    return message.contains("insufficient funds") || message.contains("invalid sender")
+        || message.contains("intrinsic gas too low") || message.contains("exceeds block gas limit")
+        || message.contains("invalid signature");
+  }
+
+  private void onNewHead(long head) {
+    synchronized (headLock) {
+      headLock.notifyAll();
+    }
+  }
+
+  private void awaitNextHead() throws InterruptedException {
+    synchronized (headLock) {
+      if (headTracker.head() == lastSeenHead) {
+        headLock.wait(pollMillis);
+      }
+      lastSeenHead = headTracker.head();
+    }
+  }
+
+  private long transactionCount(DefaultBlockParameterName block) throws IOException {
+    EthGetTransactionCount count = web3.ethGetTransactionCount(sender.getAddress(), block).send();
+    if (count.hasError()) {
+      throw new IOException("eth_getTransactionCount failed: " + count.getError().getMessage());
+    }
+    return count.getTransactionCount().longValueExact();
+  }
+
+  // Every receipt the node has for an attempt, including ones not yet in a block.
+  private Map<String, TransactionReceipt> receipts(List<Entry> entries) throws IOException {
+    BatchRequest batch = web3.newBatch();
+    for (Entry entry : entries) {
+      for (Attempt attempt : entry.attempts) {
+        batch.add(web3.ethGetTransactionReceipt(attempt.hash));
+      }
+    }
+    Map<String, TransactionReceipt> receipts = new HashMap<>();
+    for (Response<?> response : batch.send().getResponses()) {
+      // An error is not a missing receipt: a lagging or rate-limited node must not cause a requeue.
+      if (response.hasError()) {
+        throw new IOException("eth_getTransactionReceipt failed: " + response.getError().getMessage());
+      }
+      ((EthGetTransactionReceipt) response).getTransactionReceipt()
+          .ifPresent(receipt -> receipts.put(receipt.getTransactionHash().toLowerCase(), receipt));
+    }
+    return receipts;
+  }
+
+  private static byte[] runId(List<Payout> payouts) {
+    StringBuilder list = new StringBuilder();
+    for (Payout payout : payouts) {
+      list.append(payout.getAddress().toLowerCase()).append(',').append(payout.getWei()).append('\n');
+    }
+    return Hash.sha3(list.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  // Rebuilds each payout's state from the checkpoint, or starts one for this list.
+  private void replay(File file, List<Entry> entries, byte[] runId) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())));
+    long validLength = 0;
+    byte[] body;
+    boolean headerSeen = false;
+    while ((body = RecordLog.readRecord(in)) != null) {
+      validLength += body.length + RecordLog.FRAME_BYTES;
+      DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+      byte type = record.readByte();
+      if (type == HEADER) {
+        byte[] id = new byte[32];
+        record.readFully(id);
+        String address = record.readUTF();
+        if (!Arrays.equals(id, runId) || !address.equalsIgnoreCase(sender.getAddress())) {
+          throw new IOException("Checkpoint " + file + " belongs to a different payout list or wallet");
+        }
+        headerSeen = true;
+        continue;
+      }
+      int index = record.readInt();
+      while (index >= entries.size()) {
+        Entry filler = new Entry(entries.size(), new Payout(sender.getAddress(), BigInteger.ZERO));
+        filler.filler = true;
+        entries.add(filler);
+      }
+      Entry entry = entries.get(index);
+      switch (type) {
+        case SIGNED -> {
+          Attempt attempt = new Attempt(record.readLong(), readBigInteger(record), readBigInteger(record),
+              readBytes(record, record.readInt()));
+          entry.nonce = attempt.nonce;
+          entry.attempts.add(attempt);
+        }
+        case MINED -> {
+          entry.minedHash = record.readUTF();
+          entry.error = record.readBoolean() ? record.readUTF() : null;
+        }
+        case FAILED -> entry.error = record.readUTF();
+        case REQUEUED -> entry.reset();
+        default -> throw new IOException("Unknown checkpoint record " + type);
+      }
+    }
+    checkpoint.truncate(validLength);
+    checkpoint.position(validLength);
+    if (!headerSeen) {
+      ByteArrayOutputStream header = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(header);
+      out.writeByte(HEADER);
+      out.write(runId);
+      out.writeUTF(sender.getAddress());
+      append(RecordLog.frame(header.toByteArray()), true);
+    }
+  }
+
+  private void append(byte[] record, boolean force) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(record);
+    while (buffer.hasRemaining()) {
+      checkpoint.write(buffer);
+    }
+    if (force) {
+      checkpoint.force(false);
+    }
+  }
+
+  private static byte[] signed(int index, Attempt attempt) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(body);
+    out.writeByte(SIGNED);
+    out.writeInt(index);
+    out.writeLong(attempt.nonce);
+    writeBigInteger(out, attempt.tip);
+    writeBigInteger(out, attempt.maxFee);
+    out.writeInt(attempt.raw.length);
+    out.write(attempt.raw);
+    return RecordLog.frame(body.toByteArray());
+  }
+
+  private static byte[] mined(int index, String hash, String error) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(body);
+    out.writeByte(MINED);
+    out.writeInt(index);
+    out.writeUTF(hash);
+    out.writeBoolean(error != null);
+    if (error != null) {
+      out.writeUTF(error);
+    }
+    return RecordLog.frame(body.toByteArray());
+  }
+
+  private static byte[] failed(int index, String error) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(body);
+    out.writeByte(FAILED);
+    out.writeInt(index);
+    out.writeUTF(error);
+    return RecordLog.frame(body.toByteArray());
+  }
+
+  private static byte[] indexRecord(byte type, int index) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(body);
+    out.writeByte(type);
+    out.writeInt(index);
+    return RecordLog.frame(body.toByteArray());
+  }
+
+  private static void writeBigInteger(DataOutputStream out, BigInteger value) throws IOException {
+    byte[] bytes = value.toByteArray();
+    out.writeByte(bytes.length);
+    out.write(bytes);
+  }
+
+  private static BigInteger readBigInteger(DataInputStream in) throws IOException {
+    return new BigInteger(readBytes(in, in.readUnsignedByte()));
+  }
+
+  private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  /**
+   * One transfer to make.
+   */
+  public static final class Payout {
+
+    private final String address;
+    private final BigInteger wei;
+
+    /**
+     * @param address The recipient.
+     * @param wei The amount, in wei.
+     */
+    public Payout(String address, BigInteger wei) {
+      this.address = address;
+      this.wei = wei;
+    }
+
+    /**
+     * @return The recipient.
+     */
+    public String getAddress() {
+      return address;
+    }
+
+    /**
+     * @return The amount, in wei.
+     */
+    public BigInteger getWei() {
+      return wei;
+    }
+  }
+
+  /**
+   * How one payout ended.
+   */
+  public static final class Outcome {
+
+    private final Payout payout;
+    private final String transactionHash;
+    private final String error;
+
+    Outcome(Payout payout, String transactionHash, String error) {
+      this.payout = payout;
+      this.transactionHash = transactionHash;
+      this.error = error;
+    }
+
+    /**
+     * @return The payout.
+     */
+    public Payout getPayout() {
+      return payout;
+    }
+
+    /**
+     * @return Whether the transfer was mined and succeeded.
+     */
+    public boolean isPaid() {
+      return transactionHash != null && error == null;
+    }
+
+    /**
+     * @return The hash of the mined transfer, or null if none was mined.
+     */
+    public String getTransactionHash() {
+      return transactionHash;
+    }
+
+    /**
+     * @return Why the payout failed, or null if it was paid.
+     */
+    public String getError() {
+      return error;
+    }
+  }
+
+  private static final class Entry {
+
+    private final int index;
+    private final Payout payout;
+    private final List<Attempt> attempts = new ArrayList<>();
+    private long nonce = -1;
+    private boolean needsBroadcast;
+    // A zero-value transfer to the sender that only fills a nonce gap.
+    private boolean filler;
+    private boolean accepted;
+    private long sentAt;
+    private long settledAt = -1;
+    private String minedHash;
+    private String error;
+
+    private Entry(int index, Payout payout) {
+      this.index = index;
+      this.payout = payout;
+    }
+
+    private boolean isDone() {
+      return minedHash != null || error != null;
+    }
+
+    private void reset() {
+      attempts.clear();
+      nonce = -1;
+      needsBroadcast = false;
+      accepted = false;
+      sentAt = 0;
+      settledAt = -1;
+    }
+  }
+
+  // One signed transaction for a payout; replacements add more at the same nonce.
+  private static final class Attempt {
+
+    private final long nonce;
+    private final BigInteger tip;
+    private final BigInteger maxFee;
+    private final byte[] raw;
+    private final String hash;
+
+    private Attempt(long nonce, BigInteger tip, BigInteger maxFee, byte[] raw) {
+      this.nonce = nonce;
+      this.tip = tip;
+      this.maxFee = maxFee;
+      this.raw = raw;
+      hash = Numeric.toHexString(Hash.sha3(raw)).toLowerCase();
+    }
+  }
+}
@@ -0,0 +1,102 @@
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+
+/**
+ * A submitted transaction whose receipt is being followed by a {@link ReceiptTracker}. Callers
+ * wait on futures instead of holding a thread while the receipt is polled.
+ */
+public class PendingTransaction {
+
+  private final String transactionHash;
+  private final ReceiptTracker tracker;
+  private final CompletableFuture<TransactionReceipt> included = new CompletableFuture<>();
+  private final Map<Integer, CompletableFuture<TransactionReceipt>> confirmations = new TreeMap<>();
+  private final long submittedAt = System.currentTimeMillis();
+  private long pollIntervalMillis;
+  private long nextPollAt;
+
+  PendingTransaction(String transactionHash, ReceiptTracker tracker, long pollIntervalMillis) {
+    this.transactionHash = transactionHash;
+    this.tracker = tracker;
+    this.pollIntervalMillis = pollIntervalMillis;
+    this.nextPollAt = submittedAt;
+  }
+
+  /**
+   * @return The hash returned by {@code eth_sendRawTransaction}.
+   */
+  public String getTransactionHash() {
+    return transactionHash;
+  }
+
+  /**
+   * @return A future completed with the receipt once the transaction is mined, or exceptionally
+   *     if it is not mined before the tracker's timeout.
+   */
+  public CompletableFuture<TransactionReceipt> included() {
+    return included;
+  }
+
+  /**
+   * @param blocks The number of blocks, counting the one that includes the transaction.
+   * @return A future completed with the receipt once the transaction has that many confirmations.
+   */
+  public CompletableFuture<TransactionReceipt> confirmed(int blocks) {
+    if (blocks <= 1) {
+      return included;
+    }
+    CompletableFuture<TransactionReceipt> future;
+    synchronized (this) {
+      future = confirmations.computeIfAbsent(blocks, n -> new CompletableFuture<>());
+    }
+    included.whenComplete((receipt, error) -> {
+      if (error != null) {
+        future.completeExceptionally(error);
+      } else {
+        tracker.watchConfirmations(this);
+      }
+    });
+    return future;
+  }
+
+  long submittedAt() {
+    return submittedAt;
+  }
+
+  boolean isDue(long now) {
+    return now >= nextPollAt;
+  }
+
+  void backOff(long now, long maxIntervalMillis) {
+    pollIntervalMillis = Math.min(maxIntervalMillis, pollIntervalMillis * 3 / 2);
+    nextPollAt = now + pollIntervalMillis;
+  }
+
+  /**
+   * Completes every confirmation future the given head satisfies.
+   * @return Whether confirmation futures are still waiting.
+   */
+  synchronized boolean updateConfirmations(long head) {
+    TransactionReceipt receipt = included.getNow(null);
+    if (receipt == null) {
+      return !confirmations.isEmpty();
+    }
+    BigInteger minedIn = receipt.getBlockNumber();
+    long depth = head - minedIn.longValue() + 1;
+    Iterator<Map.Entry<Integer, CompletableFuture<TransactionReceipt>>> waiting =
+        confirmations.entrySet().iterator();
+    while (waiting.hasNext()) {
+      Map.Entry<Integer, CompletableFuture<TransactionReceipt>> entry = waiting.next();
+      if (entry.getKey() > depth) {
+        break;
+      }
+      entry.getValue().complete(receipt);
+      waiting.remove();
+    }
+    return !confirmations.isEmpty();
+  }
+}
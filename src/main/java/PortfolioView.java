@@ -0,0 +1,231 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.util.Duration;
+import org.web3j.utils.Convert;
+
+/**
+ * Table of every wallet the user owns, with its address, balance and number of unmined
+ * transactions. Addresses load in the background, then balances arrive from the shared
+ * {@link BalanceWatcher} and pending counts from the user as they change. Updates from those
+ * threads go through an {@link UpdateBatcher}, so the FX thread applies them at most once per
+ * frame however fast they come in. The table only creates cells for visible rows, and the search
+ * box filters by wallet name or address.
+ */
+public class PortfolioView {
+
+  private static final long FRAME_MILLIS = 16;
+  private static final Duration SEARCH_DELAY = Duration.millis(150);
+
+  private final User user;
+  private final VBox pane = new VBox(10);
+  private final Label statusLabel = new Label("Loading wallets...");
+  private final TextField searchInput = new TextField();
+  private final ObservableList<WalletRow> rows = FXCollections.observableArrayList();
+  private final FilteredList<WalletRow> filteredRows = new FilteredList<>(rows);
+  private final TableView<WalletRow> table = new TableView<>();
+  // Only touched on the FX thread.
+  private final Map<String, WalletRow> rowsByAddress = new HashMap<>();
+  private final UpdateBatcher<String, RowUpdate> updates =
+      new UpdateBatcher<>(Platform::runLater, RowUpdate::then, this::applyUpdates, FRAME_MILLIS);
+  private final BalanceWatcher.Listener balanceListener = this::onBalancesChanged;
+  private final User.PendingListener pendingListener = this::onPendingCountChanged;
+  private volatile boolean closed;
+
+  public PortfolioView(User user) {
+    this.user = user;
+    createTable();
+    createSearch();
+    VBox.setVgrow(table, Priority.ALWAYS);
+    pane.getChildren().addAll(new Label("Portfolio:"), searchInput, table, statusLabel);
+    loadWallets();
+  }
+
+  /**
+   * @return The view's root node.
+   */
+  public Pane getPane() {
+    return pane;
+  }
+
+  /**
+   * Stops receiving balance and pending-count updates. Call when the view is left.
+   */
+  public void close() {
+    closed = true;
+    user.stopWatchingBalances(balanceListener);
+    user.stopWatchingPendingCounts(pendingListener);
+  }
+
+  private void createTable() {
+    TableColumn<WalletRow, String> nameColumn = new TableColumn<>("Wallet");
+    nameColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().name));
+    TableColumn<WalletRow, String> addressColumn = new TableColumn<>("Address");
+    addressColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().address));
+    TableColumn<WalletRow, BigInteger> balanceColumn = new TableColumn<>("Balance (ETH)");
+    balanceColumn.setCellValueFactory(cell -> cell.getValue().balance);
+    balanceColumn.setCellFactory(column -> new TableCell<>() {
+      @Override
+      protected void updateItem(BigInteger wei, boolean empty) {
+        super.updateItem(wei, empty);
+        if (empty) {
+          setText(null);
+        } else if (wei == null) {
+          setText("loading...");
+        } else {
+          setText(Convert.fromWei(new BigDecimal(wei), Convert.Unit.ETHER).stripTrailingZeros().toPlainString());
+        }
+      }
+    });
+    TableColumn<WalletRow, Number> pendingColumn = new TableColumn<>("Pending");
+    pendingColumn.setCellValueFactory(cell -> cell.getValue().pending);
+
+    List<TableColumn<WalletRow, ?>> columns = List.of(nameColumn, addressColumn, balanceColumn, pendingColumn);
+    table.getColumns().setAll(columns);
+    table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+    table.setPlaceholder(new Label("No wallets"));
+    SortedList<WalletRow> sortedRows = new SortedList<>(filteredRows);
+    sortedRows.comparatorProperty().bind(table.comparatorProperty());
+    table.setItems(sortedRows);
+  }
+
+  // Filters once typing pauses rather than on every key, which matters with thousands of rows.
+  private void createSearch() {
+    searchInput.setPromptText("Search by wallet name or address");
+    PauseTransition pause = new PauseTransition(SEARCH_DELAY);
+    pause.setOnFinished(event -> applySearch(searchInput.getText()));
+    searchInput.textProperty().addListener((observable, oldText, newText) -> pause.playFromStart());
+  }
+
+  private void applySearch(String text) {
+    String query = text == null ? "" : text.trim().toLowerCase();
+    if (query.isEmpty()) {
+      filteredRows.setPredicate(null);
+    } else {
+      filteredRows.setPredicate(row -> row.searchText.contains(query));
+    }
+    updateStatus();
+  }
+
+  private void loadWallets() {
+    // Listening before the counts are read means no change falls between the two; changes that
+    // arrive before the rows exist are already in the counts.
+    user.watchPendingCounts(pendingListener);
+    BackgroundExecutor.submit(user::getWalletAddresses).whenComplete((addresses, error) -> {
+      if (error != null) {
+        Platform.runLater(() -> statusLabel.setText("Unable to load wallets: " + error.getMessage()));
+        return;
+      }
+      Platform.runLater(() -> {
+        if (closed) {
+          return;
+        }
+        Map<String, Integer> pendingCounts = user.getPendingCounts();
+        List<WalletRow> loaded = new ArrayList<>(addresses.size());
+        addresses.forEach((name, address) -> {
+          WalletRow row = new WalletRow(name, address);
+          row.pending.set(pendingCounts.getOrDefault(row.key, 0));
+          rowsByAddress.put(row.key, row);
+          loaded.add(row);
+        });
+        rows.setAll(loaded);
+        updateStatus();
+        watch();
+      });
+    });
+  }
+
+  // Closing may happen at any point while this runs, so the listener is removed again if it did.
+  private void watch() {
+    BackgroundExecutor.submit(() -> {
+      if (!closed) {
+        user.watchBalances(balanceListener);
+        if (closed) {
+          user.stopWatchingBalances(balanceListener);
+        }
+      }
+      return null;
+    }).whenComplete((ignored, error) -> {
+      if (error != null) {
+        Platform.runLater(() -> statusLabel.setText("Unable to watch balances: " + error.getMessage()));
+      }
+    });
+  }
+
+  private void onBalancesChanged(Map<String, BigInteger> balances, long block) {
+    Map<String, RowUpdate> changes = new HashMap<>();
+    balances.forEach((address, wei) -> changes.put(address, new RowUpdate(wei, null)));
+    updates.offerAll(changes);
+  }
+
+  private void onPendingCountChanged(String address, int count) {
+    updates.offer(address, new RowUpdate(null, count));
+  }
+
+  private void applyUpdates(Map<String, RowUpdate> batch) {
+    batch.forEach((address, update) -> {
+      WalletRow row = rowsByAddress.get(address);
+      if (row == null) {
+        return;
+      }
+      if (update.balance != null) {
+        row.balance.set(update.balance);
+      }
+      if (update.pending != null) {
+        row.pending.set(update.pending);
+      }
+    });
+  }
+
+  private void updateStatus() {
+    statusLabel.setText(filteredRows.size() == rows.size()
+        ? rows.size() + " wallets"
+        : filteredRows.size() + " of " + rows.size() + " wallets");
+  }
+
+  private static final class WalletRow {
+
+    private final String name;
+    private final String address;
+    private final String key;
+    private final String searchText;
+    private final SimpleObjectProperty<BigInteger> balance = new SimpleObjectProperty<>();
+    private final SimpleIntegerProperty pending = new SimpleIntegerProperty();
+
+    private WalletRow(String name, String address) {
+      this.name = name;
+      this.address = address;
+      key = address.toLowerCase();
+      searchText = (name + " " + key).toLowerCase();
+    }
+  }
+
+  // A change to one row; null fields are left as they are.
+  private record RowUpdate(BigInteger balance, Integer pending) {
+
+    private RowUpdate then(RowUpdate newer) {
+      return new RowUpdate(newer.balance != null ? newer.balance : balance,
+          newer.pending != null ? newer.pending : pending);
+    }
+  }
+}
@@ -0,0 +1,152 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.exceptions.TransactionException;
+
+/**
+ * Follows the receipts of every submitted transaction in the process from one scheduler thread.
+ * Each tick sends the receipt lookups that are due as JSON-RPC batches, and a transaction that
+ * is still pending is polled less and less often. Confirmation counts are driven by the shared
+ * {@link ChainHeadTracker}. Tuned with {@code receipts.pollMillis},
+ * {@code receipts.maxPollMillis} and {@code receipts.timeoutMillis}.
+ */
+public class ReceiptTracker {
+
+  private static final Map<Web3j, ReceiptTracker> trackers = new ConcurrentHashMap<>();
+  private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "receipt-poller");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Web3j web3;
+  private final ChainHeadTracker headTracker;
+  private final long pollMillis;
+  private final long maxPollMillis;
+  private final long timeoutMillis;
+  private final Map<String, PendingTransaction> pending = new ConcurrentHashMap<>();
+  private final Set<PendingTransaction> confirming = ConcurrentHashMap.newKeySet();
+
+  ReceiptTracker(Web3j web3, ChainHeadTracker headTracker, long pollMillis, long maxPollMillis,
+      long timeoutMillis) {
+    this.web3 = web3;
+    this.headTracker = headTracker;
+    this.pollMillis = pollMillis;
+    this.maxPollMillis = maxPollMillis;
+    this.timeoutMillis = timeoutMillis;
+    headTracker.addListener(this::onNewHead);
+  }
+
+  /**
+   * Returns the shared tracker for the given client, starting its scheduler on first use.
+   * @param web3 The RPC client the transactions were sent through.
+   * @return The shared tracker.
+   */
+  public static ReceiptTracker forClient(Web3j web3) {
+    return trackers.computeIfAbsent(web3, client -> {
+      long pollMillis = Long.getLong("receipts.pollMillis", 1000);
+      ReceiptTracker tracker = new ReceiptTracker(client, ChainHeadTracker.forClient(client),
+          pollMillis, Long.getLong("receipts.maxPollMillis", 15_000),
+          Long.getLong("receipts.timeoutMillis", TimeUnit.MINUTES.toMillis(10)));
+      scheduler.scheduleWithFixedDelay(tracker::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+      return tracker;
+    });
+  }
+
+  /**
+   * Starts following a transaction that has just been submitted.
+   * @param transactionHash The hash returned by {@code eth_sendRawTransaction}.
+   * @return The handle callers wait on.
+   */
+  public PendingTransaction track(String transactionHash) {
+    return pending.computeIfAbsent(transactionHash,
+        hash -> new PendingTransaction(hash, this, pollMillis));
+  }
+
+  /**
+   * @return The number of transactions still waiting to be mined.
+   */
+  public int pendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * @return How long to wait on {@link PendingTransaction#included()} at most: the timeout plus
+   *     one poll at the longest interval, after which the tracker has failed the future itself.
+   */
+  long maxWaitMillis() {
+    return timeoutMillis + maxPollMillis;
+  }
+
+  void watchConfirmations(PendingTransaction transaction) {
+    if (transaction.updateConfirmations(headTracker.head())) {
+      confirming.add(transaction);
+    }
+  }
+
+  private void onNewHead(long head) {
+    confirming.removeIf(transaction -> !transaction.updateConfirmations(head));
+  }
+
+  void poll() {
+    long now = System.currentTimeMillis();
+    List<PendingTransaction> due = new ArrayList<>();
+    for (PendingTransaction transaction : pending.values()) {
+      if (now - transaction.submittedAt() > timeoutMillis) {
+        pending.remove(transaction.getTransactionHash());
+        transaction.included().completeExceptionally(new TransactionException(
+            "Transaction receipt was not generated after " + timeoutMillis / 1000
+                + " seconds for transaction: " + transaction.getTransactionHash()));
+      } else if (transaction.isDue(now)) {
+        due.add(transaction);
+      }
+    }
+    for (int start = 0; start < due.size(); start += BalanceBatch.chunkSize()) {
+      List<PendingTransaction> chunk = due.subList(start, Math.min(start + BalanceBatch.chunkSize(), due.size()));
+      try {
+        pollChunk(chunk, now);
+      } catch (IOException | RuntimeException e) {
+        // Anything escaping here would cancel the scheduled poll for good.
+        chunk.forEach(transaction -> transaction.backOff(now, maxPollMillis));
+      }
+    }
+  }
+
+  private void pollChunk(List<PendingTransaction> chunk, long now) throws IOException {
+    BatchRequest batch = web3.newBatch();
+    Map<Long, PendingTransaction> byRequestId = new HashMap<>();
+    for (PendingTransaction transaction : chunk) {
+      var request = web3.ethGetTransactionReceipt(transaction.getTransactionHash());
+      byRequestId.put(request.getId(), transaction);
+      batch.add(request);
+    }
+    for (Response<?> response : batch.send().getResponses()) {
+      PendingTransaction transaction = byRequestId.get(response.getId());
+      if (transaction == null) {
+        continue;
+      }
+      Optional<TransactionReceipt> receipt = response.hasError() ? Optional.empty()
+          : ((EthGetTransactionReceipt) response).getTransactionReceipt();
+      if (receipt.isPresent() && receipt.get().getBlockNumberRaw() != null) {
+        pending.remove(transaction.getTransactionHash());
+        transaction.included().complete(receipt.get());
+        watchConfirmations(transaction);
+      } else {
+        transaction.backOff(now, maxPollMillis);
+      }
+    }
+  }
+}
@@ -0,0 +1,63 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+/**
+ * Framing shared by the append-only logs ({@link UserJournal}, {@link TransactionHistory} and the
+ * {@link PayoutEngine} checkpoint): each record is its length, its body and a CRC32 of the body,
+ * so a record torn by a crash is recognised and dropped on replay.
+ */
+final class RecordLog {
+
+  /** Bytes a frame adds around its body. */
+  static final int FRAME_BYTES = 8;
+
+  private RecordLog() {
+  }
+
+  /**
+   * @param body The record body.
+   * @return The framed record, ready to append.
+   */
+  static byte[] frame(byte[] body) {
+    CRC32 crc = new CRC32();
+    crc.update(body);
+    ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(body.length + FRAME_BYTES);
+    DataOutputStream record = new DataOutputStream(recordBytes);
+    try {
+      record.writeInt(body.length);
+      record.write(body);
+      record.writeInt((int) crc.getValue());
+    } catch (IOException e) {
+      // A ByteArrayOutputStream never throws.
+      throw new IllegalStateException(e);
+    }
+    return recordBytes.toByteArray();
+  }
+
+  /**
+   * Reads the next record.
+   * @param in The log's bytes.
+   * @return The record body, or null at end of file or at a record that was only partly written.
+   * @throws IOException If the stream cannot be read.
+   */
+  static byte[] readRecord(DataInputStream in) throws IOException {
+    try {
+      int length = in.readInt();
+      if (length < 0 || length > in.available()) {
+        return null;
+      }
+      byte[] body = new byte[length];
+      in.readFully(body);
+      int expected = in.readInt();
+      CRC32 crc = new CRC32();
+      crc.update(body);
+      return (int) crc.getValue() == expected ? body : null;
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,397 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.web3j.protocol.Service;
+
+/**
+ * JSON-RPC transport that spreads calls over several endpoints of the same chain. Each endpoint's
+ * latency is tracked as an exponentially weighted moving average, and calls go to the fastest
+ * endpoint whose circuit breaker is closed.
+ * <p>
+ * A read that is still running after the endpoint's {@code rpc.hedge.percentile} latency (p95 by
+ * default) is sent again to the next endpoint, and whichever answers first wins. A read that
+ * fails moves on to the next endpoint at once. Writes such as {@code eth_sendRawTransaction} are
+ * never hedged, and only move to another endpoint if the request provably never reached the
+ * first one (connection refused, unknown host, or HTTP 429/503).
+ * <p>
+ * After {@code rpc.breaker.failures} (5) failures in a row an endpoint is skipped for
+ * {@code rpc.breaker.openMillis} (30 s). The next call after that is let through as a probe while
+ * every other call keeps skipping the endpoint; the probe closes the breaker on success and reopens
+ * it on failure.
+ */
+public class RoutingService extends Service {
+
+  private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json; charset=utf-8");
+  private static final Set<String> WRITE_METHODS = Set.of("eth_sendRawTransaction", "eth_sendTransaction",
+      "eth_sign", "eth_signTransaction", "personal_sign", "personal_sendTransaction");
+  private static final int MIN_HEDGE_SAMPLES = 16;
+
+  private final List<Endpoint> endpoints = new ArrayList<>();
+  private final OkHttpClient httpClient;
+  private final double hedgePercentile;
+  private final int breakerFailures;
+  private final long breakerOpenMillis;
+  private final AtomicLong hedges = new AtomicLong();
+  private final AtomicLong failovers = new AtomicLong();
+
+  /**
+   * Builds a router configured from the {@code rpc.hedge.*} and {@code rpc.breaker.*} system
+   * properties.
+   * @param urls The endpoints, all serving the same chain.
+   * @param httpClient The HTTP client to send through.
+   */
+  public RoutingService(List<String> urls, OkHttpClient httpClient) {
+    this(urls, httpClient, Double.parseDouble(System.getProperty("rpc.hedge.percentile", "0.95")),
+        Integer.getInteger("rpc.breaker.failures", 5), Long.getLong("rpc.breaker.openMillis", 30_000));
+  }
+
+  /**
+   * @param urls The endpoints, all serving the same chain.
+   * @param httpClient The HTTP client to send through.
+   * @param hedgePercentile The latency percentile, from 0 to 1, after which a read is hedged.
+   * @param breakerFailures Failures in a row that open an endpoint's circuit breaker.
+   * @param breakerOpenMillis How long an open breaker keeps an endpoint out.
+   */
+  public RoutingService(List<String> urls, OkHttpClient httpClient, double hedgePercentile,
+      int breakerFailures, long breakerOpenMillis) {
+    super(false);
+    if (urls.isEmpty()) {
+      throw new IllegalArgumentException("At least one endpoint is required");
+    }
+    urls.forEach(url -> endpoints.add(new Endpoint(url)));
+    this.httpClient = httpClient;
+    this.hedgePercentile = hedgePercentile;
+    this.breakerFailures = breakerFailures;
+    this.breakerOpenMillis = breakerOpenMillis;
+  }
+
+  @Override
+  protected InputStream performIO(String payload) throws IOException {
+    List<Endpoint> ranked = ranked();
+    byte[] body = isWrite(payload) ? sendWrite(payload, ranked) : sendRead(payload, ranked);
+    return new ByteArrayInputStream(body);
+  }
+
+  @Override
+  public void close() {
+    // The HTTP client is shared and owned by RpcClientFactory.
+  }
+
+  /**
+   * @return The number of reads sent to a second endpoint because the first was slow.
+   */
+  public long hedges() {
+    return hedges.get();
+  }
+
+  /**
+   * @return The number of calls retried on another endpoint after a failure.
+   */
+  public long failovers() {
+    return failovers.get();
+  }
+
+  /**
+   * @param url One of the endpoints.
+   * @return Its moving average latency in milliseconds, or -1 before its first call.
+   */
+  public double averageLatencyMillis(String url) {
+    return endpoint(url).averageNanos() / 1e6;
+  }
+
+  /**
+   * @param url One of the endpoints.
+   * @return Whether its circuit breaker is currently keeping it out.
+   */
+  public boolean isOpen(String url) {
+    return endpoint(url).isOpen(System.currentTimeMillis());
+  }
+
+  private Endpoint endpoint(String url) {
+    return endpoints.stream().filter(endpoint -> endpoint.url.equals(url)).findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("Unknown endpoint " + url));
+  }
+
+  // Available endpoints from fastest to slowest. If every breaker is open, all endpoints are
+  // tried in the order they are due to reopen rather than failing without a request.
+  private List<Endpoint> ranked() {
+    long now = System.currentTimeMillis();
+    List<Endpoint> available = new ArrayList<>();
+    for (Endpoint endpoint : endpoints) {
+      if (endpoint.available(now, breakerOpenMillis)) {
+        available.add(endpoint);
+      }
+    }
+    if (available.isEmpty()) {
+      available.addAll(endpoints);
+      available.sort(Comparator.comparingLong(Endpoint::openUntil));
+    } else {
+      available.sort(Comparator.comparingDouble(Endpoint::averageNanos));
+    }
+    return available;
+  }
+
+  private boolean isWrite(String payload) throws IOException {
+    JsonNode request = objectMapper.readTree(payload);
+    if (request.isArray()) {
+      for (JsonNode call : request) {
+        if (WRITE_METHODS.contains(call.path("method").asText())) {
+          return true;
+        }
+      }
+      return false;
+    }
+    return WRITE_METHODS.contains(request.path("method").asText());
+  }
+
+  // At most two attempts run at once: the current one and, if it is slow, a hedge on the next
+  // endpoint. A failed attempt is replaced by one on the next endpoint straight away.
+  private byte[] sendRead(String payload, List<Endpoint> ranked) throws IOException {
+    BlockingQueue<Attempt> finished = new LinkedBlockingQueue<>();
+    List<Attempt> running = new ArrayList<>();
+    running.add(start(ranked.get(0), payload, finished));
+    int next = 1;
+    boolean hedged = false;
+    IOException failure = null;
+    try {
+      while (true) {
+        Attempt done;
+        long hedgeDelay = !hedged && next < ranked.size() ? running.get(0).endpoint.hedgeDelayNanos(hedgePercentile) : -1;
+        if (hedgeDelay >= 0) {
+          long elapsed = System.nanoTime() - running.get(0).startedAt;
+          done = finished.poll(Math.max(0, hedgeDelay - elapsed), TimeUnit.NANOSECONDS);
+          if (done == null) {
+            hedged = true;
+            hedges.incrementAndGet();
+            AppMetrics.count("rpc.hedged");
+            running.add(start(ranked.get(next++), payload, finished));
+            continue;
+          }
+        } else {
+          done = finished.take();
+        }
+        running.remove(done);
+        if (done.error == null) {
+          return done.body;
+        }
+        if (failure == null) {
+          failure = done.error;
+        } else {
+          failure.addSuppressed(done.error);
+        }
+        if (running.isEmpty()) {
+          if (next >= ranked.size()) {
+            throw failure;
+          }
+          failovers.incrementAndGet();
+          AppMetrics.count("rpc.failover");
+          running.add(start(ranked.get(next++), payload, finished));
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for the RPC endpoint");
+    } finally {
+      running.forEach(attempt -> attempt.call.cancel());
+    }
+  }
+
+  private byte[] sendWrite(String payload, List<Endpoint> ranked) throws IOException {
+    IOException failure = null;
+    for (Endpoint endpoint : ranked) {
+      Attempt attempt = new Attempt(endpoint, newCall(endpoint, payload));
+      attempt.run();
+      if (attempt.error == null) {
+        return attempt.body;
+      }
+      if (failure == null) {
+        failure = attempt.error;
+      } else {
+        failure.addSuppressed(attempt.error);
+      }
+      // Anything else may have reached the node, and sending it again could be acted on twice.
+      if (!neverSent(attempt.error)) {
+        break;
+      }
+      failovers.incrementAndGet();
+      AppMetrics.count("rpc.failover");
+    }
+    throw failure;
+  }
+
+  private static boolean neverSent(IOException error) {
+    return error instanceof ConnectException || error instanceof UnknownHostException
+        || error instanceof NoRouteToHostException
+        || error instanceof HttpStatusException status && (status.code == 429 || status.code == 503);
+  }
+
+  private Attempt start(Endpoint endpoint, String payload, BlockingQueue<Attempt> finished) {
+    Attempt attempt = new Attempt(endpoint, newCall(endpoint, payload));
+    BackgroundExecutor.get().execute(() -> {
+      try {
+        attempt.run();
+      } finally {
+        // Whatever happened, or sendRead would wait for this attempt forever.
+        finished.add(attempt);
+      }
+    });
+    return attempt;
+  }
+
+  private Call newCall(Endpoint endpoint, String payload) {
+    Request request = new Request.Builder()
+        .url(endpoint.url)
+        .post(RequestBody.create(payload, JSON_MEDIA_TYPE))
+        .build();
+    return httpClient.newCall(request);
+  }
+
+  private class Attempt {
+
+    private final Endpoint endpoint;
+    private final Call call;
+    private final long startedAt = System.nanoTime();
+    private byte[] body;
+    private IOException error;
+
+    Attempt(Endpoint endpoint, Call call) {
+      this.endpoint = endpoint;
+      this.call = call;
+    }
+
+    void run() {
+      AppMetrics.Sample sample = AppMetrics.start("rpc.endpoint", "endpoint", endpoint.host);
+      try (Response response = call.execute()) {
+        ResponseBody responseBody = response.body();
+        if (!response.isSuccessful() || responseBody == null) {
+          throw new HttpStatusException(response.code(), endpoint.url);
+        }
+        body = responseBody.bytes();
+        endpoint.succeeded(System.nanoTime() - startedAt);
+        sample.success();
+      } catch (IOException e) {
+        failed(e, sample);
+      } catch (RuntimeException e) {
+        // Thrown by an interceptor or by OkHttp itself; the endpoint failed all the same.
+        failed(new IOException("RPC call to " + endpoint.url + " failed", e), sample);
+      }
+    }
+
+    private void failed(IOException e, AppMetrics.Sample sample) {
+      error = e;
+      if (call.isCanceled()) {
+        // Lost a hedge race: it was at least this slow, which is still worth knowing.
+        endpoint.recordLatency(System.nanoTime() - startedAt);
+      } else {
+        endpoint.failed(System.currentTimeMillis(), breakerFailures, breakerOpenMillis);
+        sample.failure(e);
+      }
+    }
+  }
+
+  private static class HttpStatusException extends IOException {
+
+    private final int code;
+
+    HttpStatusException(int code, String url) {
+      super("HTTP " + code + " from " + url);
+      this.code = code;
+    }
+  }
+
+  private static class Endpoint {
+
+    private static final double ALPHA = 0.2;
+    private static final int WINDOW = 128;
+
+    private final String url;
+    private final String host;
+    private final long[] window = new long[WINDOW];
+    private int samples;
+    private double averageNanos = -1;
+    private int consecutiveFailures;
+    private long openUntil;
+
+    Endpoint(String url) {
+      this.url = url;
+      HttpUrl parsed = HttpUrl.parse(url);
+      this.host = parsed != null ? parsed.host() + ":" + parsed.port() : url;
+    }
+
+    synchronized double averageNanos() {
+      return averageNanos;
+    }
+
+    synchronized long openUntil() {
+      return openUntil;
+    }
+
+    // Closed, or open and due a probe. The caller that finds it due takes the probe: the breaker
+    // stays open for everyone else until that call closes or reopens it, or for another open
+    // period if the probe is never sent or is cancelled.
+    synchronized boolean available(long now, long openMillis) {
+      if (openUntil > now) {
+        return false;
+      }
+      if (openUntil != 0) {
+        openUntil = now + openMillis;
+      }
+      return true;
+    }
+
+    synchronized boolean isOpen(long now) {
+      return openUntil > now;
+    }
+
+    synchronized void succeeded(long nanos) {
+      recordLatency(nanos);
+      consecutiveFailures = 0;
+      openUntil = 0;
+    }
+
+    synchronized void failed(long now, int threshold, long openMillis) {
+      consecutiveFailures++;
+      if (consecutiveFailures >= threshold) {
+        openUntil = now + openMillis;
+      }
+    }
+
+    synchronized void recordLatency(long nanos) {
+      window[samples % WINDOW] = nanos;
+      samples++;
+      averageNanos = averageNanos < 0 ? nanos : ALPHA * nanos + (1 - ALPHA) * averageNanos;
+    }
+
+    // How long to wait before hedging, or -1 while there are too few samples to tell.
+    synchronized long hedgeDelayNanos(double percentile) {
+      if (samples < MIN_HEDGE_SAMPLES) {
+        return -1;
+      }
+      long[] sorted = Arrays.copyOf(window, Math.min(samples, WINDOW));
+      Arrays.sort(sorted);
+      return sorted[Math.min(sorted.length - 1, (int) (percentile * sorted.length))];
+    }
+  }
+}
@@ -0,0 +1,182 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+
+/**
+ * Hands out Web3j clients that share one OkHttp client, so every User reuses the same connection
+ * pool, dispatcher threads and TLS sessions. Limits are read from system properties:
+ * <ul>
+ *   <li>{@code rpc.endpoint} - JSON-RPC URL used by {@link #web3j()}</li>
+ *   <li>{@code rpc.endpoints} - comma-separated URLs of the same chain; if set, {@link #web3j()}
+ *   routes over all of them with a {@link RoutingService} instead</li>
+ *   <li>{@code rpc.maxIdleConnections} - idle keep-alive connections kept in the pool</li>
+ *   <li>{@code rpc.keepAliveSeconds} - how long an idle connection is kept</li>
+ *   <li>{@code rpc.maxRequestsPerHost} - concurrent requests allowed to one host</li>
+ *   <li>{@code rpc.maxRequests} - concurrent requests allowed overall</li>
+ *   <li>{@code rpc.timeoutSeconds} - connect, read and write timeout</li>
+ * </ul>
+ */
+public class RpcClientFactory {
+
+  public static final String DEFAULT_ENDPOINT =
+      "https://sepolia.infura.io/v3/bcd588d5219e459fa5faa21bf429c957";
+
+  private static volatile RpcClientFactory instance;
+
+  private final String endpoint;
+  private final List<String> routedEndpoints = Arrays.stream(System.getProperty("rpc.endpoints", "").split(","))
+      .map(String::trim)
+      .filter(url -> !url.isEmpty())
+      .toList();
+  private final OkHttpClient httpClient;
+  private final Map<String, Web3j> clients = new ConcurrentHashMap<>();
+  private volatile boolean shutdown;
+
+  /**
+   * Builds a factory from the {@code rpc.*} system properties.
+   */
+  public RpcClientFactory() {
+    this(System.getProperty("rpc.endpoint", DEFAULT_ENDPOINT),
+        Integer.getInteger("rpc.maxIdleConnections", 8),
+        Long.getLong("rpc.keepAliveSeconds", 300),
+        Integer.getInteger("rpc.maxRequestsPerHost", 16),
+        Integer.getInteger("rpc.maxRequests", 64),
+        Long.getLong("rpc.timeoutSeconds", 30));
+  }
+
+  /**
+   * @param endpoint The JSON-RPC URL used by {@link #web3j()}.
+   * @param maxIdleConnections Idle keep-alive connections kept in the pool.
+   * @param keepAliveSeconds How long an idle connection is kept.
+   * @param maxRequestsPerHost Concurrent requests allowed to one host.
+   * @param maxRequests Concurrent requests allowed overall.
+   * @param timeoutSeconds Connect, read and write timeout.
+   */
+  public RpcClientFactory(String endpoint, int maxIdleConnections, long keepAliveSeconds,
+      int maxRequestsPerHost, int maxRequests, long timeoutSeconds) {
+    this.endpoint = endpoint;
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequests(maxRequests);
+    dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+    httpClient = new OkHttpClient.Builder()
+        .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS))
+        .dispatcher(dispatcher)
+        .addInterceptor(new HostLimiter(maxRequestsPerHost))
+        .connectTimeout(timeoutSeconds, TimeUnit.SECONDS)
+        .readTimeout(timeoutSeconds, TimeUnit.SECONDS)
+        .writeTimeout(timeoutSeconds, TimeUnit.SECONDS)
+        .build();
+  }
+
+  /**
+   * Returns the process-wide factory, creating it and registering its shutdown hook on first use.
+   * @return The shared factory.
+   */
+  public static RpcClientFactory getInstance() {
+    RpcClientFactory factory = instance;
+    if (factory == null) {
+      synchronized (RpcClientFactory.class) {
+        factory = instance;
+        if (factory == null) {
+          factory = new RpcClientFactory();
+          Runtime.getRuntime().addShutdownHook(new Thread(factory::shutdown, "rpc-client-shutdown"));
+          instance = factory;
+        }
+      }
+    }
+    return factory;
+  }
+
+  /**
+   * @return The shared client for the configured endpoint.
+   */
+  public Web3j web3j() {
+    return routedEndpoints.isEmpty() ? web3j(endpoint) : web3j(routedEndpoints);
+  }
+
+  /**
+   * @param urls JSON-RPC URLs of the same chain.
+   * @return The shared client that routes over those URLs, created on first use.
+   */
+  public Web3j web3j(List<String> urls) {
+    if (urls.size() == 1) {
+      return web3j(urls.get(0));
+    }
+    if (shutdown) {
+      throw new IllegalStateException("RPC clients have been shut down");
+    }
+    return clients.computeIfAbsent(String.join(",", urls), key -> Web3j.build(new RoutingService(urls, httpClient)));
+  }
+
+  /**
+   * @param url A JSON-RPC URL.
+   * @return The shared client for that URL, created on first use.
+   */
+  public Web3j web3j(String url) {
+    if (shutdown) {
+      throw new IllegalStateException("RPC clients have been shut down");
+    }
+    return clients.computeIfAbsent(url, u -> Web3j.build(new HttpService(u, httpClient)));
+  }
+
+  /**
+   * @return The OkHttp client every Web3j client from this factory shares.
+   */
+  public OkHttpClient httpClient() {
+    return httpClient;
+  }
+
+  /**
+   * Stops every client and releases the dispatcher threads and pooled connections.
+   */
+  public void shutdown() {
+    shutdown = true;
+    clients.values().forEach(Web3j::shutdown);
+    clients.clear();
+    httpClient.dispatcher().executorService().shutdown();
+    httpClient.connectionPool().evictAll();
+  }
+
+  /**
+   * Caps in-flight requests per host. OkHttp's dispatcher limits only apply to asynchronous
+   * calls, and Web3j issues synchronous ones.
+   */
+  private static class HostLimiter implements Interceptor {
+
+    private final int permitsPerHost;
+    private final Map<String, Semaphore> hosts = new ConcurrentHashMap<>();
+
+    HostLimiter(int permitsPerHost) {
+      this.permitsPerHost = permitsPerHost;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+      Semaphore permits = hosts.computeIfAbsent(chain.request().url().host(),
+          host -> new Semaphore(permitsPerHost, true));
+      try {
+        permits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted waiting for a connection slot");
+      }
+      try {
+        return chain.proceed(chain.request());
+      } finally {
+        permits.release();
+      }
+    }
+  }
+}
@@ -0,0 +1,110 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.web3j.protocol.Web3j;
+
+/**
+ * Lets concurrent identical read calls share one request. The first caller for a given method and
+ * parameters (block tag included) sends the call; anyone asking for the same thing before it
+ * returns waits for that result, or that failure, instead of sending their own. Nothing is cached
+ * once the call returns. Only use it for reads: a shared write would be sent once for all callers.
+ */
+public class RpcCoalescer {
+
+  private static final Map<Web3j, RpcCoalescer> coalescers = new ConcurrentHashMap<>();
+
+  private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong calls = new AtomicLong();
+  private final AtomicLong saved = new AtomicLong();
+
+  /**
+   * @param web3 The RPC client the calls go through.
+   * @return The shared coalescer for that client.
+   */
+  public static RpcCoalescer forClient(Web3j web3) {
+    return coalescers.computeIfAbsent(web3, client -> new RpcCoalescer());
+  }
+
+  /**
+   * Runs the call, or joins an identical one already in flight.
+   * @param method The JSON-RPC method.
+   * @param params The call's parameters, including the block tag. Must have value equality.
+   * @param call Sends the request.
+   * @param <T> The result type.
+   * @return The call's result, possibly shared with other callers.
+   * @throws IOException If the call fails, or the caller is interrupted while waiting for it.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T call(String method, List<?> params, RpcCall<T> call) throws IOException {
+    Key key = new Key(method, params);
+    CompletableFuture<Object> mine = new CompletableFuture<>();
+    CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+    if (running != null) {
+      saved.incrementAndGet();
+      AppMetrics.count("rpc.coalesced", "method", method);
+      return (T) await(running);
+    }
+    calls.incrementAndGet();
+    try {
+      T result = call.call();
+      mine.complete(result);
+      return result;
+    } catch (Throwable e) {
+      // Any throwable, Errors included, so callers that joined are never left waiting.
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  /**
+   * @return The number of calls actually sent.
+   */
+  public long calls() {
+    return calls.get();
+  }
+
+  /**
+   * @return The number of calls answered by joining one already in flight.
+   */
+  public long saved() {
+    return saved.get();
+  }
+
+  private static Object await(CompletableFuture<Object> running) throws IOException {
+    try {
+      return running.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for a shared RPC call");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException io) {
+        throw io;
+      }
+      if (cause instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      if (cause instanceof Error error) {
+        throw error;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * Sends one RPC request.
+   */
+  public interface RpcCall<T> {
+    T call() throws IOException;
+  }
+
+  private record Key(String method, List<?> params) {
+  }
+}
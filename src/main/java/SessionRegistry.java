@@ -0,0 +1,124 @@
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logged-in users of the headless service, keyed by an opaque bearer token. Every session shares
+ * one user store and one RPC client; a session only holds its {@link User}. Sessions idle for
+ * longer than {@code service.sessionIdleMinutes} (30 by default) are dropped, together with any
+ * decrypted wallet keys they cached.
+ */
+public class SessionRegistry {
+
+  private static final long SWEEP_SECONDS = 60;
+  private static final SecureRandom random = new SecureRandom();
+  private static final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "session-sweeper");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final XMLParser parser;
+  private final long idleMillis;
+  private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+  private final ScheduledFuture<?> sweep;
+
+  /**
+   * @param parser The shared user store.
+   */
+  public SessionRegistry(XMLParser parser) {
+    this(parser, TimeUnit.MINUTES.toMillis(Long.getLong("service.sessionIdleMinutes", 30)));
+  }
+
+  /**
+   * @param parser The shared user store.
+   * @param idleMillis How long an unused session is kept.
+   */
+  public SessionRegistry(XMLParser parser, long idleMillis) {
+    this.parser = parser;
+    this.idleMillis = idleMillis;
+    sweep = sweeper.scheduleWithFixedDelay(this::expireIdle, SWEEP_SECONDS, SWEEP_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Checks a user's password and opens a session.
+   * @param username The username.
+   * @param password The user's password.
+   * @return The session token, or null if the credentials are wrong.
+   */
+  public String login(String username, String password) {
+    if (username == null || password == null || !parser.validPassword(username, password)) {
+      return null;
+    }
+    byte[] bytes = new byte[32];
+    random.nextBytes(bytes);
+    String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    sessions.put(token, new Session(new User(username, parser)));
+    return token;
+  }
+
+  /**
+   * @param token A session token.
+   * @return The session's user, or null if the token is unknown or expired.
+   */
+  public User user(String token) {
+    Session session = token == null ? null : sessions.get(token);
+    if (session == null) {
+      return null;
+    }
+    session.lastUsedAt = System.currentTimeMillis();
+    return session.user;
+  }
+
+  /**
+   * Ends a session and forgets its cached wallet keys.
+   * @param token A session token.
+   */
+  public void logout(String token) {
+    Session session = token == null ? null : sessions.remove(token);
+    if (session != null) {
+      session.user.clearCredentialCache();
+    }
+  }
+
+  /**
+   * Stops sweeping idle sessions and ends every open one. Spring calls this when the service shuts
+   * down.
+   */
+  public void close() {
+    sweep.cancel(false);
+    sessions.keySet().forEach(this::logout);
+  }
+
+  public int size() {
+    return sessions.size();
+  }
+
+  private void expireIdle() {
+    long now = System.currentTimeMillis();
+    Iterator<Map.Entry<String, Session>> iterator = sessions.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Session session = iterator.next().getValue();
+      if (now - session.lastUsedAt > idleMillis) {
+        iterator.remove();
+        session.user.clearCredentialCache();
+      }
+    }
+  }
+
+  private static class Session {
+
+    private final User user;
+    private volatile long lastUsedAt = System.currentTimeMillis();
+
+    Session(User user) {
+      this.user = user;
+    }
+  }
+}
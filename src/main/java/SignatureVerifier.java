@@ -0,0 +1,227 @@
+import java.math.BigInteger;
+import java.security.SignatureException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+
+/**
+ * Checks signatures made by {@link User#signMessage} and {@link MessageSigner} by recovering the
+ * signer's address. Recently recovered (message hash, signature) pairs are kept in a bounded LRU
+ * cache, so checking the same signature again skips the EC recovery. Bulk checks are split across
+ * a fork/join pool. The cache size is read from {@code signatures.cacheSize}.
+ */
+public class SignatureVerifier {
+
+  private static final int SPLIT_THRESHOLD = 32;
+  private static volatile SignatureVerifier instance;
+
+  private final LruCache<Key, String> recovered;
+  private final ForkJoinPool pool;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @param cacheSize The number of recovered signatures remembered.
+   * @param pool The pool bulk checks are split across.
+   */
+  public SignatureVerifier(int cacheSize, ForkJoinPool pool) {
+    this.recovered = new LruCache<>(cacheSize);
+    this.pool = pool;
+  }
+
+  /**
+   * @return The process-wide verifier, sized from {@code signatures.cacheSize} (10000 by default).
+   */
+  public static SignatureVerifier getInstance() {
+    SignatureVerifier verifier = instance;
+    if (verifier == null) {
+      synchronized (SignatureVerifier.class) {
+        verifier = instance;
+        if (verifier == null) {
+          verifier = new SignatureVerifier(Integer.getInteger("signatures.cacheSize", 10000),
+              ForkJoinPool.commonPool());
+          instance = verifier;
+        }
+      }
+    }
+    return verifier;
+  }
+
+  /**
+   * Recovers the address that signed a message.
+   * @param message The signed message.
+   * @param signature The 65-byte signature: r, s, then v.
+   * @return The signer's 0x-prefixed, lowercase address.
+   * @throws SignatureException If the signature is malformed or no key can be recovered from it.
+   */
+  public String recoverAddress(String message, byte[] signature) throws SignatureException {
+    if (signature.length != MessageSigner.SIGNATURE_LENGTH) {
+      throw new SignatureException("Signature must be " + MessageSigner.SIGNATURE_LENGTH + " bytes");
+    }
+    return recoverAddress(message, signature, 0);
+  }
+
+  /**
+   * @param message The signed message.
+   * @param signature The signature as a hex string, as returned by {@link User#signMessage}.
+   * @return The signer's 0x-prefixed, lowercase address.
+   * @throws SignatureException If the signature is malformed or no key can be recovered from it.
+   */
+  public String recoverAddress(String message, String signature) throws SignatureException {
+    byte[] bytes;
+    try {
+      bytes = Numeric.hexStringToByteArray(signature);
+    } catch (RuntimeException e) {
+      throw new SignatureException("Signature is not hex", e);
+    }
+    return recoverAddress(message, bytes);
+  }
+
+  /**
+   * @param message The signed message.
+   * @param signature The signature as a hex string.
+   * @param address The expected signer, with or without the 0x prefix, in any case.
+   * @return Whether the message was signed by that address. Malformed signatures are not valid.
+   */
+  public boolean verify(String message, String signature, String address) {
+    try {
+      return sameAddress(recoverAddress(message, signature), address);
+    } catch (SignatureException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Recovers the signer of every message in parallel.
+   * @param messages The signed messages.
+   * @param signatures Their signatures back to back, {@value MessageSigner#SIGNATURE_LENGTH} bytes
+   *     each, as {@link MessageSigner#signAll} produces them.
+   * @return The signer of each message, or null where the signature is invalid.
+   */
+  public String[] recoverAll(List<String> messages, byte[] signatures) {
+    if (signatures.length != (long) messages.size() * MessageSigner.SIGNATURE_LENGTH) {
+      throw new IllegalArgumentException("Expected " + messages.size() + " signatures");
+    }
+    String[] addresses = new String[messages.size()];
+    pool.invoke(new RecoverTask(messages, signatures, addresses, 0, messages.size()));
+    return addresses;
+  }
+
+  /**
+   * Checks every message against its expected signer in parallel.
+   * @param messages The signed messages.
+   * @param signatures Their signatures back to back, {@value MessageSigner#SIGNATURE_LENGTH} bytes each.
+   * @param addresses The expected signer of each message.
+   * @return Whether each message was signed by its expected signer.
+   */
+  public boolean[] verifyAll(List<String> messages, byte[] signatures, List<String> addresses) {
+    String[] recoveredAddresses = recoverAll(messages, signatures);
+    boolean[] valid = new boolean[recoveredAddresses.length];
+    for (int i = 0; i < valid.length; i++) {
+      valid[i] = sameAddress(recoveredAddresses[i], addresses.get(i));
+    }
+    return valid;
+  }
+
+  public long hits() {
+    return hits.get();
+  }
+
+  public long misses() {
+    return misses.get();
+  }
+
+  private String recoverAddress(String message, byte[] signatures, int offset) throws SignatureException {
+    byte[] messageHash = Hash.sha3(message.getBytes());
+    Key key = new Key(messageHash, signatures, offset);
+    String address = recovered.get(key);
+    if (address != null) {
+      hits.incrementAndGet();
+      return address;
+    }
+    misses.incrementAndGet();
+    Sign.SignatureData signature = new Sign.SignatureData(signatures[offset + 64],
+        Arrays.copyOfRange(signatures, offset, offset + 32),
+        Arrays.copyOfRange(signatures, offset + 32, offset + 64));
+    BigInteger publicKey;
+    try {
+      publicKey = Sign.signedPrefixedMessageToKey(messageHash, signature);
+    } catch (RuntimeException e) {
+      throw new SignatureException("Invalid signature", e);
+    }
+    address = Numeric.prependHexPrefix(Keys.getAddress(publicKey));
+    recovered.put(key, address);
+    return address;
+  }
+
+  private static boolean sameAddress(String recoveredAddress, String address) {
+    return recoveredAddress != null && address != null
+        && Numeric.cleanHexPrefix(recoveredAddress).equalsIgnoreCase(Numeric.cleanHexPrefix(address));
+  }
+
+  private class RecoverTask extends RecursiveAction {
+
+    private final List<String> messages;
+    private final byte[] signatures;
+    private final String[] addresses;
+    private final int from;
+    private final int to;
+
+    RecoverTask(List<String> messages, byte[] signatures, String[] addresses, int from, int to) {
+      this.messages = messages;
+      this.signatures = signatures;
+      this.addresses = addresses;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= SPLIT_THRESHOLD) {
+        for (int i = from; i < to; i++) {
+          try {
+            addresses[i] = recoverAddress(messages.get(i), signatures, i * MessageSigner.SIGNATURE_LENGTH);
+          } catch (SignatureException e) {
+            addresses[i] = null;
+          }
+        }
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new RecoverTask(messages, signatures, addresses, from, middle),
+          new RecoverTask(messages, signatures, addresses, middle, to));
+    }
+  }
+
+  /**
+   * Message hash followed by signature, compared by content.
+   */
+  private static final class Key {
+
+    private final byte[] bytes;
+    private final int hash;
+
+    Key(byte[] messageHash, byte[] signatures, int offset) {
+      bytes = new byte[messageHash.length + MessageSigner.SIGNATURE_LENGTH];
+      System.arraycopy(messageHash, 0, bytes, 0, messageHash.length);
+      System.arraycopy(signatures, offset, bytes, messageHash.length, MessageSigner.SIGNATURE_LENGTH);
+      hash = Arrays.hashCode(bytes);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Key key && Arrays.equals(bytes, key.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
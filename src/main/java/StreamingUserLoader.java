@@ -0,0 +1,274 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Single-pass StAX reader for users.xml. Usernames and passwords are read eagerly, but each
+ * user's wallets block is only remembered as a byte range in the file and decoded on first use.
+ */
+public class StreamingUserLoader {
+
+  private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+  private static final byte[] WALLETS_OPEN = "<wallets>".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] WALLETS_CLOSE = "</wallets>".getBytes(StandardCharsets.UTF_8);
+  private static final int LENGTH_BITS = 24;
+  private static final long MAX_LENGTH = (1L << LENGTH_BITS) - 1;
+
+  private final File file;
+  private final FileChannel channel;
+  private final long loadedSize;
+  private final FileTime loadedModified;
+
+  /**
+   * Opens the snapshot for a lazy load. The file stays open so wallet blocks can be read later.
+   * @param file The users.xml snapshot.
+   * @throws IOException If the file cannot be opened.
+   */
+  public StreamingUserLoader(File file) throws IOException {
+    this.file = file;
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    this.loadedSize = channel.size();
+    this.loadedModified = Files.getLastModifiedTime(file.toPath());
+  }
+
+  /**
+   * Reads every user's password and records where its wallets block lives.
+   * @param passwords Map of username to password to fill.
+   * @param walletRanges Map of username to packed wallets byte range to fill.
+   * @return False if some wallets block could not be located, in which case the caller should
+   *     fall back to {@link #loadEager}.
+   * @throws IOException If the file is not well-formed.
+   */
+  public boolean load(Map<String, String> passwords, Map<String, Long> walletRanges)
+      throws IOException {
+    boolean complete = true;
+    ByteOffsets offsets = new ByteOffsets();
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+      XMLStreamReader reader = inputFactory.createXMLStreamReader(in, "UTF-8");
+      String username = null;
+      String password = null;
+      long walletsStart = -1;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          switch (reader.getLocalName()) {
+            case "username" -> username = reader.getElementText();
+            case "password" -> password = reader.getElementText();
+            case "wallets" -> walletsStart = offsets.byteOffset(reader.getLocation().getCharacterOffset());
+            default -> { }
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          if ("wallets".equals(reader.getLocalName()) && username != null) {
+            long walletsEnd = offsets.byteOffset(reader.getLocation().getCharacterOffset());
+            long length = walletsEnd - walletsStart;
+            if (walletsStart < 0 || walletsEnd < 0 || length > MAX_LENGTH) {
+              complete = false;
+            } else {
+              walletRanges.put(username, (walletsStart << LENGTH_BITS) | length);
+            }
+            walletsStart = -1;
+          } else if ("user".equals(reader.getLocalName()) && username != null) {
+            passwords.put(username, password);
+            username = null;
+            password = null;
+          }
+        }
+      }
+      reader.close();
+    } catch (XMLStreamException e) {
+      throw new IOException("Unable to parse " + file, e);
+    }
+    return complete;
+  }
+
+  /**
+   * Decodes one user's wallet list from a range recorded by {@link #load}.
+   * @param packedRange The packed range.
+   * @return The wallet names, or null if the snapshot changed since it was loaded and the range
+   *     can no longer be trusted.
+   * @throws IOException If the file cannot be read.
+   */
+  public List<String> decodeWallets(long packedRange) throws IOException {
+    if (snapshotChanged()) {
+      return null;
+    }
+    if ((packedRange & MAX_LENGTH) == 0) {
+      return new ArrayList<>();
+    }
+    long start = packedRange >>> LENGTH_BITS;
+    return decodeRange(start, start + (packedRange & MAX_LENGTH));
+  }
+
+  /**
+   * @return Whether the snapshot was rewritten in place after it was loaded.
+   */
+  public boolean snapshotChanged() throws IOException {
+    return !Files.exists(file.toPath()) || Files.size(file.toPath()) != loadedSize
+        || !Files.getLastModifiedTime(file.toPath()).equals(loadedModified);
+  }
+
+  /**
+   * Releases the snapshot file.
+   */
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Reads all users and wallets in one streaming pass, without building a DOM.
+   * @param file The users.xml snapshot.
+   * @param passwords Map of username to password to fill.
+   * @param wallets Map of username to wallet names to fill.
+   * @throws IOException If the file cannot be read or is not well-formed.
+   */
+  public static void loadEager(File file, Map<String, String> passwords,
+      Map<String, List<String>> wallets) throws IOException {
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+      XMLStreamReader reader = inputFactory.createXMLStreamReader(in, "UTF-8");
+      String username = null;
+      String password = null;
+      List<String> userWallets = new ArrayList<>();
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          switch (reader.getLocalName()) {
+            case "username" -> username = reader.getElementText();
+            case "password" -> password = reader.getElementText();
+            case "name" -> userWallets.add(reader.getElementText());
+            default -> { }
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT && "user".equals(reader.getLocalName())) {
+          passwords.put(username, password);
+          wallets.put(username, userWallets);
+          username = null;
+          password = null;
+          userWallets = new ArrayList<>();
+        }
+      }
+      reader.close();
+    } catch (XMLStreamException e) {
+      throw new IOException("Unable to parse " + file, e);
+    }
+  }
+
+  // The range runs from just after "<wallets>" to just after "</wallets>". Both ends are checked
+  // so a stale range is rejected rather than decoded into someone else's wallets.
+  private List<String> decodeRange(long start, long end) throws IOException {
+    if (start < WALLETS_OPEN.length || end - start < WALLETS_CLOSE.length) {
+      return null;
+    }
+    long readStart = start - WALLETS_OPEN.length;
+    ByteBuffer buffer = ByteBuffer.allocate((int) (end - readStart));
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, readStart + buffer.position()) < 0) {
+        return null;
+      }
+    }
+    byte[] bytes = buffer.array();
+    if (!startsWith(bytes, WALLETS_OPEN, 0)
+        || !startsWith(bytes, WALLETS_CLOSE, bytes.length - WALLETS_CLOSE.length)) {
+      return null;
+    }
+
+    List<String> wallets = new ArrayList<>();
+    try (InputStream in = new ByteArrayInputStream(bytes)) {
+      XMLStreamReader reader = inputFactory.createXMLStreamReader(in, "UTF-8");
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT && "name".equals(reader.getLocalName())) {
+          wallets.add(reader.getElementText());
+        }
+      }
+      reader.close();
+    } catch (XMLStreamException e) {
+      return null;
+    }
+    return wallets;
+  }
+
+  private static boolean startsWith(byte[] bytes, byte[] prefix, int offset) {
+    if (offset < 0 || offset + prefix.length > bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (bytes[offset + i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Converts the character offsets StAX reports into UTF-8 byte offsets. Offsets only move
+   * forward during a pass, so this walks the file once alongside the parser, looking only at
+   * UTF-8 lead bytes.
+   */
+  private class ByteOffsets {
+
+    private final ByteBuffer window = ByteBuffer.allocate(64 * 1024);
+    private long windowStart;
+    private long chars;
+    private long bytes;
+
+    ByteOffsets() {
+      window.limit(0);
+    }
+
+    long byteOffset(int charOffset) throws IOException {
+      if (charOffset < chars) {
+        return -1;
+      }
+      while (chars < charOffset) {
+        int lead = byteAt(bytes);
+        if (lead < 0) {
+          return -1;
+        }
+        if (lead < 0x80) {
+          bytes += 1;
+          chars += 1;
+        } else if (lead >= 0xF0) {
+          bytes += 4;
+          chars += 2;
+        } else if (lead >= 0xE0) {
+          bytes += 3;
+          chars += 1;
+        } else {
+          bytes += 2;
+          chars += 1;
+        }
+      }
+      return chars == charOffset ? bytes : -1;
+    }
+
+    private int byteAt(long position) throws IOException {
+      if (position < windowStart || position >= windowStart + window.limit()) {
+        window.clear();
+        windowStart = position;
+        if (channel.read(window, position) <= 0) {
+          window.limit(0);
+          return -1;
+        }
+        window.flip();
+      }
+      return window.get((int) (position - windowStart)) & 0xFF;
+    }
+  }
+}
@@ -0,0 +1,522 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.utils.Numeric;
+
+/**
+ * Local index of ETH transfers to and from the wallets in the user store, so history queries are
+ * answered without touching the chain. A background task follows the shared
+ * {@link ChainHeadTracker} from a checkpoint, reads new blocks in batches of
+ * {@code history.batchBlocks} (50), and appends every successful transfer that involves a tracked
+ * address to an append-only log. The log is read back into a per-address index on startup.
+ * <p>
+ * The checkpoint holds the last indexed block, the log length at that block and the hashes of the
+ * last {@value #KEPT_HASHES} blocks. After a restart the log is cut back to that length and
+ * indexing resumes at the next block. When a new block does not build on the stored hash, the
+ * indexer walks back to the newest block the node still agrees with, appends a rollback record and
+ * indexes the new branch. Files live in {@code history.directory}; without a checkpoint, indexing
+ * starts at {@code history.startBlock}, or at the current head if that is not set.
+ */
+public class TransactionHistory {
+
+  private static final byte TRANSFER = 1;
+  private static final byte ROLLBACK = 2;
+  private static final int KEPT_HASHES = 64;
+  private static final String DEFAULT_DIRECTORY = System.getProperty("user.dir") + "/src/main/resources/history";
+
+  private static final Map<Web3j, TransactionHistory> histories = new ConcurrentHashMap<>();
+  private static final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "history-indexer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Web3j web3;
+  private final ChainHeadTracker headTracker;
+  private final Predicate<String> tracked;
+  private final Path log;
+  private final Path checkpoint;
+  private final long startBlock;
+  private final int batchBlocks;
+  private final Map<String, List<Transfer>> byAddress = new ConcurrentHashMap<>();
+  // Only touched on the indexer thread once the constructor returns.
+  private final NavigableMap<Long, String> hashes = new TreeMap<>();
+  private final FileChannel channel;
+  private final LongConsumer onNewHead = head -> queueCatchUp();
+  private volatile long indexedBlock = -1;
+  private boolean catchUpQueued;
+
+  // Replays the log in the directory and starts following the tracker; tracked gets lower-case 0x addresses.
+  TransactionHistory(Web3j web3, ChainHeadTracker headTracker, Predicate<String> tracked,
+      File directory, long startBlock, int batchBlocks) throws IOException {
+    this.web3 = web3;
+    this.headTracker = headTracker;
+    this.tracked = tracked;
+    this.startBlock = startBlock;
+    this.batchBlocks = batchBlocks;
+    Path root = directory.toPath().toAbsolutePath();
+    Files.createDirectories(root);
+    log = root.resolve("transfers.log");
+    checkpoint = root.resolve("transfers.checkpoint");
+    long logLength = readCheckpoint();
+    channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    // Anything after the checkpointed length belongs to blocks that will be indexed again.
+    if (channel.size() > logLength) {
+      channel.truncate(logLength);
+    }
+    replay();
+    channel.position(channel.size());
+    headTracker.addListener(onNewHead);
+    queueCatchUp();
+  }
+
+  /**
+   * Returns the shared history for the given client, opening it from the {@code history.*}
+   * system properties on first use. Tracks every wallet in the keystore index, and every
+   * {@link HdWallet} child whose address has been derived; {@link HdWallet#deriveAddresses} derives
+   * those of the user store before the history is opened.
+   * @param web3 The RPC client to read blocks through.
+   * @param wallets The index of the user store's wallets.
+   * @return The shared history.
+   * @throws IOException If the history files cannot be opened.
+   */
+  public static TransactionHistory forClient(Web3j web3, KeystoreIndex wallets) throws IOException {
+    TransactionHistory existing = histories.get(web3);
+    if (existing != null) {
+      return existing;
+    }
+    synchronized (histories) {
+      TransactionHistory history = histories.get(web3);
+      if (history == null) {
+        history = new TransactionHistory(web3, ChainHeadTracker.forClient(web3),
+            address -> wallets.walletName(address) != null || HdWallet.isDerivedAddress(address),
+            new File(System.getProperty("history.directory", DEFAULT_DIRECTORY)),
+            Long.getLong("history.startBlock", -1), Integer.getInteger("history.batchBlocks", 50));
+        histories.put(web3, history);
+      }
+      return history;
+    }
+  }
+
+  /**
+   * @param address An address, in any case.
+   * @return Its indexed transfers, newest first.
+   */
+  public List<Transfer> transfers(String address) {
+    return transfers(address, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param address An address, in any case.
+   * @param limit The most transfers to return.
+   * @return Its newest indexed transfers, newest first.
+   */
+  public List<Transfer> transfers(String address, int limit) {
+    List<Transfer> all = byAddress.get(normalize(address));
+    if (all == null) {
+      return List.of();
+    }
+    List<Transfer> newestFirst = new ArrayList<>();
+    synchronized (all) {
+      for (int i = all.size() - 1; i >= 0 && newestFirst.size() < limit; i--) {
+        newestFirst.add(all.get(i));
+      }
+    }
+    return Collections.unmodifiableList(newestFirst);
+  }
+
+  /**
+   * @return The last block whose transfers are indexed, or -1 before the first one.
+   */
+  public long indexedBlock() {
+    return indexedBlock;
+  }
+
+  /**
+   * Stops following the chain and closes the log once any running catch-up has finished.
+   */
+  public void close() {
+    headTracker.removeListener(onNewHead);
+    histories.remove(web3, this);
+    Future<?> closed = worker.submit(() -> {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    });
+    try {
+      closed.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void queueCatchUp() {
+    synchronized (this) {
+      // Heads that arrive while a catch-up is queued are picked up by that run.
+      if (catchUpQueued) {
+        return;
+      }
+      catchUpQueued = true;
+    }
+    worker.execute(() -> {
+      synchronized (this) {
+        catchUpQueued = false;
+      }
+      try {
+        if (channel.isOpen()) {
+          catchUp();
+        }
+      } catch (IOException e) {
+        // The node is unreachable or behind; the next head tries again from the checkpoint.
+      }
+    });
+  }
+
+  private void catchUp() throws IOException {
+    long head = headTracker.head();
+    if (head < 0) {
+      return;
+    }
+    if (indexedBlock < 0) {
+      indexedBlock = (startBlock >= 0 ? startBlock : head) - 1;
+    }
+    while (indexedBlock < head) {
+      long from = indexedBlock + 1;
+      List<EthBlock.Block> blocks = fetchBlocks(from, Math.min(head, from + batchBlocks - 1), true);
+      if (blocks.contains(null)) {
+        // The node is behind the tracker; the next head tries again.
+        return;
+      }
+      String parent = hashes.get(from - 1);
+      if (parent != null && !parent.equals(blocks.get(0).getParentHash())) {
+        rollBack();
+        continue;
+      }
+      for (int i = 1; i < blocks.size(); i++) {
+        if (!blocks.get(i - 1).getHash().equals(blocks.get(i).getParentHash())) {
+          // The chain changed while the batch was read; the next head tries again.
+          return;
+        }
+      }
+      index(blocks);
+    }
+  }
+
+  private void index(List<EthBlock.Block> blocks) throws IOException {
+    List<Transfer> found = new ArrayList<>();
+    for (EthBlock.Block block : blocks) {
+      long timestamp = block.getTimestamp().longValueExact();
+      for (EthBlock.TransactionResult<?> result : block.getTransactions()) {
+        if (result instanceof EthBlock.TransactionObject transaction) {
+          String from = normalize(transaction.getFrom());
+          String to = transaction.getTo() == null ? null : normalize(transaction.getTo());
+          if (tracked.test(from) || (to != null && tracked.test(to))) {
+            found.add(new Transfer(block.getNumber().longValueExact(), timestamp, transaction.getHash(),
+                from, to, transaction.getValue()));
+          }
+        }
+      }
+    }
+    List<Transfer> succeeded = withoutFailed(found);
+    ByteArrayOutputStream records = new ByteArrayOutputStream();
+    for (Transfer transfer : succeeded) {
+      records.write(encode(transfer));
+    }
+    append(records.toByteArray());
+    succeeded.forEach(this::addToIndex);
+    for (EthBlock.Block block : blocks) {
+      hashes.put(block.getNumber().longValueExact(), block.getHash());
+    }
+    while (hashes.size() > KEPT_HASHES) {
+      hashes.pollFirstEntry();
+    }
+    indexedBlock = blocks.get(blocks.size() - 1).getNumber().longValueExact();
+    writeCheckpoint();
+  }
+
+  // A transaction in a block may still have reverted, so only keep those with a successful receipt.
+  private List<Transfer> withoutFailed(List<Transfer> transfers) throws IOException {
+    if (transfers.isEmpty()) {
+      return transfers;
+    }
+    BatchRequest batch = web3.newBatch();
+    transfers.forEach(transfer -> batch.add(web3.ethGetTransactionReceipt(transfer.getHash())));
+    List<? extends Response<?>> responses = send(batch, "eth_getTransactionReceipt_batch");
+    List<Transfer> succeeded = new ArrayList<>();
+    for (int i = 0; i < transfers.size(); i++) {
+      Response<?> response = responses.get(i);
+      if (response.hasError()) {
+        throw new IOException("eth_getTransactionReceipt failed: " + response.getError().getMessage());
+      }
+      TransactionReceipt receipt = ((EthGetTransactionReceipt) response).getTransactionReceipt().orElse(null);
+      if (receipt == null) {
+        throw new IOException("No receipt yet for " + transfers.get(i).getHash());
+      }
+      if (receipt.isStatusOK()) {
+        succeeded.add(transfers.get(i));
+      }
+    }
+    return succeeded;
+  }
+
+  // Walks back to the newest stored block the node still has, then drops everything after it.
+  private void rollBack() throws IOException {
+    long keep = hashes.firstKey() - 1;
+    for (Long number : hashes.descendingKeySet()) {
+      EthBlock.Block block = fetchBlocks(number, number, false).get(0);
+      if (block != null && hashes.get(number).equals(block.getHash())) {
+        keep = number;
+        break;
+      }
+    }
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    DataOutputStream record = new DataOutputStream(body);
+    record.writeByte(ROLLBACK);
+    record.writeLong(keep);
+    append(RecordLog.frame(body.toByteArray()));
+    removeAfter(keep);
+    hashes.tailMap(keep, false).clear();
+    indexedBlock = keep;
+    writeCheckpoint();
+  }
+
+  private List<EthBlock.Block> fetchBlocks(long from, long to, boolean fullTransactions) throws IOException {
+    BatchRequest batch = web3.newBatch();
+    for (long number = from; number <= to; number++) {
+      batch.add(web3.ethGetBlockByNumber(DefaultBlockParameter.valueOf(BigInteger.valueOf(number)), fullTransactions));
+    }
+    List<EthBlock.Block> blocks = new ArrayList<>();
+    for (Response<?> response : send(batch, "eth_getBlockByNumber_batch")) {
+      if (response.hasError()) {
+        throw new IOException("eth_getBlockByNumber failed: " + response.getError().getMessage());
+      }
+      blocks.add(((EthBlock) response).getBlock());
+    }
+    return blocks;
+  }
+
+  // Batch responses may come back in any order, so they are put back in request order by id.
+  private static List<? extends Response<?>> send(BatchRequest batch, String method) throws IOException {
+    List<? extends Response<?>> responses = AppMetrics.time("wallet.rpc", "method", method,
+        () -> batch.send().getResponses());
+    List<Response<?>> ordered = new ArrayList<>(responses);
+    ordered.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+    return ordered;
+  }
+
+  // Only tracked addresses get an entry, not the other side of their transfers.
+  private void addToIndex(Transfer transfer) {
+    if (tracked.test(transfer.getFrom())) {
+      addToIndex(transfer.getFrom(), transfer);
+    }
+    if (transfer.getTo() != null && !transfer.getTo().equals(transfer.getFrom()) && tracked.test(transfer.getTo())) {
+      addToIndex(transfer.getTo(), transfer);
+    }
+  }
+
+  private void addToIndex(String address, Transfer transfer) {
+    List<Transfer> list = byAddress.computeIfAbsent(address, key -> new ArrayList<>());
+    synchronized (list) {
+      list.add(transfer);
+    }
+  }
+
+  private void removeAfter(long block) {
+    for (List<Transfer> list : byAddress.values()) {
+      synchronized (list) {
+        list.removeIf(transfer -> transfer.getBlock() > block);
+      }
+    }
+  }
+
+  private void append(byte[] records) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(records);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    channel.force(false);
+  }
+
+  private void writeCheckpoint() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeLong(indexedBlock);
+    out.writeLong(channel.size());
+    out.writeInt(hashes.size());
+    for (Map.Entry<Long, String> entry : hashes.entrySet()) {
+      out.writeLong(entry.getKey());
+      out.write(Numeric.hexStringToByteArray(entry.getValue()));
+    }
+    Path temp = Path.of(checkpoint + ".tmp");
+    Files.write(temp, bytes.toByteArray());
+    Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  // Returns the log length the checkpoint vouches for, or 0 without a checkpoint.
+  private long readCheckpoint() throws IOException {
+    if (!Files.exists(checkpoint)) {
+      return 0;
+    }
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(checkpoint)))) {
+      indexedBlock = in.readLong();
+      long logLength = in.readLong();
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        long number = in.readLong();
+        byte[] hash = new byte[32];
+        in.readFully(hash);
+        hashes.put(number, Numeric.toHexString(hash));
+      }
+      return logLength;
+    }
+  }
+
+  private void replay() throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(log)));
+    byte[] body;
+    while ((body = RecordLog.readRecord(in)) != null) {
+      DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+      if (record.readByte() == ROLLBACK) {
+        removeAfter(record.readLong());
+      } else {
+        addToIndex(decode(record));
+      }
+    }
+  }
+
+  private static byte[] encode(Transfer transfer) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream(96);
+    DataOutputStream out = new DataOutputStream(body);
+    out.writeByte(TRANSFER);
+    out.writeLong(transfer.getBlock());
+    out.writeLong(transfer.getTimestamp());
+    out.write(Numeric.hexStringToByteArray(transfer.getHash()));
+    out.write(Numeric.hexStringToByteArray(transfer.getFrom()));
+    out.writeBoolean(transfer.getTo() != null);
+    if (transfer.getTo() != null) {
+      out.write(Numeric.hexStringToByteArray(transfer.getTo()));
+    }
+    byte[] value = transfer.getValue().toByteArray();
+    out.writeByte(value.length);
+    out.write(value);
+    return RecordLog.frame(body.toByteArray());
+  }
+
+  private static Transfer decode(DataInputStream in) throws IOException {
+    long block = in.readLong();
+    long timestamp = in.readLong();
+    String hash = Numeric.toHexString(readBytes(in, 32));
+    String from = Numeric.toHexString(readBytes(in, 20));
+    String to = in.readBoolean() ? Numeric.toHexString(readBytes(in, 20)) : null;
+    BigInteger value = new BigInteger(readBytes(in, in.readUnsignedByte()));
+    return new Transfer(block, timestamp, hash, from, to, value);
+  }
+
+  private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  private static String normalize(String address) {
+    return Numeric.prependHexPrefix(address).toLowerCase();
+  }
+
+  /**
+   * One successful ETH transfer from or to a tracked address.
+   */
+  public static final class Transfer {
+
+    private final long block;
+    private final long timestamp;
+    private final String hash;
+    private final String from;
+    private final String to;
+    private final BigInteger value;
+
+    Transfer(long block, long timestamp, String hash, String from, String to, BigInteger value) {
+      this.block = block;
+      this.timestamp = timestamp;
+      this.hash = hash;
+      this.from = from;
+      this.to = to;
+      this.value = value;
+    }
+
+    /**
+     * @return The block the transfer was mined in.
+     */
+    public long getBlock() {
+      return block;
+    }
+
+    /**
+     * @return The block's timestamp, in seconds since the epoch.
+     */
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    /**
+     * @return The transaction hash.
+     */
+    public String getHash() {
+      return hash;
+    }
+
+    /**
+     * @return The sender, lower case with the 0x prefix.
+     */
+    public String getFrom() {
+      return from;
+    }
+
+    /**
+     * @return The recipient, lower case with the 0x prefix, or null for a contract creation.
+     */
+    public String getTo() {
+      return to;
+    }
+
+    /**
+     * @return The amount moved, in wei.
+     */
+    public BigInteger getValue() {
+      return value;
+    }
+  }
+}
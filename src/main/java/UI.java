@@ -1,4 +1,11 @@
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
@@ -9,9 +16,12 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.stage.WindowEvent;
+import javafx.util.StringConverter;
 import java.util.ArrayList;
 import java.util.List;
 import org.web3j.protocol.exceptions.TransactionException;
+import org.web3j.utils.Convert;
 
 public class UI {
 
@@ -25,6 +35,11 @@ public class UI {
   private final TextField addressInput = new TextField();
   private final TextField amountInput = new TextField();
   private final Label transactionStatusLabel = new Label();
+  private final Button cancelTransactionButton = new Button("Cancel Transaction");
+  private CompletableFuture<String> pendingTransaction;
+  private final BalanceWatcher.Listener balanceListener = this::onBalancesChanged;
+  private PortfolioView portfolio;
+  private volatile boolean closed;
   private static final String STYLESHEET = "default.css";
   private static final String DEFAULT_RESOURCE_PACKAGE = "stylesheets/";
   private static final String DEFAULT_RESOURCE_FOLDER = "/" + DEFAULT_RESOURCE_PACKAGE;
@@ -34,11 +49,58 @@ public class UI {
     this.stage = stage;
     initializeFields();
     setScene();
+    stage.addEventHandler(WindowEvent.WINDOW_HIDDEN, event -> close());
+    watchBalances();
+  }
+
+  /**
+   * Stops the balance updates this user's screens receive. Called when the stage is closed.
+   */
+  public void close() {
+    closed = true;
+    user.stopWatchingBalances(balanceListener);
+    if (portfolio != null) {
+      portfolio.close();
+      portfolio = null;
+    }
+  }
+
+  // The balance label follows the loaded wallet as new blocks arrive, without clicking Get Balance.
+  // Closing may happen while this runs, so the listener is removed again if it did.
+  private void watchBalances() {
+    onFxThread(BackgroundExecutor.submit(() -> {
+      if (!closed) {
+        user.watchBalances(balanceListener);
+        if (closed) {
+          user.stopWatchingBalances(balanceListener);
+        }
+      }
+      return null;
+    }), (ignored, error) -> {
+      if (error != null) {
+        displayError("Unable to watch balances: " + error.getMessage());
+      }
+    });
+  }
+
+  private void onBalancesChanged(Map<String, BigInteger> balances, long block) {
+    String address = user.getCurrentAddress();
+    BigInteger wei = address == null ? null : balances.get(address.toLowerCase());
+    if (wei != null) {
+      double balance = Convert.fromWei(new BigDecimal(wei), Convert.Unit.ETHER).doubleValue();
+      Platform.runLater(() -> {
+        if (address.equals(user.getCurrentAddress())) {
+          balanceLabel.setText("Balance: " + balance);
+        }
+      });
+    }
   }
 
   private void initializeFields() {
     addressInput.setPromptText("Enter address");
     amountInput.setPromptText("Enter amount");
+    cancelTransactionButton.setDisable(true);
+    cancelTransactionButton.setOnAction(e -> cancelTransaction());
   }
 
   public void setScene() {
@@ -53,7 +115,7 @@ public class UI {
         balanceLabel,
         new Label("Address:"), addressInput,
         new Label("Amount:"), amountInput,
-        transactionStatusLabel
+        transactionStatusLabel, cancelTransactionButton
     );
 
     Scene scene = new Scene(pane, 800, 600);
@@ -86,6 +148,7 @@ public class UI {
     buttons.add(createButton("Sign Message", e -> signMessage()));
     buttons.add(createButton("Create new Wallet", e -> setMakeNewWalletScene()));
     buttons.add(createButton("Send Transaction", e -> sendTransaction()));
+    buttons.add(createButton("Portfolio", e -> setPortfolioScene()));
     return buttons;
   }
 
@@ -96,14 +159,19 @@ public class UI {
   }
 
   private void updateBalance() {
-    try {
-      double balance = user.getBalance();
-      balanceLabel.setText("Balance: " + balance);
-    } catch (NullPointerException npe) {
-      displayError("Please load a wallet first.");
-    } catch (Exception e) {
-      displayError(e.getMessage());
-    }
+    balanceLabel.setText("Balance: loading...");
+    onFxThread(user.getBalanceAsync(), (balance, error) -> {
+      if (error == null) {
+        balanceLabel.setText("Balance: " + balance);
+        return;
+      }
+      balanceLabel.setText("Balance: ");
+      if (error instanceof NullPointerException) {
+        displayError("Please load a wallet first.");
+      } else {
+        displayError(error.getMessage());
+      }
+    });
   }
 
   private void signMessage() {
@@ -118,21 +186,70 @@ public class UI {
   }
 
   private void sendTransaction() {
+    if (pendingTransaction != null) {
+      displayError("A transaction is already being sent.");
+      return;
+    }
+    double amount;
     try {
-      String transactionStatus =
-          user.sendTransaction(addressInput.getText(), Double.parseDouble(amountInput.getText()));
-      transactionStatusLabel.setText("Transaction Status: " + transactionStatus);
-    } catch (NullPointerException npe) {
-      displayError("Please load a wallet first.");
-    } catch (IOException e) {
-      displayError("Unable to contact Ethereum Network");
-    } catch (TransactionException e) {
-      displayError("Transaction Error");
-    } catch (InterruptedException e) {
-      displayError("Transaction Interrupted");
-    } catch (Exception e) {
+      amount = Double.parseDouble(amountInput.getText());
+    } catch (NumberFormatException e) {
       displayError("Unknown Error: Possible errors include an invalid address to send to or insufficient funds.");
+      return;
     }
+    transactionStatusLabel.setText("Transaction Status: sending and waiting to be mined...");
+    cancelTransactionButton.setDisable(false);
+    CompletableFuture<String> transaction = user.sendTransactionAsync(addressInput.getText(), amount);
+    pendingTransaction = transaction;
+    onFxThread(transaction, (transactionHash, error) -> {
+      if (pendingTransaction == transaction) {
+        pendingTransaction = null;
+        cancelTransactionButton.setDisable(true);
+      }
+      if (error == null) {
+        transactionStatusLabel.setText("Transaction Status: " + transactionHash);
+      } else if (error instanceof CancellationException) {
+        transactionStatusLabel.setText("Transaction Status: cancelled (it may still be mined if it was already submitted)");
+      } else {
+        transactionStatusLabel.setText("Transaction Status: failed");
+        displayError(describeTransactionError(error));
+      }
+    });
+  }
+
+  private void cancelTransaction() {
+    if (pendingTransaction != null) {
+      pendingTransaction.cancel(true);
+    }
+  }
+
+  private String describeTransactionError(Throwable error) {
+    if (error instanceof NullPointerException) {
+      return "Please load a wallet first.";
+    } else if (error instanceof IOException) {
+      return "Unable to contact Ethereum Network";
+    } else if (error instanceof TransactionException) {
+      return "Transaction Error";
+    } else if (error instanceof InterruptedException) {
+      return "Transaction Interrupted";
+    }
+    return "Unknown Error: Possible errors include an invalid address to send to or insufficient funds.";
+  }
+
+  /**
+   * Runs the handler on the JavaFX application thread once the future completes, passing the
+   * underlying cause instead of the CompletionException wrapper.
+   */
+  private <T> void onFxThread(CompletableFuture<T> future, ResultHandler<T> handler) {
+    future.whenComplete((result, error) -> {
+      Throwable cause = error instanceof CompletionException && error.getCause() != null
+          ? error.getCause() : error;
+      Platform.runLater(() -> handler.handle(result, cause));
+    });
+  }
+
+  private interface ResultHandler<T> {
+    void handle(T result, Throwable error);
   }
 
   private void displayError(String message) {
@@ -141,6 +258,22 @@ public class UI {
 
   private void loadWalletNames() {
     walletComboBox.getItems().setAll(user.getWalletNames());
+    onFxThread(user.getWalletAddressesAsync(), (addresses, error) -> {
+      if (error == null) {
+        walletComboBox.setConverter(new StringConverter<>() {
+          @Override
+          public String toString(String walletName) {
+            String address = walletName == null ? null : addresses.get(walletName);
+            return address == null ? walletName : address + "  (" + walletName + ")";
+          }
+
+          @Override
+          public String fromString(String label) {
+            return label;
+          }
+        });
+      }
+    });
   }
 
   private void setWalletPasswordScene(String walletName) {
@@ -157,19 +290,26 @@ public class UI {
     passwordField.setPromptText("Enter your password");
     passwordField.setMaxWidth(200);
 
+    Label statusLabel = new Label();
     Button confirmButton = new Button("Confirm");
     confirmButton.setOnAction(event -> {
-      try {
-        user.loadWallet(walletName, passwordField.getText());
-        infoLabel.setText("Wallet loaded successfully.");
-      } catch (Exception e) {
-        displayError("Failed to load wallet: " + e.getMessage());
-      }
-      setScene();
+      confirmButton.setDisable(true);
+      statusLabel.setText("Decrypting wallet...");
+      onFxThread(user.loadWalletAsync(walletName, passwordField.getText()), (ignored, error) -> {
+        if (error == null) {
+          infoLabel.setText("Wallet loaded successfully.");
+        } else {
+          displayError("Failed to load wallet: " + error.getMessage());
+        }
+        setScene();
+        if (error == null) {
+          updateBalance();
+        }
+      });
     });
 
     Button backButton = createBackButton();
-    pane.getChildren().addAll(passwordLabel, passwordField, confirmButton, backButton);
+    pane.getChildren().addAll(passwordLabel, passwordField, confirmButton, statusLabel, backButton);
     stage.setScene(walletScene);
   }
 
@@ -184,12 +324,16 @@ public class UI {
 
     Button confirmButton = new Button("Confirm");
     confirmButton.setOnAction(event -> {
-      try {
-        user.createNewAccount(password.getText());
-        infoLabel.setText("New wallet created successfully.");
-      } catch (Exception e) {
-        displayError("Failed to create wallet: " + e.getMessage());
-      }
+      confirmButton.setDisable(true);
+      infoLabel.setText("Creating wallet...");
+      onFxThread(user.createNewAccountAsync(password.getText()), (ignored, error) -> {
+        confirmButton.setDisable(false);
+        if (error == null) {
+          infoLabel.setText("New wallet created successfully.");
+        } else {
+          displayError("Failed to create wallet: " + error.getMessage());
+        }
+      });
     });
 
     Button backButton = createBackButton();
@@ -197,6 +341,22 @@ public class UI {
     stage.setScene(walletScene);
   }
 
+  private void setPortfolioScene() {
+    portfolio = new PortfolioView(user);
+    Button backButton = new Button("Back");
+    backButton.setOnAction(event -> {
+      portfolio.close();
+      portfolio = null;
+      setScene();
+    });
+
+    Pane pane = new VBox(10);
+    pane.getChildren().addAll(portfolio.getPane(), backButton);
+    Scene portfolioScene = new Scene(pane, 800, 600);
+    portfolioScene.getStylesheets().add(getClass().getResource(DEFAULT_RESOURCE_FOLDER + STYLESHEET).toExternalForm());
+    stage.setScene(portfolioScene);
+  }
+
   private Button createBackButton() {
     Button backButton = new Button("Back");
     backButton.setOnAction(event -> setScene());
@@ -0,0 +1,106 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+
+/**
+ * Collects keyed updates from any thread and hands them to a flush on another executor, such as
+ * {@code Platform::runLater}, with at most one flush queued at a time and flushes at least an
+ * interval apart, e.g. one frame. Updates that arrive while a flush is waiting are merged into it,
+ * so a burst of thousands of changes costs one task on the target thread rather than one each,
+ * and only the latest state per key is applied.
+ * @param <K> The key type.
+ * @param <V> The update type.
+ */
+public class UpdateBatcher<K, V> {
+
+  private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "update-batcher");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Executor executor;
+  private final BinaryOperator<V> merge;
+  private final Consumer<Map<K, V>> flush;
+  private final long intervalNanos;
+  private Map<K, V> pending = new HashMap<>();
+  private boolean flushQueued;
+  private long lastFlushAt;
+
+  /**
+   * @param executor Runs the flushes, e.g. {@code Platform::runLater}.
+   * @param merge Combines an older and a newer update for the same key.
+   * @param flush Applies a batch of updates, on the executor.
+   * @param intervalMillis The least time between the start of two flushes.
+   */
+  public UpdateBatcher(Executor executor, BinaryOperator<V> merge, Consumer<Map<K, V>> flush,
+      long intervalMillis) {
+    this.executor = executor;
+    this.merge = merge;
+    this.flush = flush;
+    this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    lastFlushAt = System.nanoTime() - intervalNanos;
+  }
+
+  /**
+   * Adds an update to the next flush, queueing one if none is waiting.
+   * @param key What the update is for.
+   * @param update The update.
+   */
+  public void offer(K key, V update) {
+    synchronized (this) {
+      pending.merge(key, update, merge);
+      if (flushQueued) {
+        return;
+      }
+      flushQueued = true;
+    }
+    queueFlush();
+  }
+
+  /**
+   * Adds several updates to the next flush at once.
+   * @param updates The updates, by key.
+   */
+  public void offerAll(Map<K, V> updates) {
+    if (updates.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      updates.forEach((key, update) -> pending.merge(key, update, merge));
+      if (flushQueued) {
+        return;
+      }
+      flushQueued = true;
+    }
+    queueFlush();
+  }
+
+  private void queueFlush() {
+    long wait;
+    synchronized (this) {
+      wait = lastFlushAt + intervalNanos - System.nanoTime();
+    }
+    if (wait <= 0) {
+      executor.execute(this::flush);
+    } else {
+      timer.schedule(() -> executor.execute(this::flush), wait, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void flush() {
+    Map<K, V> batch;
+    synchronized (this) {
+      batch = pending;
+      pending = new HashMap<>();
+      flushQueued = false;
+      lastFlushAt = System.nanoTime();
+    }
+    flush.accept(batch);
+  }
+}
@@ -1,6 +1,22 @@
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import java.io.File;
 import java.io.IOException;
@@ -8,19 +24,22 @@ import java.security.InvalidAlgorithmParameterException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import org.web3j.crypto.Credentials;
-import org.web3j.crypto.Hash;
-import org.web3j.crypto.Sign;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Keys;
+import org.web3j.crypto.WalletFile;
 import org.web3j.crypto.WalletUtils;
 import org.web3j.crypto.exception.CipherException;
+import org.web3j.protocol.ObjectMapperFactory;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthGasPrice;
 import org.web3j.protocol.core.methods.response.EthGetBalance;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.protocol.exceptions.TransactionException;
-import org.web3j.protocol.http.HttpService;
+import org.web3j.tx.RawTransactionManager;
 import org.web3j.tx.Transfer;
 import org.web3j.utils.Convert;
-import org.web3j.utils.Convert.Unit;
 import org.web3j.utils.Numeric;
 
 /**
@@ -30,24 +49,75 @@ public class User {
 
   private final XMLParser parser;
   private final String username;
-  private Credentials currentWallet;
+  private volatile Credentials currentWallet;
   private final Web3j web3;
-  private static final String walletDirectory = System.getProperty("user.dir") + "/src/main/resources/walletDirectory";
-  private static final String httpService = "https://sepolia.infura.io/v3/bcd588d5219e459fa5faa21bf429c957";
+  private final BalanceCache balanceCache;
+  private final ReceiptTracker receiptTracker;
+  private final RpcCoalescer coalescer;
+  private final FeeOracle feeOracle;
+  private volatile CredentialCache credentialCache;
+  private final List<BalanceWatcher.Listener> balanceListeners = new CopyOnWriteArrayList<>();
+  private final Map<String, Integer> pendingCounts = new ConcurrentHashMap<>();
+  private final List<PendingListener> pendingListeners = new CopyOnWriteArrayList<>();
+  private static final Set<String> derivedAddressDirectories = ConcurrentHashMap.newKeySet();
+  private static final long SCRYPT_BYTES_PER_TASK = 256L * 1024 * 1024;
+  private static final String DEFAULT_WALLET_DIRECTORY =
+      System.getProperty("user.dir") + "/src/main/resources/walletDirectory";
+  private final String walletDirectory;
 
   /**
-   * Constructs a User object and initializes the user interface.
+   * Constructs a User object backed by the shared user directory.
    * @param username The username of the user.
    */
   public User(String username) {
+    this(username, XMLParser.getInstance());
+  }
+
+  /**
+   * Constructs a User object backed by the given user directory and the shared RPC client.
+   * @param username The username of the user.
+   * @param parser The user directory that holds this user's wallets.
+   */
+  public User(String username, XMLParser parser) {
+    this(username, parser, RpcClientFactory.getInstance().web3j());
+  }
+
+  /**
+   * Constructs a User object backed by the given user directory and RPC client.
+   * @param username The username of the user.
+   * @param parser The user directory that holds this user's wallets.
+   * @param web3 The RPC client, borrowed from {@link RpcClientFactory} and not owned by this user.
+   */
+  public User(String username, XMLParser parser, Web3j web3) {
+    this(username, parser, web3, new File(DEFAULT_WALLET_DIRECTORY));
+  }
+
+  User(String username, XMLParser parser, Web3j web3, File walletDirectory) {
     this.username = username;
-    parser = new XMLParser();
+    this.parser = parser;
+    this.walletDirectory = walletDirectory.getPath();
     currentWallet = null;
-    web3 = Web3j.build(new HttpService(httpService));
+    this.web3 = web3;
+    balanceCache = BalanceCache.forClient(web3);
+    receiptTracker = ReceiptTracker.forClient(web3);
+    coalescer = RpcCoalescer.forClient(web3);
+    feeOracle = FeeOracle.forClient(web3);
+    if (Boolean.getBoolean("wallets.credentialCache")) {
+      credentialCache = CredentialCache.fromProperties();
+    }
+    if (Boolean.getBoolean("history.enabled")) {
+      try {
+        transactionHistory();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
   }
 
   /**
-   * Creates a new Ethereum wallet file with the specified password.
+   * Creates a new Ethereum wallet file with the specified password. With {@code wallets.hd} set,
+   * derives the next child of the user's {@link HdWallet} instead, creating its seed with this
+   * password on first use; the password must then be the seed's.
    * @param walletPassword The password to encrypt the wallet.
    * @throws InvalidAlgorithmParameterException If the algorithm parameters are not valid.
    * @throws CipherException If the encryption cannot be performed.
@@ -57,30 +127,387 @@ public class User {
    */
   public void createNewAccount(String walletPassword)
       throws InvalidAlgorithmParameterException, CipherException, NoSuchAlgorithmException, IOException, NoSuchProviderException {
-    String walletName = WalletUtils.generateNewWalletFile(walletPassword, new File(walletDirectory));
+    if (Boolean.getBoolean("wallets.hd")) {
+      createDerivedAccount(walletPassword);
+      return;
+    }
+    // generateNewWalletFile in two steps, so the timed one throws only CipherException and IOException.
+    ECKeyPair keyPair = Keys.createEcKeyPair();
+    String walletName = AppMetrics.<String, CipherException, IOException>time("wallet.create",
+        () -> WalletUtils.generateWalletFile(walletPassword, keyPair, new File(walletDirectory), true));
     parser.addNewWallet(username, walletName);
+    refreshIndex(List.of(walletName));
+    watchNewWallets(List.of(walletName));
+  }
+
+  private void createDerivedAccount(String walletPassword) throws CipherException, IOException {
+    HdWallet hdWallet = hdWallet();
+    String walletName;
+    synchronized (hdWallet) {
+      if (hdWallet.exists()) {
+        hdWallet.unlock(walletPassword);
+      } else {
+        hdWallet.create(walletPassword);
+      }
+      int next = 0;
+      for (String name : getWalletNames()) {
+        if (HdWallet.isDerivedName(name)) {
+          next = Math.max(next, HdWallet.indexOf(name) + 1);
+        }
+      }
+      walletName = HdWallet.nameOf(next);
+      if (!parser.addNewWallets(username, List.of(walletName))) {
+        throw new IOException("Unable to register the new wallet");
+      }
+    }
+    // Derived now so the transaction history tracks it straight away.
+    hdWallet.address(walletName);
+    AppMetrics.count("wallet.create.derived");
+    watchNewWallets(List.of(walletName));
+  }
+
+  private HdWallet hdWallet() {
+    return HdWallet.forUser(new File(walletDirectory), username);
   }
 
   /**
-   * Loads an Ethereum wallet by name and password.
-   * @param walletName The file name of the wallet.
-   * @param walletPassword The password of the wallet.
+   * Creates many wallet files at once and registers them in a single save. Key generation and
+   * keystore encryption run in parallel, limited to {@link #provisioningParallelism()} wallets at a
+   * time. If any wallet fails, every file written by this call is deleted and none are registered.
+   * @param count The number of wallets to create.
+   * @param policy Chooses each wallet's password.
+   * @return The password of each new wallet, keyed by wallet file name, in creation order.
+   * @throws IOException If a wallet cannot be created or the wallets cannot be registered.
+   * @throws InterruptedException If interrupted while waiting for the wallets.
+   */
+  public Map<String, String> createNewAccounts(int count, WalletPasswordPolicy policy)
+      throws IOException, InterruptedException {
+    File directory = new File(walletDirectory);
+    int parallelism = Math.min(count, provisioningParallelism());
+    ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+      Thread thread = new Thread(r, "wallet-provisioning");
+      thread.setDaemon(true);
+      return thread;
+    });
+    List<Future<String>> names = new ArrayList<>(count);
+    List<String> passwords = new ArrayList<>(count);
+    Map<String, String> created = new LinkedHashMap<>();
+    boolean registered = false;
+    try {
+      for (int i = 0; i < count; i++) {
+        String password = policy.passwordFor(i);
+        passwords.add(password);
+        names.add(pool.submit(() -> WalletUtils.generateNewWalletFile(password, directory)));
+      }
+      for (int i = 0; i < count; i++) {
+        created.put(names.get(i).get(), passwords.get(i));
+      }
+      if (!parser.addNewWallets(username, new ArrayList<>(created.keySet()))) {
+        throw new IOException("Unable to register the new wallets");
+      }
+      registered = true;
+      refreshIndex(created.keySet());
+      watchNewWallets(created.keySet());
+      return created;
+    } catch (ExecutionException e) {
+      throw new IOException("Unable to create wallet", e.getCause());
+    } finally {
+      // Tasks that never started would leave get() waiting forever, so cancel them.
+      for (Runnable queued : pool.shutdownNow()) {
+        ((Future<?>) queued).cancel(false);
+      }
+      if (!registered) {
+        deleteNewWallets(directory, names);
+      }
+    }
+  }
+
+  private void refreshIndex(Collection<String> walletNames) {
+    KeystoreIndex index = keystoreIndex();
+    if (index != null) {
+      walletNames.forEach(index::refresh);
+    }
+  }
+
+  // Waits for tasks still running so their files can be removed as well.
+  private static void deleteNewWallets(File directory, List<Future<String>> names) {
+    for (Future<String> name : names) {
+      try {
+        new File(directory, name.get()).delete();
+      } catch (Exception e) {
+        // The task failed or was cancelled before writing a file.
+      }
+    }
+  }
+
+  /**
+   * Returns how many wallets {@link #createNewAccounts} encrypts at once: one per core, but no more
+   * than the free heap allows, since each scrypt run needs about 256 MB. Can be overridden with
+   * {@code wallets.provisioning.parallelism}.
+   * @return The number of concurrent key generation tasks.
+   */
+  public static int provisioningParallelism() {
+    Integer configured = Integer.getInteger("wallets.provisioning.parallelism");
+    if (configured != null) {
+      return Math.max(1, configured);
+    }
+    Runtime runtime = Runtime.getRuntime();
+    long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+    int byMemory = (int) (available / SCRYPT_BYTES_PER_TASK);
+    return Math.max(1, Math.min(runtime.availableProcessors(), byMemory));
+  }
+
+  /**
+   * Loads an Ethereum wallet by name and password. A derived wallet's keys come from the user's
+   * {@link HdWallet}, whose seed is decrypted only on the first such load of the session.
+   * @param walletName The file name of the wallet, or the {@code hd-<index>} name of a derived wallet.
+   * @param walletPassword The password of the wallet, or of the seed for a derived wallet.
    * @throws CipherException If the encryption cannot be performed.
    * @throws IOException If there is an I/O error loading the wallet file.
    */
   public void loadWallet(String walletName, String walletPassword)
       throws CipherException, IOException {
-    currentWallet = WalletUtils.loadCredentials(walletPassword, walletDirectory + "/" + walletName);
+    if (HdWallet.isDerivedName(walletName)) {
+      currentWallet = AppMetrics.<Credentials, CipherException, IOException>time("wallet.derive",
+          () -> hdWallet().credentials(walletName, walletPassword));
+      return;
+    }
+    CredentialCache cache = credentialCache;
+    if (cache != null) {
+      Credentials cached = cache.get(walletName, walletPassword);
+      AppMetrics.count("wallet.credential.cache", "result", cached != null ? "hit" : "miss");
+      if (cached != null) {
+        currentWallet = cached;
+        return;
+      }
+    }
+    long start = System.nanoTime();
+    Credentials credentials = AppMetrics.<Credentials, CipherException, IOException>time("wallet.decrypt",
+        () -> WalletUtils.loadCredentials(walletPassword, walletDirectory + "/" + walletName));
+    if (cache != null) {
+      cache.put(walletName, walletPassword, credentials, System.nanoTime() - start);
+    }
+    currentWallet = credentials;
+  }
+
+  /**
+   * Keeps decrypted wallets for this session so switching back to one skips the keystore's scrypt
+   * run. Off unless {@code wallets.credentialCache} is set or this is called.
+   * @param cache The cache to use, or null to stop caching and forget every cached key.
+   */
+  public void setCredentialCache(CredentialCache cache) {
+    CredentialCache previous = credentialCache;
+    credentialCache = cache;
+    if (previous != null && previous != cache) {
+      previous.clear();
+    }
+  }
+
+  /**
+   * @return This session's credential cache, or null if caching is off.
+   */
+  public CredentialCache getCredentialCache() {
+    return credentialCache;
+  }
+
+  /**
+   * Forgets every decrypted wallet cached for this session, e.g. on logout.
+   */
+  public void clearCredentialCache() {
+    CredentialCache cache = credentialCache;
+    if (cache != null) {
+      cache.clear();
+    }
   }
 
   /**
-   * Retrieves the current balance of the loaded wallet in Ether.
+   * Retrieves the current balance of the loaded wallet in Ether. Repeated reads within the same
+   * block are answered from the shared {@link BalanceCache}.
    * @return The balance in Ether.
    * @throws IOException If there is an I/O error when fetching the balance.
    */
   public double getBalance() throws IOException {
-    EthGetBalance balanceWei = web3.ethGetBalance(currentWallet.getAddress(), DefaultBlockParameterName.LATEST).send();
-    return Convert.fromWei(balanceWei.getBalance().toString(), Convert.Unit.ETHER).doubleValue();
+    BigInteger balanceWei = balanceCache.get(currentWallet.getAddress(), this::fetchBalance);
+    return Convert.fromWei(new BigDecimal(balanceWei), Convert.Unit.ETHER).doubleValue();
+  }
+
+  // Concurrent reads of the same address, from any user, share one request.
+  private BigInteger fetchBalance(String address) throws IOException {
+    return coalescer.call("eth_getBalance", List.of(address.toLowerCase(), "latest"), () -> sendGetBalance(address));
+  }
+
+  private BigInteger sendGetBalance(String address) throws IOException {
+    return AppMetrics.time("wallet.rpc", "method", "eth_getBalance", () -> {
+      EthGetBalance balanceWei = web3.ethGetBalance(address, DefaultBlockParameterName.LATEST).send();
+      if (balanceWei.hasError()) {
+        throw new IOException("eth_getBalance failed: " + balanceWei.getError().getMessage());
+      }
+      return balanceWei.getBalance();
+    });
+  }
+
+  /**
+   * Retrieves the balance of every wallet this user owns, without decrypting any keystore.
+   * Addresses come from the {@link KeystoreIndex} and balances not already cached for the current
+   * block are fetched in JSON-RPC batches.
+   * @return Balances in wei keyed by wallet name, in the order of {@link #getWalletNames()}.
+   * @throws IOException If a keystore cannot be read or a balance cannot be fetched.
+   */
+  public Map<String, BigInteger> getWalletBalances() throws IOException {
+    Map<String, String> addresses = getWalletAddresses();
+
+    long head = ChainHeadTracker.forClient(web3).head();
+    Map<String, BigInteger> cached = new HashMap<>();
+    List<String> missing = new ArrayList<>();
+    for (String address : addresses.values()) {
+      BigInteger wei = balanceCache.getIfFresh(address);
+      if (wei != null) {
+        cached.put(address, wei);
+      } else if (!missing.contains(address)) {
+        missing.add(address);
+      }
+    }
+    Map<String, BigInteger> fetched = BalanceBatch.fetch(web3, missing, BalanceBatch.chunkSize());
+    fetched.forEach((address, wei) -> balanceCache.put(address, wei, head));
+    cached.putAll(fetched);
+
+    Map<String, BigInteger> balances = new LinkedHashMap<>();
+    addresses.forEach((walletName, address) -> balances.put(walletName, cached.get(address)));
+    return balances;
+  }
+
+  /**
+   * Looks up a wallet's address without decrypting it, from the {@link KeystoreIndex} of the
+   * wallet directory, or from the keystore file if the index does not have it yet. A derived
+   * wallet's address comes from the public key stored with its seed.
+   * @param walletName The file name of the wallet.
+   * @return The 0x-prefixed address.
+   * @throws IOException If the keystore cannot be read.
+   */
+  public String getWalletAddress(String walletName) throws IOException {
+    if (HdWallet.isDerivedName(walletName)) {
+      return hdWallet().address(walletName);
+    }
+    KeystoreIndex index = keystoreIndex();
+    String address = index != null ? index.address(walletName) : null;
+    return address != null ? address : readWalletAddress(walletName);
+  }
+
+  /**
+   * Looks up the address of every wallet this user owns without decrypting any of them.
+   * @return Addresses keyed by wallet name, in the order of {@link #getWalletNames()}.
+   * @throws IOException If a keystore cannot be read.
+   */
+  public Map<String, String> getWalletAddresses() throws IOException {
+    Map<String, String> addresses = new LinkedHashMap<>();
+    for (String walletName : getWalletNames()) {
+      addresses.put(walletName, getWalletAddress(walletName));
+    }
+    return addresses;
+  }
+
+  private KeystoreIndex keystoreIndex() {
+    try {
+      return KeystoreIndex.forDirectory(new File(walletDirectory));
+    } catch (IOException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  private String readWalletAddress(String walletName) throws IOException {
+    WalletFile walletFile = ObjectMapperFactory.getObjectMapper()
+        .readValue(new File(walletDirectory, walletName), WalletFile.class);
+    return Numeric.prependHexPrefix(walletFile.getAddress());
+  }
+
+  /**
+   * Looks up a wallet's transfers in the local {@link TransactionHistory} without asking the node.
+   * The index starts following the chain on first use, or when the user is constructed if
+   * {@code history.enabled} is set, and only holds transfers from then on.
+   * @param walletName The file name of the wallet.
+   * @param limit The most transfers to return.
+   * @return The wallet's newest transfers, newest first.
+   * @throws IOException If the keystore or the history files cannot be read.
+   */
+  public List<TransactionHistory.Transfer> getTransactionHistory(String walletName, int limit)
+      throws IOException {
+    return transactionHistory().transfers(getWalletAddress(walletName), limit);
+  }
+
+  private TransactionHistory transactionHistory() throws IOException {
+    File directory = new File(walletDirectory);
+    String key = directory.getAbsolutePath();
+    if (!derivedAddressDirectories.contains(key)) {
+      // Before the history starts, so transfers of derived wallets are indexed after a restart.
+      // Two first callers may both derive, which is harmless; a failure is retried next time.
+      HdWallet.deriveAddresses(directory, parser);
+      derivedAddressDirectories.add(key);
+    }
+    return TransactionHistory.forClient(web3, KeystoreIndex.forDirectory(directory));
+  }
+
+  /**
+   * Pushes the balances of every wallet this user owns to the listener, first all of them and then
+   * only those that change, as the process-wide {@link BalanceWatcher} sees new blocks. Wallets
+   * created later are added to the watch.
+   * @param listener Receives balances in wei keyed by lower-case address, on the watcher thread.
+   * @throws IOException If a keystore cannot be read.
+   */
+  public void watchBalances(BalanceWatcher.Listener listener) throws IOException {
+    balanceListeners.add(listener);
+    BalanceWatcher.forClient(web3).watch(getWalletAddresses().values(), listener);
+  }
+
+  /**
+   * Stops pushing balances to a listener passed to {@link #watchBalances}.
+   * @param listener The listener.
+   */
+  public void stopWatchingBalances(BalanceWatcher.Listener listener) {
+    balanceListeners.remove(listener);
+    BalanceWatcher.forClient(web3).unwatch(listener);
+  }
+
+  /**
+   * @return The number of transactions this user submitted that are not mined yet, keyed by
+   *     lower-case sender address. Addresses with none are left out.
+   */
+  public Map<String, Integer> getPendingCounts() {
+    return Map.copyOf(pendingCounts);
+  }
+
+  /**
+   * Tells a listener whenever a wallet's count of unmined transactions changes.
+   * @param listener Called on the submitting thread or the receipt poller thread.
+   */
+  public void watchPendingCounts(PendingListener listener) {
+    pendingListeners.add(listener);
+  }
+
+  /**
+   * Stops telling a listener passed to {@link #watchPendingCounts} about changes.
+   * @param listener The listener.
+   */
+  public void stopWatchingPendingCounts(PendingListener listener) {
+    pendingListeners.remove(listener);
+  }
+
+  private void watchNewWallets(Collection<String> walletNames) {
+    if (balanceListeners.isEmpty()) {
+      return;
+    }
+    List<String> addresses = new ArrayList<>();
+    try {
+      for (String walletName : walletNames) {
+        addresses.add(getWalletAddress(walletName));
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+      return;
+    }
+    for (BalanceWatcher.Listener listener : balanceListeners) {
+      BalanceWatcher.forClient(web3).watch(addresses, listener);
+    }
   }
 
   /**
@@ -89,14 +516,18 @@ public class User {
    * @return The signature in hexadecimal format.
    */
   public String signMessage(String msg) {
-    byte[] messageHash = Hash.sha3(msg.getBytes());
-    Sign.SignatureData signature = Sign.signPrefixedMessage(messageHash, currentWallet.getEcKeyPair());
-    byte[] sigBytes = new byte[65];
-    System.arraycopy(signature.getR(), 0, sigBytes, 0, 32);
-    System.arraycopy(signature.getS(), 0, sigBytes, 32, 32);
-    byte v = signature.getV().length > 0 ? signature.getV()[0] : 0;
-    sigBytes[64] = v;
-    return Numeric.toHexString(sigBytes);
+    return AppMetrics.time("wallet.sign", () -> Numeric.toHexString(new MessageSigner(currentWallet).sign(msg)));
+  }
+
+  /**
+   * Signs many messages with the currently loaded wallet's private key, in parallel. Each
+   * signature matches what {@link #signMessage(String)} returns for the same message.
+   * @param messages The messages to be signed.
+   * @return The raw signatures, {@value MessageSigner#SIGNATURE_LENGTH} bytes each, in message
+   *     order; {@link MessageSigner#toHex} converts one to hex.
+   */
+  public byte[] signMessages(List<String> messages) {
+    return new MessageSigner(currentWallet).signAll(messages);
   }
 
   /**
@@ -122,12 +553,230 @@ public class User {
    */
   public String sendTransaction(String to, double amount)
       throws TransactionException, IOException, InterruptedException, Exception {
-    BigDecimal amountInWei = Convert.toWei(BigDecimal.valueOf(amount), Convert.Unit.ETHER);
-    TransactionReceipt transactionReceipt = Transfer.sendFunds(web3, currentWallet, to, amountInWei,
-        Unit.ETHER).send();
-    return transactionReceipt.getTransactionHash();
+    PendingTransaction transaction = submitTransaction(to, amount);
+    long waitMillis = receiptTracker.maxWaitMillis();
+    try {
+      return checkStatus(transaction.included().get(waitMillis, TimeUnit.MILLISECONDS))
+          .getTransactionHash();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    } catch (TimeoutException e) {
+      throw new TransactionException("Transaction receipt was not generated after "
+          + waitMillis / 1000 + " seconds for transaction: " + transaction.getTransactionHash());
+    }
+  }
+
+  /**
+   * Signs and submits a transfer without waiting for it to be mined. The shared
+   * {@link ReceiptTracker} follows the receipt, so no thread is held while it is pending. The
+   * transfer is an EIP-1559 transaction priced by the shared {@link FeeOracle}, unless
+   * {@code transactions.legacy} is set.
+   * @param to The recipient's address.
+   * @param amount The amount to send, in Ether.
+   * @return The pending transaction, whose futures complete on inclusion and confirmations.
+   * @throws TransactionException If the node rejects the transaction.
+   * @throws IOException If there is a communication issue with the Ethereum network.
+   */
+  public PendingTransaction submitTransaction(String to, double amount)
+      throws TransactionException, IOException {
+    Credentials wallet = currentWallet;
+    String from = wallet.getAddress();
+    BigInteger amountInWei = Convert.toWei(BigDecimal.valueOf(amount), Convert.Unit.ETHER)
+        .toBigIntegerExact();
+    EthSendTransaction sent = Boolean.getBoolean("transactions.legacy")
+        ? sendLegacy(wallet, to, amountInWei) : sendDynamicFee(wallet, to, amountInWei);
+    balanceCache.invalidate(from);
+    PendingTransaction transaction = receiptTracker.track(sent.getTransactionHash());
+    String address = from.toLowerCase();
+    changePendingCount(address, 1);
+    transaction.included().whenComplete((receipt, error) -> changePendingCount(address, -1));
+    return transaction;
+  }
+
+  /**
+   * Pays every address in the list from the loaded wallet with a {@link PayoutEngine}, keeping
+   * several transfers unmined at once instead of waiting for each. If the run stops part way, call
+   * again with the same list and checkpoint file to finish it without paying anyone twice.
+   * @param payouts The recipients and amounts, e.g. from {@link PayoutEngine#readCsv}.
+   * @param checkpointFile Where progress is recorded.
+   * @return One outcome per payout, in list order.
+   * @throws IOException If the checkpoint belongs to another list or the node cannot be reached.
+   * @throws InterruptedException If the thread is interrupted; the run can be resumed.
+   */
+  public List<PayoutEngine.Outcome> sendPayouts(List<PayoutEngine.Payout> payouts, File checkpointFile)
+      throws IOException, InterruptedException {
+    Credentials wallet = currentWallet;
+    try {
+      return PayoutEngine.forClient(web3, wallet).run(payouts, checkpointFile);
+    } finally {
+      balanceCache.invalidate(wallet.getAddress());
+    }
+  }
+
+  private void changePendingCount(String address, int delta) {
+    Integer count = pendingCounts.compute(address, (key, old) -> {
+      int updated = (old == null ? 0 : old) + delta;
+      return updated == 0 ? null : updated;
+    });
+    for (PendingListener listener : pendingListeners) {
+      listener.pendingCountChanged(address, count == null ? 0 : count);
+    }
+  }
+
+  // Fees come from the shared FeeOracle, and a plain transfer always uses 21000 gas, so the only
+  // calls left per send are the nonce lookup and the send itself.
+  private EthSendTransaction sendDynamicFee(Credentials wallet, String to, BigInteger amountInWei)
+      throws TransactionException, IOException {
+    FeeOracle.Fees fees = feeOracle.fees();
+    long chainId = feeOracle.chainId();
+    return AppMetrics.<EthSendTransaction, TransactionException, IOException>time("wallet.rpc", "method",
+        "eth_sendRawTransaction", () -> checkSent(new RawTransactionManager(web3, wallet, chainId)
+            .sendEIP1559Transaction(chainId, fees.getPriorityFee(), fees.getMaxFee(), Transfer.GAS_LIMIT, to, "",
+                amountInWei, false)));
+  }
+
+  // For chains without EIP-1559, selected with -Dtransactions.legacy=true.
+  private EthSendTransaction sendLegacy(Credentials wallet, String to, BigInteger amountInWei)
+      throws TransactionException, IOException {
+    BigInteger gasPrice = coalescer.call("eth_gasPrice", List.of(), this::fetchGasPrice);
+    return AppMetrics.<EthSendTransaction, TransactionException, IOException>time("wallet.rpc", "method",
+        "eth_sendRawTransaction", () -> checkSent(new RawTransactionManager(web3, wallet)
+            .sendTransaction(gasPrice, Transfer.GAS_LIMIT, to, "", amountInWei)));
+  }
+
+  private static EthSendTransaction checkSent(EthSendTransaction sent) throws TransactionException {
+    if (sent.hasError()) {
+      throw new TransactionException("Error processing transaction request: " + sent.getError().getMessage());
+    }
+    return sent;
+  }
+
+  private BigInteger fetchGasPrice() throws IOException {
+    return AppMetrics.time("wallet.rpc", "method", "eth_gasPrice", () -> {
+      EthGasPrice gasPrice = web3.ethGasPrice().send();
+      if (gasPrice.hasError()) {
+        throw new IOException("eth_gasPrice failed: " + gasPrice.getError().getMessage());
+      }
+      return gasPrice.getGasPrice();
+    });
+  }
+
+  private static TransactionReceipt checkStatus(TransactionReceipt receipt) throws TransactionException {
+    if (!receipt.isStatusOK()) {
+      throw new TransactionException("Transaction has failed with status: " + receipt.getStatus(), receipt);
+    }
+    return receipt;
+  }
+
+  /**
+   * Asynchronous version of {@link #getBalance()}, run on the {@link BackgroundExecutor}.
+   * @return A future completed with the balance in Ether.
+   */
+  public CompletableFuture<Double> getBalanceAsync() {
+    return BackgroundExecutor.submit(this::getBalance);
+  }
+
+  /**
+   * Asynchronous version of {@link #loadWallet(String, String)}, run on the
+   * {@link BackgroundExecutor} so scrypt never blocks the caller.
+   * @param walletName The file name of the wallet.
+   * @param walletPassword The password of the wallet.
+   * @return A future completed once the wallet is loaded.
+   */
+  public CompletableFuture<Void> loadWalletAsync(String walletName, String walletPassword) {
+    return BackgroundExecutor.submit(() -> {
+      loadWallet(walletName, walletPassword);
+      return null;
+    });
+  }
+
+  /**
+   * Asynchronous version of {@link #sendTransaction(String, double)}. Submission runs on the
+   * {@link BackgroundExecutor} and the receipt is followed by the shared {@link ReceiptTracker},
+   * so no thread waits for the transaction to be mined. Cancelling the future stops waiting for the receipt, but a
+   * transaction that was already submitted may still be mined.
+   * @param to The recipient's address.
+   * @param amount The amount to send, in Ether.
+   * @return A future completed with the transaction hash.
+   */
+  public CompletableFuture<String> sendTransactionAsync(String to, double amount) {
+    CompletableFuture<PendingTransaction> submitted =
+        BackgroundExecutor.submit(() -> submitTransaction(to, amount));
+    CompletableFuture<String> mined = submitted
+        .thenCompose(PendingTransaction::included)
+        .thenApply(receipt -> {
+          try {
+            return checkStatus(receipt).getTransactionHash();
+          } catch (TransactionException e) {
+            throw new CompletionException(e);
+          }
+        });
+    mined.whenComplete((hash, error) -> {
+      if (mined.isCancelled()) {
+        submitted.cancel(true);
+      }
+    });
+    return mined;
+  }
+
+  /**
+   * Asynchronous version of {@link #sendPayouts(List, File)}, run on the {@link BackgroundExecutor}.
+   * @param payouts The recipients and amounts.
+   * @param checkpointFile Where progress is recorded.
+   * @return A future completed with one outcome per payout.
+   */
+  public CompletableFuture<List<PayoutEngine.Outcome>> sendPayoutsAsync(List<PayoutEngine.Payout> payouts,
+      File checkpointFile) {
+    return BackgroundExecutor.submit(() -> sendPayouts(payouts, checkpointFile));
+  }
+
+  /**
+   * Asynchronous version of {@link #getWalletAddresses()}, run on the {@link BackgroundExecutor}.
+   * @return A future completed with addresses keyed by wallet name.
+   */
+  public CompletableFuture<Map<String, String>> getWalletAddressesAsync() {
+    return BackgroundExecutor.submit(this::getWalletAddresses);
   }
 
+  /**
+   * Asynchronous version of {@link #createNewAccount(String)}, run on the
+   * {@link BackgroundExecutor}.
+   * @param walletPassword The password to encrypt the wallet.
+   * @return A future completed once the wallet file is written and registered.
+   */
+  public CompletableFuture<Void> createNewAccountAsync(String walletPassword) {
+    return BackgroundExecutor.submit(() -> {
+      createNewAccount(walletPassword);
+      return null;
+    });
+  }
+
+  /**
+   * Asynchronous version of {@link #createNewAccounts(int, WalletPasswordPolicy)}, run on the
+   * {@link BackgroundExecutor}.
+   * @param count The number of wallets to create.
+   * @param policy Chooses each wallet's password.
+   * @return A future completed with the new wallets' passwords keyed by wallet file name.
+   */
+  public CompletableFuture<Map<String, String>> createNewAccountsAsync(int count,
+      WalletPasswordPolicy policy) {
+    return BackgroundExecutor.submit(() -> createNewAccounts(count, policy));
+  }
+
+  /**
+   * @return Whether a wallet has been loaded in this session.
+   */
+  public boolean hasWalletLoaded() {
+    return currentWallet != null;
+  }
+
+  /**
+   * @return The 0x-prefixed address of the loaded wallet, or null if none is loaded.
+   */
+  public String getCurrentAddress() {
+    Credentials wallet = currentWallet;
+    return wallet == null ? null : wallet.getAddress();
+  }
 
   /**
    * Gets the username of this user.
@@ -136,4 +785,11 @@ public class User {
   public String getUsername() {
     return username;
   }
+
+  /**
+   * Receives changes to the number of unmined transactions sent from a wallet.
+   */
+  public interface PendingListener {
+    void pendingCountChanged(String address, int count);
+  }
 }
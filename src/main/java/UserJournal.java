@@ -0,0 +1,268 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only journal of user store mutations that sits next to the users.xml snapshot.
+ * Signups and new wallets are appended as small checksummed records instead of rewriting the
+ * whole document; concurrent appends share a single fsync. A background task folds the journal
+ * back into a fresh snapshot once it grows past a size threshold.
+ */
+public class UserJournal {
+
+  private static final byte NEW_USER = 1;
+  private static final byte NEW_WALLET = 2;
+  private static final String COMPACT_BYTES_PROPERTY = "users.journal.compactBytes";
+  private static final long DEFAULT_COMPACT_BYTES = 4L * 1024 * 1024;
+  private static final long COMPACT_CHECK_SECONDS = 30;
+
+  private static final Map<Path, UserJournal> journals = new ConcurrentHashMap<>();
+  private static final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "user-journal-compactor");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Path snapshot;
+  private final Path journal;
+  private final Path rotatedJournal;
+  private final long compactBytes;
+  private final Object syncLock = new Object();
+  private final Object compactionLock = new Object();
+  private volatile FileChannel channel;
+  private volatile long written;
+  private long synced;
+
+  private UserJournal(File snapshotFile) throws IOException {
+    snapshot = snapshotFile.toPath().toAbsolutePath();
+    journal = Path.of(snapshot + ".journal");
+    rotatedJournal = Path.of(snapshot + ".journal.old");
+    compactBytes = Long.getLong(COMPACT_BYTES_PROPERTY, DEFAULT_COMPACT_BYTES);
+    truncateTornTail(journal);
+    channel = openChannel();
+    compactor.scheduleWithFixedDelay(this::compactIfNeeded,
+        COMPACT_CHECK_SECONDS, COMPACT_CHECK_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Returns the journal for the given snapshot file, opening it on first use. All parsers of the
+   * same file share one journal so their appends and compactions never interleave.
+   * @param snapshotFile The users.xml snapshot the journal belongs to.
+   * @return The shared journal.
+   * @throws IOException If the journal file cannot be opened.
+   */
+  public static UserJournal forSnapshot(File snapshotFile) throws IOException {
+    Path key = snapshotFile.toPath().toAbsolutePath();
+    UserJournal existing = journals.get(key);
+    if (existing != null) {
+      return existing;
+    }
+    synchronized (journals) {
+      UserJournal journal = journals.get(key);
+      if (journal == null) {
+        journal = new UserJournal(snapshotFile);
+        journals.put(key, journal);
+      }
+      return journal;
+    }
+  }
+
+  /**
+   * Loads the snapshot and replays every record not yet folded into it, oldest first.
+   * @param loader Reads the snapshot itself.
+   * @param passwords Map of username to password to update.
+   * @param wallets Map of username to wallet names to update from the journal.
+   * @throws IOException If the snapshot or a journal file cannot be read.
+   */
+  public void load(SnapshotLoader loader, Map<String, String> passwords,
+      Map<String, List<String>> wallets) throws IOException {
+    synchronized (compactionLock) {
+      loader.load(snapshot.toFile());
+      replayFile(rotatedJournal, passwords, wallets);
+      replayFile(journal, passwords, wallets);
+    }
+  }
+
+  /**
+   * Durably records a new user. Returns once the record has been fsynced.
+   * @param username The new username.
+   * @param password The new user's password.
+   * @throws IOException If the record cannot be written.
+   */
+  public void appendUser(String username, String password) throws IOException {
+    append(encode(NEW_USER, username, List.of(password)));
+  }
+
+  /**
+   * Durably records one or more wallets added to a user. Returns once the record has been fsynced.
+   * @param username The owner of the wallets.
+   * @param walletNames The wallet file names to add.
+   * @throws IOException If the record cannot be written.
+   */
+  public void appendWallets(String username, List<String> walletNames) throws IOException {
+    append(encode(NEW_WALLET, username, walletNames));
+  }
+
+  /**
+   * Folds the journal into a new snapshot. Appends keep flowing to a fresh journal while the
+   * rotated one is merged, and replaying is idempotent so a crash mid-way loses nothing.
+   * @throws IOException If the snapshot cannot be rewritten.
+   */
+  public void compact() throws IOException {
+    synchronized (compactionLock) {
+      if (!Files.exists(rotatedJournal)) {
+        rotate();
+      }
+      Map<String, String> passwords = new LinkedHashMap<>();
+      Map<String, List<String>> wallets = new HashMap<>();
+      StreamingUserLoader.loadEager(snapshot.toFile(), passwords, wallets);
+      replayFile(rotatedJournal, passwords, wallets);
+
+      Path temp = Path.of(snapshot + ".tmp");
+      AppMetrics.time("userstore.save", "kind", "compaction",
+          () -> XMLParser.writeSnapshot(temp.toFile(), passwords, wallets));
+      Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      Files.delete(rotatedJournal);
+    }
+  }
+
+  private void compactIfNeeded() {
+    try {
+      if (Files.exists(rotatedJournal) || Files.size(journal) >= compactBytes) {
+        compact();
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void append(byte[] record) throws IOException {
+    AppMetrics.time("userstore.save", "kind", "journal", () -> {
+      long sequence;
+      synchronized (this) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        sequence = ++written;
+      }
+      sync(sequence);
+    });
+  }
+
+  // Group commit: whoever takes the lock first fsyncs every record written so far, so callers that
+  // queued up behind it find their record already durable and return without another force().
+  private void sync(long sequence) throws IOException {
+    synchronized (syncLock) {
+      if (synced >= sequence) {
+        return;
+      }
+      long target = written;
+      channel.force(false);
+      synced = target;
+    }
+  }
+
+  private void rotate() throws IOException {
+    synchronized (syncLock) {
+      synchronized (this) {
+        channel.force(false);
+        synced = written;
+        channel.close();
+        Files.move(journal, rotatedJournal, StandardCopyOption.ATOMIC_MOVE);
+        channel = openChannel();
+      }
+    }
+  }
+
+  private FileChannel openChannel() throws IOException {
+    return FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+  }
+
+  private static byte[] encode(byte type, String username, List<String> values) throws IOException {
+    ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+    DataOutputStream payload = new DataOutputStream(payloadBytes);
+    payload.writeByte(type);
+    payload.writeUTF(username);
+    payload.writeInt(values.size());
+    for (String value : values) {
+      payload.writeUTF(value);
+    }
+    return RecordLog.frame(payloadBytes.toByteArray());
+  }
+
+  private static void replayFile(Path file, Map<String, String> passwords,
+      Map<String, List<String>> wallets) throws IOException {
+    if (!Files.exists(file)) {
+      return;
+    }
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)));
+    byte[] body;
+    while ((body = RecordLog.readRecord(in)) != null) {
+      applyRecord(body, passwords, wallets);
+    }
+  }
+
+  private static void applyRecord(byte[] body, Map<String, String> passwords,
+      Map<String, List<String>> wallets) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+    byte type = in.readByte();
+    String username = in.readUTF();
+    int count = in.readInt();
+    if (type == NEW_USER) {
+      passwords.put(username, in.readUTF());
+      wallets.putIfAbsent(username, new ArrayList<>());
+      return;
+    }
+    List<String> userWallets = wallets.computeIfAbsent(username, name -> new ArrayList<>());
+    for (int i = 0; i < count; i++) {
+      String walletName = in.readUTF();
+      if (!userWallets.contains(walletName)) {
+        userWallets.add(walletName);
+      }
+    }
+  }
+
+  private static void truncateTornTail(Path file) throws IOException {
+    if (!Files.exists(file)) {
+      return;
+    }
+    byte[] bytes = Files.readAllBytes(file);
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    long valid = 0;
+    while (RecordLog.readRecord(in) != null) {
+      valid = bytes.length - in.available();
+    }
+    if (valid < bytes.length) {
+      try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        truncate.truncate(valid);
+      }
+    }
+  }
+
+  /**
+   * Reads a users.xml snapshot into the caller's own structures.
+   */
+  public interface SnapshotLoader {
+    void load(File snapshot) throws IOException;
+  }
+}
@@ -0,0 +1,177 @@
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.web3j.crypto.exception.CipherException;
+import org.web3j.protocol.exceptions.TransactionException;
+
+/**
+ * HTTP front end of the headless service. Log in with {@code POST /api/login}, then pass the
+ * returned token as {@code Authorization: Bearer <token>} to the other endpoints.
+ */
+@RestController
+@RequestMapping("/api")
+public class WalletController {
+
+  private static final String BEARER = "Bearer ";
+
+  private final SessionRegistry sessions;
+
+  public WalletController(SessionRegistry sessions) {
+    this.sessions = sessions;
+  }
+
+  @PostMapping("/login")
+  public Map<String, String> login(@RequestBody Map<String, String> body) {
+    String token = sessions.login(body.get("username"), body.get("password"));
+    if (token == null) {
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid Username or Password");
+    }
+    return Map.of("token", token);
+  }
+
+  @PostMapping("/logout")
+  public ResponseEntity<Void> logout(@RequestHeader(value = "Authorization", required = false) String authorization) {
+    sessions.logout(token(authorization));
+    return ResponseEntity.noContent().build();
+  }
+
+  /**
+   * @return Each of the user's wallets with its address, read without decrypting anything.
+   */
+  @GetMapping("/wallets")
+  public List<Map<String, String>> wallets(
+      @RequestHeader(value = "Authorization", required = false) String authorization) throws IOException {
+    Map<String, String> addresses = user(authorization).getWalletAddresses();
+    return addresses.entrySet().stream()
+        .map(wallet -> Map.of("name", wallet.getKey(), "address", wallet.getValue()))
+        .toList();
+  }
+
+  @GetMapping("/wallets/balances")
+  public Map<String, BigInteger> walletBalances(
+      @RequestHeader(value = "Authorization", required = false) String authorization) throws IOException {
+    return user(authorization).getWalletBalances();
+  }
+
+  /**
+   * @return The wallet's newest transfers from the local history index, newest first.
+   */
+  @GetMapping("/wallets/{walletName}/history")
+  public List<TransactionHistory.Transfer> history(
+      @RequestHeader(value = "Authorization", required = false) String authorization,
+      @PathVariable String walletName, @RequestParam(defaultValue = "50") int limit) throws IOException {
+    User user = user(authorization);
+    if (!user.getWalletNames().contains(walletName)) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No such wallet");
+    }
+    return user.getTransactionHistory(walletName, limit);
+  }
+
+  @PostMapping("/wallets/{walletName}/load")
+  public ResponseEntity<Void> loadWallet(
+      @RequestHeader(value = "Authorization", required = false) String authorization,
+      @PathVariable String walletName, @RequestBody Map<String, String> body)
+      throws CipherException, IOException {
+    User user = user(authorization);
+    if (!user.getWalletNames().contains(walletName)) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No such wallet");
+    }
+    user.loadWallet(walletName, body.getOrDefault("password", ""));
+    return ResponseEntity.noContent().build();
+  }
+
+  @GetMapping("/balance")
+  public Map<String, Double> balance(
+      @RequestHeader(value = "Authorization", required = false) String authorization) throws IOException {
+    return Map.of("balance", loaded(authorization).getBalance());
+  }
+
+  @PostMapping("/sign")
+  public Map<String, String> sign(
+      @RequestHeader(value = "Authorization", required = false) String authorization,
+      @RequestBody Map<String, String> body) {
+    String message = body.get("message");
+    if (message == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "message is required");
+    }
+    return Map.of("signature", loaded(authorization).signMessage(message));
+  }
+
+  /**
+   * Submits a transfer and returns its hash without waiting for it to be mined.
+   */
+  @PostMapping("/send")
+  public Map<String, String> send(
+      @RequestHeader(value = "Authorization", required = false) String authorization,
+      @RequestBody Map<String, String> body) throws TransactionException, IOException {
+    String to = body.get("to");
+    double amount;
+    try {
+      amount = Double.parseDouble(body.getOrDefault("amount", ""));
+    } catch (NumberFormatException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "amount must be a number");
+    }
+    if (to == null || amount <= 0) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "to and a positive amount are required");
+    }
+    PendingTransaction transaction = loaded(authorization).submitTransaction(to, amount);
+    Map<String, String> response = new LinkedHashMap<>();
+    response.put("transactionHash", transaction.getTransactionHash());
+    response.put("status", "pending");
+    return response;
+  }
+
+  @ExceptionHandler(CipherException.class)
+  public ResponseEntity<Map<String, String>> wrongWalletPassword(CipherException e) {
+    return error(HttpStatus.UNAUTHORIZED, "Invalid wallet password");
+  }
+
+  @ExceptionHandler(TransactionException.class)
+  public ResponseEntity<Map<String, String>> transactionRejected(TransactionException e) {
+    return error(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage());
+  }
+
+  @ExceptionHandler(IOException.class)
+  public ResponseEntity<Map<String, String>> nodeUnavailable(IOException e) {
+    return error(HttpStatus.BAD_GATEWAY, e.getMessage());
+  }
+
+  private static ResponseEntity<Map<String, String>> error(HttpStatus status, String message) {
+    return ResponseEntity.status(status).body(Map.of("error", message == null ? status.getReasonPhrase() : message));
+  }
+
+  private User user(String authorization) {
+    User user = sessions.user(token(authorization));
+    if (user == null) {
+      throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Log in first");
+    }
+    return user;
+  }
+
+  private User loaded(String authorization) {
+    User user = user(authorization);
+    if (!user.hasWalletLoaded()) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "Load a wallet first");
+    }
+    return user;
+  }
+
+  private static String token(String authorization) {
+    return authorization != null && authorization.startsWith(BEARER)
+        ? authorization.substring(BEARER.length()) : null;
+  }
+}
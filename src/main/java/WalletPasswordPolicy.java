@@ -0,0 +1,37 @@
+import java.security.SecureRandom;
+
+/**
+ * Chooses the password for each wallet created by {@link User#createNewAccounts}.
+ */
+public interface WalletPasswordPolicy {
+
+  /**
+   * @param index The position of the wallet in the batch, starting at 0.
+   * @return The password to encrypt that wallet with.
+   */
+  String passwordFor(int index);
+
+  /**
+   * @param password The password every wallet in the batch is encrypted with.
+   * @return A policy that always returns the given password.
+   */
+  static WalletPasswordPolicy shared(String password) {
+    return index -> password;
+  }
+
+  /**
+   * @param length The number of characters in each password.
+   * @return A policy that gives every wallet its own random alphanumeric password.
+   */
+  static WalletPasswordPolicy random(int length) {
+    String alphabet = "ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz23456789";
+    SecureRandom random = new SecureRandom();
+    return index -> {
+      StringBuilder password = new StringBuilder(length);
+      for (int i = 0; i < length; i++) {
+        password.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      return password.toString();
+    };
+  }
+}
@@ -1,40 +1,194 @@
 import org.w3c.dom.*;
 import javax.xml.parsers.*;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.*;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Process-wide user directory backed by users.xml. Lookups are lock-free and wallet lists are
+ * immutable snapshots, so any number of sessions can read while signups and new wallets are
+ * written.
+ */
 public class XMLParser {
 
   private static final String USER_FILE_PATH =
       System.getProperty("user.dir") + "/src/main/resources/users.xml";
+  private static final String PERSISTENCE_PROPERTY = "users.persistence";
+  private static final String JOURNAL_PERSISTENCE = "journal";
+  private static final String LOADER_PROPERTY = "users.loader";
+  private static final String DOM_LOADER = "dom";
 
-  private final Map<String, String> userPasswords = new HashMap<>();
-  private final Map<String, List<String>> userWallets = new HashMap<>();
+  private static volatile XMLParser instance;
+
+  private final File userFile;
+  private final UserJournal journal;
+  private final boolean streaming;
+  private final Object writeLock = new Object();
+  private StreamingUserLoader lazyLoader;
+  private final Map<String, String> userPasswords = new ConcurrentHashMap<>();
+  private final Map<String, List<String>> userWallets = new ConcurrentHashMap<>();
+  private final Map<String, Long> walletRanges = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the shared directory for the default users.xml, loading it on first use.
+   * @return The process-wide user directory.
+   */
+  public static XMLParser getInstance() {
+    XMLParser parser = instance;
+    if (parser == null) {
+      synchronized (XMLParser.class) {
+        parser = instance;
+        if (parser == null) {
+          parser = new XMLParser();
+          instance = parser;
+        }
+      }
+    }
+    return parser;
+  }
 
   public XMLParser() {
+    this(new File(USER_FILE_PATH),
+        JOURNAL_PERSISTENCE.equals(System.getProperty(PERSISTENCE_PROPERTY)));
+  }
+
+  XMLParser(File userFile, boolean journaled) {
+    this(userFile, journaled, !DOM_LOADER.equals(System.getProperty(LOADER_PROPERTY)));
+  }
+
+  /**
+   * @param userFile The users.xml snapshot to load.
+   * @param journaled Whether mutations are appended to a {@link UserJournal} instead of
+   *     rewriting the whole document.
+   * @param streaming Whether to load with {@link StreamingUserLoader}, decoding each user's
+   *     wallets on first use, instead of building a DOM.
+   */
+  XMLParser(File userFile, boolean journaled, boolean streaming) {
+    this.userFile = userFile;
+    this.journal = journaled ? openJournal(userFile) : null;
+    this.streaming = streaming;
     parseUsers();
   }
 
-  private Document getDocument(File file) throws Exception {
+  private static UserJournal openJournal(File userFile) {
+    try {
+      return UserJournal.forSnapshot(userFile);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to open user journal", e);
+    }
+  }
+
+  private static Document getDocument(File file) throws Exception {
     DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
     DocumentBuilder builder = factory.newDocumentBuilder();
     return builder.parse(file);
   }
 
   private void saveDocument(Document doc, File file) throws Exception {
-    Transformer transformer = TransformerFactory.newInstance().newTransformer();
-    transformer.transform(new DOMSource(doc), new StreamResult(file));
+    AppMetrics.time("userstore.save", "kind", "rewrite", () -> {
+      Transformer transformer = TransformerFactory.newInstance().newTransformer();
+      transformer.transform(new DOMSource(doc), new StreamResult(file));
+    });
   }
 
   private void parseUsers() {
     try {
-      File xmlFile = new File(USER_FILE_PATH);
+      AppMetrics.time("userstore.load", "loader", streaming ? "stax" : "dom", () -> {
+        if (journal != null) {
+          Map<String, List<String>> journalWallets = new HashMap<>();
+          journal.load(this::loadUsers, userPasswords, journalWallets);
+          journalWallets.forEach(this::mergeWallets);
+        } else {
+          loadUsers(userFile);
+        }
+      });
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void loadUsers(File xmlFile) throws IOException {
+    if (!streaming) {
+      loadSnapshot(xmlFile, userPasswords, userWallets);
+      return;
+    }
+    lazyLoader = new StreamingUserLoader(xmlFile);
+    if (!lazyLoader.load(userPasswords, walletRanges)) {
+      materializeAllWallets();
+    }
+  }
+
+  private void mergeWallets(String username, List<String> walletNames) {
+    walletList(username);
+    userWallets.compute(username, (name, wallets) -> {
+      List<String> merged = new ArrayList<>(wallets != null ? wallets : List.of());
+      for (String walletName : walletNames) {
+        if (!merged.contains(walletName)) {
+          merged.add(walletName);
+        }
+      }
+      return List.copyOf(merged);
+    });
+  }
+
+  private List<String> walletList(String username) {
+    List<String> wallets = userWallets.get(username);
+    if (wallets == null && walletRanges.containsKey(username)) {
+      wallets = decodeWallets(username);
+    }
+    return wallets != null ? wallets : List.of();
+  }
+
+  // Decoding is serialized so a wallets block is read at most once; readers of already decoded
+  // users never take this lock.
+  private synchronized List<String> decodeWallets(String username) {
+    try {
+      Long range = walletRanges.get(username);
+      if (range == null || lazyLoader == null) {
+        return userWallets.get(username);
+      }
+      List<String> wallets = lazyLoader.decodeWallets(range);
+      if (wallets == null) {
+        materializeAllWallets();
+        return userWallets.get(username);
+      }
+      userWallets.putIfAbsent(username, List.copyOf(wallets));
+      walletRanges.remove(username);
+      return userWallets.get(username);
+    } catch (IOException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  // Decodes every wallet list still held as a byte range, in one streaming pass. Used when the
+  // snapshot is about to be rewritten in place or a recorded range turns out to be stale.
+  private synchronized void materializeAllWallets() throws IOException {
+    if (lazyLoader == null) {
+      return;
+    }
+    Map<String, List<String>> wallets = new HashMap<>();
+    StreamingUserLoader.loadEager(userFile, new HashMap<>(), wallets);
+    wallets.forEach((username, names) -> userWallets.putIfAbsent(username, List.copyOf(names)));
+    walletRanges.clear();
+    lazyLoader.close();
+    lazyLoader = null;
+  }
+
+  static void loadSnapshot(File xmlFile, Map<String, String> passwords,
+      Map<String, List<String>> wallets) throws IOException {
+    try {
       Document doc = getDocument(xmlFile);
       NodeList userList = doc.getElementsByTagName("user");
 
@@ -42,18 +196,63 @@ public class XMLParser {
         Node userNode = userList.item(i);
         if (userNode.getNodeType() == Node.ELEMENT_NODE) {
           Element userElement = (Element) userNode;
-          processUserElement(userElement);
+          processUserElement(userElement, passwords, wallets);
         }
       }
+    } catch (IOException e) {
+      throw e;
     } catch (Exception e) {
-      e.printStackTrace();
+      throw new IOException("Unable to parse " + xmlFile, e);
     }
   }
 
-  private void processUserElement(Element userElement) {
+  /**
+   * Writes the given users as a complete users.xml document, streaming rather than building a DOM.
+   */
+  static void writeSnapshot(File xmlFile, Map<String, String> passwords,
+      Map<String, List<String>> wallets) throws IOException {
+    try (FileOutputStream file = new FileOutputStream(xmlFile);
+        BufferedOutputStream out = new BufferedOutputStream(file)) {
+      XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+      writer.writeStartDocument("UTF-8", "1.0");
+      writer.writeStartElement("users");
+      for (Map.Entry<String, String> user : passwords.entrySet()) {
+        writer.writeStartElement("user");
+        writeElementWithText(writer, "username", user.getKey());
+        writeElementWithText(writer, "password", user.getValue());
+        writer.writeStartElement("wallets");
+        for (String walletName : wallets.getOrDefault(user.getKey(), List.of())) {
+          writer.writeStartElement("wallet");
+          writeElementWithText(writer, "name", walletName);
+          writer.writeEndElement();
+        }
+        writer.writeEndElement();
+        writer.writeEndElement();
+      }
+      writer.writeEndElement();
+      writer.writeEndDocument();
+      writer.close();
+      out.flush();
+      file.getFD().sync();
+    } catch (IOException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException("Unable to write " + xmlFile, e);
+    }
+  }
+
+  private static void writeElementWithText(XMLStreamWriter writer, String tagName, String text)
+      throws Exception {
+    writer.writeStartElement(tagName);
+    writer.writeCharacters(text);
+    writer.writeEndElement();
+  }
+
+  private static void processUserElement(Element userElement, Map<String, String> passwords,
+      Map<String, List<String>> userWallets) {
     String username = getElementText(userElement, "username");
     String password = getElementText(userElement, "password");
-    userPasswords.put(username, password);
+    passwords.put(username, password);
 
     NodeList walletNodes = userElement.getElementsByTagName("wallet");
     List<String> wallets = new ArrayList<>();
@@ -61,33 +260,60 @@ public class XMLParser {
       Element walletElement = (Element) walletNodes.item(i);
       wallets.add(getElementText(walletElement, "name"));
     }
-    userWallets.put(username, wallets);
+    userWallets.put(username, List.copyOf(wallets));
   }
 
-  private String getElementText(Element parent, String tagName) {
+  private static String getElementText(Element parent, String tagName) {
     return parent.getElementsByTagName(tagName).item(0).getTextContent();
   }
 
+  /**
+   * @param username The owner of the wallets.
+   * @return An immutable snapshot of the user's wallet names; later additions produce a new list.
+   */
   public List<String> getUserWallets(String username) {
-    return userWallets.getOrDefault(username, new ArrayList<>());
+    return walletList(username);
   }
 
   public void addNewWallet(String username, String walletName) {
+    addNewWallets(username, List.of(walletName));
+  }
+
+  /**
+   * Registers several wallets for a user in one persistence operation: a single journal record,
+   * or a single rewrite of the XML file.
+   * @param username The owner of the wallets.
+   * @param walletNames The wallet file names to add.
+   * @return True if the wallets were saved.
+   */
+  public boolean addNewWallets(String username, List<String> walletNames) {
     try {
-      File xmlFile = new File(USER_FILE_PATH);
-      Document doc = getDocument(xmlFile);
-      NodeList userList = doc.getElementsByTagName("user");
-      for (int i = 0; i < userList.getLength(); i++) {
-        Element userElement = (Element) userList.item(i);
-        if (username.equals(getElementText(userElement, "username"))) {
-          addWalletToUser(doc, userElement, walletName);
-          break;
+      if (journal != null) {
+        journal.appendWallets(username, walletNames);
+        mergeWallets(username, walletNames);
+        return true;
+      }
+      synchronized (writeLock) {
+        materializeAllWallets();
+        File xmlFile = userFile;
+        Document doc = getDocument(xmlFile);
+        NodeList userList = doc.getElementsByTagName("user");
+        for (int i = 0; i < userList.getLength(); i++) {
+          Element userElement = (Element) userList.item(i);
+          if (username.equals(getElementText(userElement, "username"))) {
+            for (String walletName : walletNames) {
+              addWalletToUser(doc, userElement, walletName);
+            }
+            break;
+          }
         }
+        saveDocument(doc, xmlFile);
+        mergeWallets(username, walletNames);
       }
-      saveDocument(doc, xmlFile);
-      updateWalletCache(username, walletName);
+      return true;
     } catch (Exception e) {
       e.printStackTrace();
+      return false;
     }
   }
 
@@ -104,35 +330,50 @@ public class XMLParser {
     parent.appendChild(element);
   }
 
-  private void updateWalletCache(String username, String walletName) {
-    List<String> wallets = userWallets.getOrDefault(username, new ArrayList<>());
-    wallets.add(walletName);
-    userWallets.put(username, wallets);
-  }
 
-  public void newUser(String username, String password) {
+  /**
+   * Registers a new user. Claiming the username is atomic, so of two concurrent signups for the
+   * same name exactly one succeeds.
+   * @param username The new username.
+   * @param password The new user's password.
+   * @return False if the username was already taken or the user could not be saved.
+   */
+  public boolean newUser(String username, String password) {
+    if (userPasswords.putIfAbsent(username, password) != null) {
+      return false;
+    }
     try {
-      File xmlFile = new File(USER_FILE_PATH);
-      Document doc = getDocument(xmlFile);
-      Node users = doc.getFirstChild();
-      Element newUser = doc.createElement("user");
-      appendElementWithText(doc, newUser, "username", username);
-      appendElementWithText(doc, newUser, "password", password);
+      if (journal != null) {
+        journal.appendUser(username, password);
+        return true;
+      }
+      synchronized (writeLock) {
+        materializeAllWallets();
+        File xmlFile = userFile;
+        Document doc = getDocument(xmlFile);
+        Node users = doc.getFirstChild();
+        Element newUser = doc.createElement("user");
+        appendElementWithText(doc, newUser, "username", username);
+        appendElementWithText(doc, newUser, "password", password);
 
-      Element wallets = doc.createElement("wallets");
-      newUser.appendChild(wallets);
+        Element wallets = doc.createElement("wallets");
+        newUser.appendChild(wallets);
 
-      users.appendChild(newUser);
+        users.appendChild(newUser);
 
-      saveDocument(doc, xmlFile);
-      userPasswords.put(username, password);
+        saveDocument(doc, xmlFile);
+      }
+      return true;
     } catch (Exception e) {
+      userPasswords.remove(username, password);
       e.printStackTrace();
+      return false;
     }
   }
 
   public boolean validPassword(String username, String password) {
-    return existingUsername(username) && userPasswords.get(username).equals(password);
+    String expected = userPasswords.get(username);
+    return expected != null && expected.equals(password);
   }
 
   public boolean existingUsername(String username) {
@@ -142,4 +383,3 @@ public class XMLParser {
 }
 
 
-
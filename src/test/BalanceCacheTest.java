@@ -0,0 +1,70 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BalanceCacheTest {
+
+  private static final String ADDRESS = "0xea2d2e276033772f09311e0ce64dde5f2f329c17";
+
+  private ChainHeadTracker headTracker;
+  private BalanceCache cache;
+  private final AtomicInteger fetches = new AtomicInteger();
+
+  @BeforeEach
+  void setUp() {
+    headTracker = new ChainHeadTracker(null, 1000);
+    cache = new BalanceCache(headTracker, 2, 0);
+  }
+
+  private BigInteger fetch(String address) {
+    return BigInteger.valueOf(fetches.incrementAndGet());
+  }
+
+  @Test
+  void repeatedReadsInSameBlockAreHits() throws Exception {
+    headTracker.advanceTo(100);
+    assertEquals(BigInteger.ONE, cache.get(ADDRESS, this::fetch));
+    assertEquals(BigInteger.ONE, cache.get(ADDRESS.toUpperCase(), this::fetch));
+    assertEquals(1, cache.hits());
+    assertEquals(1, cache.misses());
+  }
+
+  @Test
+  void newBlockInvalidatesEntries() throws Exception {
+    headTracker.advanceTo(100);
+    cache.get(ADDRESS, this::fetch);
+    headTracker.advanceTo(101);
+    assertEquals(BigInteger.TWO, cache.get(ADDRESS, this::fetch));
+  }
+
+  @Test
+  void entriesExpireWhenTheHeadStalls() throws Exception {
+    cache = new BalanceCache(headTracker, 2, 50);
+    headTracker.advanceTo(100);
+    cache.get(ADDRESS, this::fetch);
+    assertEquals(BigInteger.ONE, cache.get(ADDRESS, this::fetch));
+    Thread.sleep(60);
+    assertEquals(BigInteger.TWO, cache.get(ADDRESS, this::fetch));
+  }
+
+  @Test
+  void unknownHeadNeverHits() throws Exception {
+    cache.get(ADDRESS, this::fetch);
+    cache.get(ADDRESS, this::fetch);
+    assertEquals(2, fetches.get());
+  }
+
+  @Test
+  void leastRecentlyUsedAddressIsEvicted() throws Exception {
+    headTracker.advanceTo(100);
+    cache.get("0x01", this::fetch);
+    cache.get("0x02", this::fetch);
+    cache.get("0x01", this::fetch);
+    cache.get("0x03", this::fetch);
+    cache.get("0x02", this::fetch);
+    assertEquals(4, fetches.get());
+  }
+}
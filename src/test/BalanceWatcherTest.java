@@ -0,0 +1,61 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class BalanceWatcherTest extends StubChainFixture {
+
+  private static final String RECIPIENT = "0x0000000000000000000000000000000000000001";
+  private static final String BYSTANDER = "0x0000000000000000000000000000000000000002";
+
+  private final BalanceCache cache;
+  private final BalanceWatcher watcher;
+  private final BlockingQueue<Map<String, BigInteger>> updates = new LinkedBlockingQueue<>();
+
+  public BalanceWatcherTest() throws Exception {
+    super(50);
+    node.setBalance(BYSTANDER, BigInteger.valueOf(7));
+    cache = new BalanceCache(tracker, 100, 0);
+    watcher = new BalanceWatcher(web3, tracker, cache, 32, 64);
+  }
+
+  @Test
+  void pushesOnlyAddressesTouchedByNewBlocks() throws Exception {
+    watcher.watch(List.of(SENDER.getAddress(), RECIPIENT, BYSTANDER), (balances, block) -> updates.add(balances));
+    Map<String, BigInteger> initial = updates.poll(5, TimeUnit.SECONDS);
+    assertEquals(3, initial.size());
+    assertEquals(BigInteger.valueOf(7), initial.get(BYSTANDER));
+
+    send(RECIPIENT, 1000);
+    Map<String, BigInteger> changed = updates.poll(5, TimeUnit.SECONDS);
+    assertEquals(2, changed.size());
+    assertEquals(BigInteger.valueOf(1000), changed.get(RECIPIENT));
+    assertEquals(node.balance(SENDER.getAddress()), changed.get(SENDER.getAddress().toLowerCase()));
+
+    // Only balances read at the new head are cached at it; a contract may have moved the others.
+    waitFor(() -> watcher.lastBlock() == node.blockNumber());
+    assertEquals(BigInteger.valueOf(1000), cache.getIfFresh(RECIPIENT));
+    assertNull(cache.getIfFresh(BYSTANDER));
+  }
+
+  @Test
+  void followsHeadsOverWebSocket() throws Exception {
+    assertTrue(tracker.subscribe(node.webSocketUrl()));
+    assertTrue(tracker.isSubscribed());
+    long requestsBefore = node.requests();
+
+    long mined = node.mineBlock();
+    waitFor(() -> tracker.head() == mined);
+    // No eth_blockNumber polls while subscribed.
+    assertEquals(requestsBefore, node.requests());
+
+    tracker.unsubscribe();
+    long next = node.mineBlock();
+    waitFor(() -> tracker.head() == next);
+  }
+}
@@ -0,0 +1,52 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+
+public class CredentialCacheTest {
+
+  private static final Credentials WALLET =
+      Credentials.create("0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318");
+
+  @Test
+  void samePasswordHitsWithSameKey() {
+    CredentialCache cache = new CredentialCache(4, 60, 60);
+    cache.put("wallet", "secret", WALLET, 1_000_000);
+    Credentials cached = cache.get("wallet", "secret");
+    assertNotNull(cached);
+    assertEquals(WALLET.getAddress(), cached.getAddress());
+    assertEquals(WALLET.getEcKeyPair().getPrivateKey(), cached.getEcKeyPair().getPrivateKey());
+    assertEquals(1, cache.hits());
+    assertEquals(1.0, cache.savedScryptMillis(), 1e-9);
+  }
+
+  @Test
+  void wrongPasswordMisses() {
+    CredentialCache cache = new CredentialCache(4, 60, 60);
+    cache.put("wallet", "secret", WALLET, 0);
+    assertNull(cache.get("wallet", "Secret"));
+    assertEquals(1, cache.misses());
+  }
+
+  @Test
+  void expiredAndClearedEntriesMiss() throws Exception {
+    CredentialCache expiring = new CredentialCache(4, 0, 60);
+    expiring.put("wallet", "secret", WALLET, 0);
+    Thread.sleep(5);
+    assertNull(expiring.get("wallet", "secret"));
+
+    CredentialCache cache = new CredentialCache(4, 60, 60);
+    cache.put("wallet", "secret", WALLET, 0);
+    cache.clear();
+    assertNull(cache.get("wallet", "secret"));
+  }
+
+  @Test
+  void leastRecentlyUsedWalletIsEvicted() {
+    CredentialCache cache = new CredentialCache(1, 60, 60);
+    cache.put("first", "secret", WALLET, 0);
+    cache.put("second", "secret", WALLET, 0);
+    assertNull(cache.get("first", "secret"));
+    assertNotNull(cache.get("second", "secret"));
+  }
+}
@@ -0,0 +1,82 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigInteger;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.utils.Numeric;
+
+public class FeeOracleTest extends StubChainFixture {
+
+  private static final String RECIPIENT = "0x0000000000000000000000000000000000000001";
+  private static final BigInteger GWEI = BigInteger.valueOf(1_000_000_000L);
+
+  private final FeeOracle oracle;
+
+  public FeeOracleTest() throws Exception {
+    super(20);
+    node.setFees(GWEI.multiply(BigInteger.valueOf(3)), GWEI);
+    oracle = new FeeOracle(web3, tracker, 10, 50, BigInteger.valueOf(100_000_000L), 60_000);
+  }
+
+  @Test
+  void feesAreReadOncePerBlock() throws Exception {
+    waitFor(() -> tracker.head() == node.blockNumber());
+    FeeOracle.Fees fees = oracle.fees();
+    assertEquals(GWEI.multiply(BigInteger.valueOf(3)), fees.getBaseFee());
+    assertEquals(GWEI, fees.getPriorityFee());
+    assertEquals(GWEI.multiply(BigInteger.valueOf(7)), fees.getMaxFee());
+    assertSame(fees, oracle.fees());
+
+    long mined = node.mineBlock();
+    waitFor(() -> tracker.head() == mined);
+    assertEquals(mined, oracle.fees().getBlock());
+    assertNotSame(fees, oracle.fees());
+  }
+
+  @Test
+  void stalledHeadDoesNotPinFees() throws Exception {
+    waitFor(() -> tracker.head() == node.blockNumber());
+    tracker.stop();
+    FeeOracle shortLived = new FeeOracle(web3, tracker, 10, 50, BigInteger.ONE, 50);
+    assertEquals(GWEI.multiply(BigInteger.valueOf(3)), shortLived.fees().getBaseFee());
+
+    node.setFees(GWEI.multiply(BigInteger.valueOf(5)), GWEI);
+    Thread.sleep(100);
+    assertEquals(GWEI.multiply(BigInteger.valueOf(5)), shortLived.fees().getBaseFee());
+  }
+
+  @Test
+  void unknownHeadIsNeverCached() throws Exception {
+    FeeOracle unstarted = new FeeOracle(web3, new ChainHeadTracker(web3, 20), 10, 50, BigInteger.ONE, 60_000);
+    FeeOracle.Fees fees = unstarted.fees();
+    assertNotSame(fees, unstarted.fees());
+  }
+
+  @Test
+  void tipHasAFloor() throws Exception {
+    node.setFees(GWEI, BigInteger.ZERO);
+    assertEquals(BigInteger.valueOf(100_000_000L), oracle.fees().getPriorityFee());
+  }
+
+  @Test
+  void chainIdIsReadOnce() throws Exception {
+    assertEquals(StubEthereumNode.CHAIN_ID, oracle.chainId());
+    long requests = node.requests();
+    assertEquals(StubEthereumNode.CHAIN_ID, oracle.chainId());
+    assertEquals(requests, node.requests());
+  }
+
+  @Test
+  void dynamicFeeTransferPaysBaseFeePlusTip() throws Exception {
+    FeeOracle.Fees fees = oracle.fees();
+    RawTransaction transaction = RawTransaction.createEtherTransaction(oracle.chainId(), BigInteger.ZERO,
+        BigInteger.valueOf(21000), RECIPIENT, BigInteger.valueOf(1000), fees.getPriorityFee(), fees.getMaxFee());
+    byte[] signed = TransactionEncoder.signMessage(transaction, SENDER);
+    assertFalse(web3.ethSendRawTransaction(Numeric.toHexString(signed)).send().hasError());
+
+    BigInteger paid = GWEI.multiply(BigInteger.valueOf(4)).multiply(BigInteger.valueOf(21000));
+    assertEquals(BigInteger.TEN.pow(18).subtract(BigInteger.valueOf(1000)).subtract(paid),
+        node.balance(SENDER.getAddress()));
+  }
+}
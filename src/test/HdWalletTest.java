@@ -0,0 +1,80 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.web3j.crypto.Bip32ECKeyPair;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.MnemonicUtils;
+import org.web3j.crypto.exception.CipherException;
+
+public class HdWalletTest {
+
+  // The usual BIP-39 test mnemonic, whose first Ethereum account is well known.
+  private static final byte[] SEED = MnemonicUtils.generateSeed(
+      "abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon about", "");
+  private static final String FIRST_ADDRESS = "0x9858effd232b4033e47d90003d41ec34ecaeda94";
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void derivesStandardEthereumAccounts() throws Exception {
+    HdWallet wallet = wallet();
+    wallet.create("secret", SEED);
+
+    assertEquals(FIRST_ADDRESS, wallet.address(HdWallet.nameOf(0)));
+    for (int i = 0; i < 5; i++) {
+      String path = HdWallet.nameOf(i);
+      Credentials credentials = wallet.credentials(path, "secret");
+      assertEquals(wallet.address(path), credentials.getAddress());
+      assertTrue(HdWallet.isDerivedAddress(credentials.getAddress()));
+    }
+  }
+
+  @Test
+  void seedIsDecryptedOnceAndPasswordStillChecked() throws Exception {
+    wallet().create("secret", SEED);
+    HdWallet reopened = wallet();
+
+    assertEquals(FIRST_ADDRESS, reopened.address(HdWallet.nameOf(0)));
+    assertFalse(reopened.isUnlocked());
+    assertThrows(CipherException.class, () -> reopened.credentials(HdWallet.nameOf(0), "wrong"));
+    assertEquals(FIRST_ADDRESS, reopened.credentials(HdWallet.nameOf(0), "secret").getAddress());
+    assertTrue(reopened.isUnlocked());
+    assertThrows(CipherException.class, () -> reopened.credentials(HdWallet.nameOf(1), "wrong"));
+    assertThrows(java.io.IOException.class, () -> reopened.create("other"));
+  }
+
+  @Test
+  void parsesOnlyItsOwnNames() {
+    assertEquals(7, HdWallet.indexOf(HdWallet.nameOf(7)));
+    assertFalse(HdWallet.nameOf(7).contains("/"));
+    assertFalse(HdWallet.isDerivedName("UTC--2024-01-01T00-00-00.0Z--abc.json"));
+    assertThrows(IllegalArgumentException.class, () -> HdWallet.indexOf("hd-7'"));
+    assertThrows(IllegalArgumentException.class, () -> HdWallet.indexOf("hd-2147483648"));
+  }
+
+  @Test
+  void addressesOfStoredWalletsAreKnownAfterRestart() throws Exception {
+    HdWallet wallet = wallet();
+    wallet.create("secret", SEED);
+    assertEquals("m/44'/60'/0'/0/41", wallet.path(HdWallet.nameOf(41)));
+    File users = tempDir.resolve("users.xml").toFile();
+    Files.writeString(users.toPath(), "<users><user><username>test</username><password>p</password>"
+        + "<wallets><wallet><name>" + HdWallet.nameOf(41) + "</name></wallet></wallets></user></users>");
+    int hardened = Bip32ECKeyPair.HARDENED_BIT;
+    String expected = Credentials.create(Bip32ECKeyPair.deriveKeyPair(Bip32ECKeyPair.generateKeyPair(SEED),
+        new int[] {44 | hardened, 60 | hardened, hardened, 0, 41})).getAddress();
+    assertFalse(HdWallet.isDerivedAddress(expected));
+
+    HdWallet.deriveAddresses(tempDir.toFile(), new XMLParser(users, false));
+    assertTrue(HdWallet.isDerivedAddress(expected));
+  }
+
+  private HdWallet wallet() {
+    return new HdWallet(new File(tempDir.toFile(), "hd-test.seed"), 1024);
+  }
+}
@@ -0,0 +1,46 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.web3j.crypto.WalletUtils;
+
+public class KeystoreIndexTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void indexesAddressesWithoutPassword() throws Exception {
+    File directory = Files.createDirectory(tempDir.resolve("wallets")).toFile();
+    File indexFile = tempDir.resolve("wallets.index").toFile();
+    String walletName = WalletUtils.generateLightNewWalletFile("fun", directory);
+    String address = "0x" + walletName.substring(walletName.lastIndexOf("--") + 2, walletName.length() - 5);
+
+    KeystoreIndex index = new KeystoreIndex(directory, indexFile);
+    assertEquals(address, index.address(walletName));
+    assertEquals(walletName, index.walletName(address.toUpperCase().substring(2)));
+    assertEquals("scrypt", index.entry(walletName).getKdf());
+    index.close();
+
+    KeystoreIndex reloaded = new KeystoreIndex(directory, indexFile);
+    assertEquals(address, reloaded.address(walletName));
+    reloaded.close();
+  }
+
+  @Test
+  void refreshPicksUpNewAndDeletedFiles() throws Exception {
+    File directory = Files.createDirectory(tempDir.resolve("wallets")).toFile();
+    KeystoreIndex index = new KeystoreIndex(directory, tempDir.resolve("wallets.index").toFile());
+    String walletName = WalletUtils.generateLightNewWalletFile("fun", directory);
+    index.refresh(walletName);
+    assertEquals(1, index.size());
+
+    Files.delete(directory.toPath().resolve(walletName));
+    index.refresh(walletName);
+    assertNull(index.address(walletName));
+    index.close();
+  }
+}
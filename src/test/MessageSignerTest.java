@@ -0,0 +1,47 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.Sign;
+import org.web3j.utils.Numeric;
+
+public class MessageSignerTest {
+
+  private static final Credentials WALLET =
+      Credentials.create("0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318");
+
+  private static String signOne(String message) {
+    Sign.SignatureData signature = Sign.signPrefixedMessage(Hash.sha3(message.getBytes()), WALLET.getEcKeyPair());
+    byte[] bytes = new byte[65];
+    System.arraycopy(signature.getR(), 0, bytes, 0, 32);
+    System.arraycopy(signature.getS(), 0, bytes, 32, 32);
+    bytes[64] = signature.getV()[0];
+    return Numeric.toHexString(bytes);
+  }
+
+  @Test
+  void batchMatchesSingleSignatures() {
+    List<String> messages = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      messages.add("Message " + i);
+    }
+    byte[] signatures = new MessageSigner(WALLET).signAll(messages);
+    assertEquals(messages.size() * MessageSigner.SIGNATURE_LENGTH, signatures.length);
+    for (int i = 0; i < messages.size(); i++) {
+      assertEquals(signOne(messages.get(i)), MessageSigner.toHex(signatures, i));
+    }
+  }
+
+  @Test
+  void writesIntoCallerBufferAtOffset() {
+    byte[] out = new byte[MessageSigner.SIGNATURE_LENGTH * 2 + 3];
+    new MessageSigner(WALLET).signAll(List.of("a", "b"), out, 3);
+    assertEquals(signOne("b"), Numeric.toHexString(out, 3 + MessageSigner.SIGNATURE_LENGTH,
+        MessageSigner.SIGNATURE_LENGTH, true));
+    assertThrows(IllegalArgumentException.class,
+        () -> new MessageSigner(WALLET).signAll(List.of("a", "b"), out, 4));
+  }
+}
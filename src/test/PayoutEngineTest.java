@@ -0,0 +1,156 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import okhttp3.OkHttpClient;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+
+public class PayoutEngineTest extends StubChainFixture {
+
+  @TempDir
+  Path tempDir;
+
+  public PayoutEngineTest() throws Exception {
+    super(20);
+  }
+
+  @Test
+  void paysEveryAddress() throws Exception {
+    List<PayoutEngine.Payout> payouts = payouts(20);
+    List<PayoutEngine.Outcome> outcomes = engine(4).run(payouts, checkpoint());
+
+    for (int i = 0; i < payouts.size(); i++) {
+      assertTrue(outcomes.get(i).isPaid());
+      assertEquals(payouts.get(i).getWei(), node.balance(payouts.get(i).getAddress()));
+    }
+  }
+
+  @Test
+  void resumedRunDoesNotPayTwice() throws Exception {
+    node.setBlockTime(Duration.ofMillis(200));
+    List<PayoutEngine.Payout> payouts = payouts(12);
+    File checkpoint = checkpoint();
+    ExecutorService thread = Executors.newSingleThreadExecutor();
+    Future<?> first = thread.submit(() -> engine(3).run(payouts, checkpoint));
+    while (node.balance(payouts.get(2).getAddress()).signum() == 0) {
+      Thread.sleep(10);
+    }
+    first.cancel(true);
+    assertThrows(Exception.class, first::get);
+    thread.shutdown();
+
+    List<PayoutEngine.Outcome> outcomes = engine(3).run(payouts, checkpoint);
+    for (int i = 0; i < payouts.size(); i++) {
+      assertTrue(outcomes.get(i).isPaid());
+      assertEquals(payouts.get(i).getWei(), node.balance(payouts.get(i).getAddress()));
+    }
+
+    // A finished run sends nothing more.
+    long requests = node.requests();
+    engine(3).run(payouts, checkpoint);
+    assertEquals(payouts.get(0).getWei(), node.balance(payouts.get(0).getAddress()));
+    assertTrue(node.requests() - requests < 5);
+  }
+
+  @Test
+  void failingNodeDoesNotCausePayingTwice() throws Exception {
+    node.setErrorRate(0.1);
+    List<PayoutEngine.Payout> payouts = payouts(15);
+    List<PayoutEngine.Outcome> outcomes = engine(4).run(payouts, checkpoint());
+
+    assertTrue(node.injectedErrors() > 0);
+    for (int i = 0; i < payouts.size(); i++) {
+      assertTrue(outcomes.get(i).isPaid(), "payout " + i);
+      assertEquals(payouts.get(i).getWei(), node.balance(payouts.get(i).getAddress()));
+    }
+  }
+
+  @Test
+  void rejectedPayoutFailsAndLeavesNoNonceGap() throws Exception {
+    List<PayoutEngine.Payout> payouts = new ArrayList<>(payouts(6));
+    payouts.set(2, new PayoutEngine.Payout(payouts.get(2).getAddress(), BigInteger.TEN.pow(19)));
+    List<PayoutEngine.Outcome> outcomes = engine(4).run(payouts, checkpoint());
+
+    assertFalse(outcomes.get(2).isPaid());
+    assertTrue(outcomes.get(2).getError().contains("insufficient funds"));
+    for (int i = 0; i < payouts.size(); i++) {
+      if (i != 2) {
+        assertTrue(outcomes.get(i).isPaid(), "payout " + i);
+      }
+    }
+  }
+
+  @Test
+  void rejectedFillerFailsTheRun() throws Exception {
+    // The first payout's send is lost, the second is sent ahead of it, and then the first and
+    // every filler for its nonce are rejected, as the sender cannot pay for gas.
+    node.setBalance(SENDER.getAddress(), BigInteger.ZERO);
+    AtomicBoolean lost = new AtomicBoolean();
+    OkHttpClient client = RpcClientFactory.getInstance().httpClient().newBuilder()
+        .addInterceptor(chain -> {
+          Buffer body = new Buffer();
+          chain.request().body().writeTo(body);
+          if (body.readUtf8().contains("eth_sendRawTransaction") && lost.compareAndSet(false, true)) {
+            throw new IOException("Connection reset");
+          }
+          return chain.proceed(chain.request());
+        })
+        .build();
+    PayoutEngine engine = new PayoutEngine(Web3j.build(new HttpService(node.url(), client)), SENDER,
+        new FeeOracle(web3, tracker, 10, 50, BigInteger.ONE, 60_000), tracker, 4, 60_000, 50);
+    List<PayoutEngine.Payout> payouts = payouts(2);
+
+    IOException e = assertTimeoutPreemptively(Duration.ofSeconds(10),
+        () -> assertThrows(IOException.class, () -> engine.run(payouts, checkpoint())));
+    assertTrue(e.getMessage().contains("insufficient funds"));
+    assertEquals(BigInteger.ZERO, node.balance(payouts.get(1).getAddress()));
+  }
+
+  @Test
+  void checkpointOfAnotherListIsRefused() throws Exception {
+    File checkpoint = checkpoint();
+    engine(4).run(payouts(2), checkpoint);
+    assertThrows(IOException.class, () -> engine(4).run(payouts(3), checkpoint));
+  }
+
+  @Test
+  void readsCsv() throws Exception {
+    List<PayoutEngine.Payout> payouts = PayoutEngine.readCsv(new StringReader(
+        "address,wei\n0x0000000000000000000000000000000000000001,5\n\n# note\n"
+            + "0x0000000000000000000000000000000000000002, 7\n"));
+    assertEquals(2, payouts.size());
+    assertEquals(BigInteger.valueOf(7), payouts.get(1).getWei());
+    assertThrows(IOException.class, () -> PayoutEngine.readCsv(new StringReader("0x01,5\n")));
+  }
+
+  private PayoutEngine engine(int window) {
+    return new PayoutEngine(web3, SENDER, new FeeOracle(web3, tracker, 10, 50, BigInteger.ONE, 60_000), tracker,
+        window, 60_000, 50);
+  }
+
+  private File checkpoint() {
+    return tempDir.resolve("payouts.checkpoint").toFile();
+  }
+
+  private static List<PayoutEngine.Payout> payouts(int count) {
+    List<PayoutEngine.Payout> payouts = new ArrayList<>();
+    for (int i = 1; i <= count; i++) {
+      payouts.add(new PayoutEngine.Payout(String.format("0x%040x", 1000 + i), BigInteger.valueOf(i * 1000L)));
+    }
+    return payouts;
+  }
+}
@@ -0,0 +1,51 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+import org.web3j.utils.Numeric;
+
+public class ReceiptTrackerTest extends StubChainFixture {
+
+  private static final String RECIPIENT = "0x0000000000000000000000000000000000000001";
+
+  public ReceiptTrackerTest() throws Exception {
+    super(20);
+  }
+
+  @Test
+  void uncheckedFailureBacksOffAndKeepsPolling() throws Exception {
+    AtomicBoolean broken = new AtomicBoolean(true);
+    OkHttpClient client = RpcClientFactory.getInstance().httpClient().newBuilder()
+        .addInterceptor(chain -> {
+          if (broken.get()) {
+            throw new IllegalStateException("Interceptor failed");
+          }
+          return chain.proceed(chain.request());
+        })
+        .build();
+    Web3j flaky = Web3j.build(new HttpService(node.url(), client));
+    ReceiptTracker receipts = new ReceiptTracker(flaky, tracker, 10, 20, 60_000);
+    RawTransaction transfer = RawTransaction.createEtherTransaction(BigInteger.ZERO, GAS_PRICE,
+        BigInteger.valueOf(21000), RECIPIENT, BigInteger.ONE);
+    String hash = web3.ethSendRawTransaction(Numeric.toHexString(
+        TransactionEncoder.signMessage(transfer, StubEthereumNode.CHAIN_ID, SENDER))).send().getTransactionHash();
+    PendingTransaction transaction = receipts.track(hash);
+
+    assertDoesNotThrow(receipts::poll);
+    assertFalse(transaction.included().isDone());
+    assertEquals(1, receipts.pendingCount());
+
+    broken.set(false);
+    waitFor(() -> {
+      receipts.poll();
+      return transaction.included().isDone();
+    });
+    assertEquals(hash, transaction.included().join().getTransactionHash());
+  }
+}
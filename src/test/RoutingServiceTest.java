@@ -0,0 +1,162 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+
+public class RoutingServiceTest {
+
+  private final StubEthereumNode first = new StubEthereumNode();
+  private final StubEthereumNode second = new StubEthereumNode();
+
+  public RoutingServiceTest() throws Exception {
+  }
+
+  @AfterEach
+  void stopNodes() {
+    first.close();
+    second.close();
+  }
+
+  @Test
+  void readsGoToTheFastestEndpoint() throws Exception {
+    first.setLatency(Duration.ofMillis(100), Duration.ofMillis(100));
+    Web3j web3 = Web3j.build(router(List.of(first.url(), second.url())));
+
+    for (int i = 0; i < 30; i++) {
+      web3.ethBlockNumber().send();
+    }
+    assertTrue(second.requests() >= 25, "fast endpoint served " + second.requests());
+  }
+
+  @Test
+  void slowReadIsHedgedToTheNextEndpoint() throws Exception {
+    RoutingService router = router(List.of(first.url(), second.url()));
+    Web3j web3 = Web3j.build(router);
+    for (int i = 0; i < 40; i++) {
+      web3.ethBlockNumber().send();
+    }
+    StubEthereumNode preferred = router.averageLatencyMillis(first.url()) <= router.averageLatencyMillis(second.url())
+        ? first : second;
+    preferred.setLatency(Duration.ofMillis(500), Duration.ofMillis(500));
+    long hedgesBefore = router.hedges();
+
+    long start = System.nanoTime();
+    assertEquals(first.blockNumber(), web3.ethBlockNumber().send().getBlockNumber().longValue());
+    assertTrue(System.nanoTime() - start < Duration.ofMillis(400).toNanos());
+    assertEquals(hedgesBefore + 1, router.hedges());
+  }
+
+  @Test
+  void failingEndpointIsTakenOut() throws Exception {
+    String dead = first.url();
+    first.close();
+    RoutingService router = router(List.of(dead, second.url()));
+    Web3j web3 = Web3j.build(router);
+
+    for (int i = 0; i < 5; i++) {
+      assertFalse(web3.ethBlockNumber().send().hasError());
+    }
+    assertTrue(router.isOpen(dead));
+    assertFalse(router.isOpen(second.url()));
+    assertEquals(2, router.failovers());
+  }
+
+  @Test
+  void writesAreSentOnce() throws Exception {
+    RoutingService router = router(List.of(first.url(), second.url()));
+    Web3j web3 = Web3j.build(router);
+    for (int i = 0; i < 40; i++) {
+      web3.ethBlockNumber().send();
+    }
+    first.setLatency(Duration.ofMillis(300), Duration.ofMillis(300));
+    second.setLatency(Duration.ofMillis(300), Duration.ofMillis(300));
+    long before = first.requests() + second.requests();
+    long hedgesBefore = router.hedges();
+
+    assertTrue(web3.ethSendRawTransaction("0x01").send().hasError());
+    assertEquals(before + 1, first.requests() + second.requests());
+    assertEquals(hedgesBefore, router.hedges());
+  }
+
+  @Test
+  void writeMovesOnOnlyIfNeverSent() throws Exception {
+    String dead = first.url();
+    first.close();
+    Web3j web3 = Web3j.build(router(List.of(dead, second.url())));
+
+    assertTrue(web3.ethSendRawTransaction("0x01").send().hasError());
+    assertEquals(1, second.requests());
+  }
+
+  @Test
+  void uncheckedFailureMovesOnToTheNextEndpoint() throws Exception {
+    int broken = HttpUrl.get(first.url()).port();
+    OkHttpClient client = RpcClientFactory.getInstance().httpClient().newBuilder()
+        .addInterceptor(chain -> {
+          if (chain.request().url().port() == broken) {
+            throw new IllegalStateException("Interceptor failed");
+          }
+          return chain.proceed(chain.request());
+        })
+        .build();
+    RoutingService router = new RoutingService(List.of(first.url(), second.url()), client, 0.95, 2, 60_000);
+    Web3j web3 = Web3j.build(router);
+
+    assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertFalse(web3.ethBlockNumber().send().hasError()));
+    assertEquals(1, router.failovers());
+  }
+
+  @Test
+  void openBreakerLetsOneProbeThrough() throws Exception {
+    int flaky = HttpUrl.get(first.url()).port();
+    AtomicInteger flakyCalls = new AtomicInteger();
+    OkHttpClient client = RpcClientFactory.getInstance().httpClient().newBuilder()
+        .addInterceptor(chain -> {
+          if (chain.request().url().port() == flaky) {
+            flakyCalls.incrementAndGet();
+            try {
+              Thread.sleep(100);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            throw new IOException("Endpoint down");
+          }
+          return chain.proceed(chain.request());
+        })
+        .build();
+    RoutingService router = new RoutingService(List.of(first.url(), second.url()), client, 0.95, 2, 200);
+    Web3j web3 = Web3j.build(router);
+    while (!router.isOpen(first.url())) {
+      web3.ethBlockNumber().send();
+    }
+    Thread.sleep(250);
+    flakyCalls.set(0);
+
+    List<CompletableFuture<?>> reads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      reads.add(CompletableFuture.runAsync(() -> {
+        try {
+          web3.ethBlockNumber().send();
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }));
+    }
+    CompletableFuture.allOf(reads.toArray(new CompletableFuture<?>[0])).join();
+    assertEquals(1, flakyCalls.get());
+    assertTrue(router.isOpen(first.url()));
+  }
+
+  private static RoutingService router(List<String> urls) {
+    return new RoutingService(urls, RpcClientFactory.getInstance().httpClient(), 0.95, 2, 60_000);
+  }
+}
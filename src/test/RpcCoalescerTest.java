@@ -0,0 +1,102 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class RpcCoalescerTest {
+
+  private final RpcCoalescer coalescer = new RpcCoalescer();
+  private final ExecutorService threads = Executors.newFixedThreadPool(8);
+
+  @Test
+  void concurrentIdenticalCallsShareOneRequest() throws Exception {
+    AtomicInteger sent = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      results.add(threads.submit(() -> coalescer.call("eth_getBalance", List.of("0xabc", "latest"), () -> {
+        sent.incrementAndGet();
+        await(release);
+        return "0x10";
+      })));
+    }
+    while (coalescer.saved() < 7) {
+      Thread.sleep(5);
+    }
+    release.countDown();
+    for (Future<String> result : results) {
+      assertEquals("0x10", result.get());
+    }
+    assertEquals(1, sent.get());
+    assertEquals(1, coalescer.calls());
+    assertEquals(7, coalescer.saved());
+    threads.shutdown();
+  }
+
+  @Test
+  void failureIsSharedAndNotRemembered() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Future<?> first = threads.submit(() -> coalescer.call("eth_gasPrice", List.of(), () -> {
+      await(release);
+      throw new IOException("node down");
+    }));
+    while (coalescer.calls() < 1) {
+      Thread.sleep(5);
+    }
+    Future<?> second = threads.submit(() -> coalescer.call("eth_gasPrice", List.of(), () -> "unused"));
+    while (coalescer.saved() < 1) {
+      Thread.sleep(5);
+    }
+    release.countDown();
+    assertTrue(assertThrows(Exception.class, first::get).getCause() instanceof IOException);
+    assertTrue(assertThrows(Exception.class, second::get).getCause() instanceof IOException);
+
+    assertEquals("0x1", coalescer.call("eth_gasPrice", List.of(), () -> "0x1"));
+    threads.shutdown();
+  }
+
+  @Test
+  void errorReachesCallersThatJoined() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Future<?> first = threads.submit(() -> coalescer.call("eth_blockNumber", List.of(), () -> {
+      await(release);
+      throw new AssertionError("boom");
+    }));
+    while (coalescer.calls() < 1) {
+      Thread.sleep(5);
+    }
+    Future<?> second = threads.submit(() -> coalescer.call("eth_blockNumber", List.of(), () -> "unused"));
+    while (coalescer.saved() < 1) {
+      Thread.sleep(5);
+    }
+    release.countDown();
+    assertTrue(assertThrows(Exception.class, first::get).getCause() instanceof AssertionError);
+    assertTrue(assertThrows(Exception.class, () -> second.get(5, TimeUnit.SECONDS)).getCause() instanceof AssertionError);
+    threads.shutdown();
+  }
+
+  @Test
+  void differentParamsAreNotShared() throws Exception {
+    assertEquals("a", coalescer.call("eth_getBalance", List.of("0xa", "latest"), () -> "a"));
+    assertEquals("b", coalescer.call("eth_getBalance", List.of("0xa", "pending"), () -> "b"));
+    assertEquals(2, coalescer.calls());
+    assertEquals(0, coalescer.saved());
+    threads.shutdown();
+  }
+
+  private static void await(CountDownLatch latch) throws IOException {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      throw new IOException(e);
+    }
+  }
+}
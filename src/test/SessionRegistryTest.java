@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SessionRegistryTest {
+
+  @TempDir
+  Path tempDir;
+
+  private SessionRegistry sessions;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    File userFile = tempDir.resolve("users.xml").toFile();
+    Files.writeString(userFile.toPath(), "<?xml version=\"1.0\" encoding=\"UTF-8\"?><users>"
+        + "<user><username>batman</username><password>bat</password><wallets></wallets></user></users>");
+    sessions = new SessionRegistry(new XMLParser(userFile, false), 60_000);
+  }
+
+  @AfterEach
+  void tearDown() {
+    sessions.close();
+  }
+
+  @Test
+  void loginOpensSessionUntilLogout() {
+    String token = sessions.login("batman", "bat");
+    assertNotNull(token);
+    assertEquals("batman", sessions.user(token).getUsername());
+
+    sessions.logout(token);
+    assertNull(sessions.user(token));
+    assertEquals(0, sessions.size());
+  }
+
+  @Test
+  void wrongPasswordOrTokenIsRejected() {
+    assertNull(sessions.login("batman", "robin"));
+    assertNull(sessions.login(null, "bat"));
+    assertNull(sessions.user("not-a-token"));
+  }
+
+  @Test
+  void sessionsAreIndependent() {
+    String first = sessions.login("batman", "bat");
+    String second = sessions.login("batman", "bat");
+    assertNotEquals(first, second);
+    assertNotSame(sessions.user(first), sessions.user(second));
+  }
+
+  @Test
+  void closeEndsEverySession() {
+    String token = sessions.login("batman", "bat");
+    sessions.close();
+    assertNull(sessions.user(token));
+    assertEquals(0, sessions.size());
+  }
+}
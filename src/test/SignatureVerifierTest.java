@@ -0,0 +1,35 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+
+public class SignatureVerifierTest {
+
+  private static final Credentials WALLET =
+      Credentials.create("0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318");
+
+  private final SignatureVerifier verifier = new SignatureVerifier(100, ForkJoinPool.commonPool());
+
+  @Test
+  void recoversSignerOfSignMessage() throws Exception {
+    String signature = MessageSigner.toHex(new MessageSigner(WALLET).sign("Message"), 0);
+    assertEquals(WALLET.getAddress(), verifier.recoverAddress("Message", signature));
+    assertTrue(verifier.verify("Message", signature, WALLET.getAddress().toUpperCase().substring(2)));
+    assertFalse(verifier.verify("Other message", signature, WALLET.getAddress()));
+    assertFalse(verifier.verify("Message", "0x1234", WALLET.getAddress()));
+  }
+
+  @Test
+  void repeatedChecksAreCached() {
+    List<String> messages = List.of("a", "b", "c");
+    byte[] signatures = new MessageSigner(WALLET).signAll(messages);
+    List<String> signers = List.of(WALLET.getAddress(), WALLET.getAddress(), "0x0");
+
+    assertArrayEquals(new boolean[] {true, true, false}, verifier.verifyAll(messages, signatures, signers));
+    assertArrayEquals(new boolean[] {true, true, false}, verifier.verifyAll(messages, signatures, signers));
+    assertEquals(3, verifier.misses());
+    assertEquals(3, verifier.hits());
+  }
+}
@@ -0,0 +1,74 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.utils.Numeric;
+
+/**
+ * Base for tests that run against a {@link StubEthereumNode}: starts a node with {@link #SENDER}
+ * holding one ether, an RPC client for it and a polling {@link ChainHeadTracker}, and stops them
+ * after each test.
+ */
+abstract class StubChainFixture {
+
+  static final Credentials SENDER =
+      Credentials.create("0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318");
+  static final BigInteger GAS_PRICE = BigInteger.valueOf(1_000_000_000L);
+
+  final StubEthereumNode node;
+  final Web3j web3;
+  final ChainHeadTracker tracker;
+  private int nonce;
+
+  /**
+   * @param pollMillis How often the tracker polls for a new head.
+   * @throws IOException If the node cannot be started.
+   */
+  StubChainFixture(long pollMillis) throws IOException {
+    node = new StubEthereumNode();
+    node.setBalance(SENDER.getAddress(), BigInteger.TEN.pow(18));
+    web3 = RpcClientFactory.getInstance().web3j(node.url());
+    tracker = new ChainHeadTracker(web3, pollMillis);
+    tracker.start();
+  }
+
+  @AfterEach
+  void stopChain() {
+    tracker.stop();
+    node.close();
+  }
+
+  /**
+   * Sends a legacy transfer from {@link #SENDER} at the next nonce and checks the node accepted it.
+   * @param to The recipient.
+   * @param wei The value.
+   * @return The block the stub mined the transfer into.
+   * @throws IOException If the node cannot be reached.
+   */
+  long send(String to, long wei) throws IOException {
+    RawTransaction transaction = RawTransaction.createEtherTransaction(BigInteger.valueOf(nonce++),
+        GAS_PRICE, BigInteger.valueOf(21000), to, BigInteger.valueOf(wei));
+    byte[] signed = TransactionEncoder.signMessage(transaction, StubEthereumNode.CHAIN_ID, SENDER);
+    assertFalse(web3.ethSendRawTransaction(Numeric.toHexString(signed)).send().hasError());
+    return node.blockNumber();
+  }
+
+  /**
+   * Polls until the condition holds, failing the test after five seconds.
+   * @param condition The condition.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "timed out");
+      Thread.sleep(10);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.utils.Numeric;
+
+public class StubEthereumNodeTest {
+
+  private static final Credentials SENDER =
+      Credentials.create("0x4c0883a69102937d6231471b5dbb6204fe5129617082792ae468d01a3f362318");
+  private static final String RECIPIENT = "0x0000000000000000000000000000000000000001";
+  private static final BigInteger GAS_PRICE = BigInteger.valueOf(1_000_000_000L);
+
+  private final StubEthereumNode node;
+  private final Web3j web3;
+
+  public StubEthereumNodeTest() throws Exception {
+    node = new StubEthereumNode();
+    web3 = RpcClientFactory.getInstance().web3j(node.url());
+    node.setGasPrice(GAS_PRICE);
+    node.setBalance(SENDER.getAddress(), BigInteger.TEN.pow(18));
+  }
+
+  @AfterEach
+  void stopNode() {
+    node.close();
+  }
+
+  @Test
+  void transferMovesValueAndIsMined() throws Exception {
+    long head = node.blockNumber();
+    EthSendTransaction sent = send(0, BigInteger.valueOf(1000));
+
+    assertFalse(sent.hasError());
+    assertEquals(head + 1, node.blockNumber());
+    assertEquals(BigInteger.valueOf(1000), node.balance(RECIPIENT));
+    assertEquals(BigInteger.TEN.pow(18).subtract(BigInteger.valueOf(1000)).subtract(GAS_PRICE.multiply(BigInteger.valueOf(21000))),
+        node.balance(SENDER.getAddress()));
+    assertTrue(web3.ethGetTransactionReceipt(sent.getTransactionHash()).send().getTransactionReceipt().isPresent());
+    assertEquals(BigInteger.ONE,
+        web3.ethGetTransactionCount(SENDER.getAddress(), DefaultBlockParameterName.PENDING).send().getTransactionCount());
+  }
+
+  @Test
+  void rejectsReusedNonceAndOverspending() throws Exception {
+    assertFalse(send(0, BigInteger.ONE).hasError());
+    assertTrue(send(0, BigInteger.ONE).hasError());
+    assertTrue(send(1, BigInteger.TEN.pow(19)).hasError());
+  }
+
+  @Test
+  void injectsErrors() throws Exception {
+    node.setErrorRate(1);
+    assertTrue(web3.ethGasPrice().send().hasError());
+    assertEquals(1, node.injectedErrors());
+
+    node.setErrorRate(0);
+    assertEquals(GAS_PRICE, web3.ethGasPrice().send().getGasPrice());
+  }
+
+  private EthSendTransaction send(long nonce, BigInteger value) throws Exception {
+    RawTransaction transaction = RawTransaction.createEtherTransaction(
+        BigInteger.valueOf(nonce), GAS_PRICE, BigInteger.valueOf(21000), RECIPIENT, value);
+    byte[] signed = TransactionEncoder.signMessage(transaction, StubEthereumNode.CHAIN_ID, SENDER);
+    return web3.ethSendRawTransaction(Numeric.toHexString(signed)).send();
+  }
+}
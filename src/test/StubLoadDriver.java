@@ -0,0 +1,123 @@
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the User APIs against a {@link StubEthereumNode} and reports throughput and latency
+ * percentiles per operation. Run from the project root (so the UserTest wallet is found) with
+ * optional arguments: threads, seconds, stub latency in milliseconds, stub error rate and block
+ * time in milliseconds (defaults 16, 10, 20, 0 and 1000).
+ */
+public class StubLoadDriver {
+
+  private static final String WALLET_NAME = "UTC--2024-04-11T23-40-09.892441000Z--ea2d2e276033772f09311e0ce64dde5f2f329c17.json";
+  private static final String RECIPIENT = "0x0000000000000000000000000000000000000001";
+  private static final String[] OPERATIONS = {"getBalance", "getWalletBalances", "signMessage", "sendTransaction"};
+  // Out of every 10 calls: 5 balance reads, 2 wallet balance reads, 2 signatures, 1 send.
+  private static final int[] MIX = {0, 0, 0, 0, 0, 1, 1, 2, 2, 3};
+
+  public static void main(String[] args) throws Exception {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    int latencyMillis = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+    double errorRate = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+    int blockMillis = args.length > 4 ? Integer.parseInt(args[4]) : 1000;
+
+    try (StubEthereumNode node = new StubEthereumNode()) {
+      node.setDefaultBalance(new BigInteger("1000000000000000000000"));
+      node.setLatency(Duration.ofMillis(latencyMillis / 2), Duration.ofMillis(latencyMillis * 3 / 2));
+      node.setBlockTime(Duration.ofMillis(blockMillis));
+      User user = new User("batman", XMLParser.getInstance(), RpcClientFactory.getInstance().web3j(node.url()));
+      user.loadWallet(WALLET_NAME, "fun");
+      node.setErrorRate(errorRate);
+
+      Recorder[] recorders = new Recorder[OPERATIONS.length];
+      for (int i = 0; i < recorders.length; i++) {
+        recorders[i] = new Recorder();
+      }
+      Object sendLock = new Object();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+      ExecutorService workers = Executors.newFixedThreadPool(threads);
+      List<Future<?>> running = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int offset = t;
+        running.add(workers.submit(() -> {
+          for (int i = offset; System.nanoTime() < deadline; i++) {
+            int operation = MIX[i % MIX.length];
+            long start = System.nanoTime();
+            boolean ok = true;
+            try {
+              switch (operation) {
+                case 0 -> user.getBalance();
+                case 1 -> user.getWalletBalances();
+                case 2 -> user.signMessage("Attestation " + i);
+                default -> {
+                  // One wallet has one nonce sequence, so sends from it are serialized.
+                  synchronized (sendLock) {
+                    user.submitTransaction(RECIPIENT, 0.001);
+                  }
+                }
+              }
+            } catch (Exception e) {
+              ok = false;
+            }
+            recorders[operation].record(System.nanoTime() - start, ok);
+          }
+        }));
+      }
+      for (Future<?> worker : running) {
+        worker.get();
+      }
+      workers.shutdown();
+
+      System.out.printf("%d threads, %d s, %d ms stub latency, %.1f%% injected errors, %d ms blocks%n",
+          threads, seconds, latencyMillis, errorRate * 100, blockMillis);
+      System.out.printf("%-18s %9s %7s %9s %9s %9s %9s %9s%n",
+          "operation", "calls", "errors", "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+      for (int i = 0; i < OPERATIONS.length; i++) {
+        recorders[i].print(OPERATIONS[i], seconds);
+      }
+      System.out.printf("stub served %,d calls (%,d failed on purpose)%n", node.requests(), node.injectedErrors());
+    }
+    System.exit(0);
+  }
+
+  private static class Recorder {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+
+    synchronized void record(long nanos, boolean ok) {
+      if (count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count * 2);
+      }
+      latencies[count++] = nanos;
+      if (!ok) {
+        errors++;
+      }
+    }
+
+    synchronized void print(String operation, int seconds) {
+      long[] sorted = Arrays.copyOf(latencies, count);
+      Arrays.sort(sorted);
+      System.out.printf("%-18s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", operation, count, errors,
+          count / (double) seconds, percentile(sorted, 0.50), percentile(sorted, 0.95),
+          percentile(sorted, 0.99), percentile(sorted, 1.0));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+      if (sorted.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.ceil(quantile * sorted.length) - 1;
+      return sorted[Math.max(0, index)] / 1e6;
+    }
+  }
+}
@@ -0,0 +1,77 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TransactionHistoryTest extends StubChainFixture {
+
+  private static final String RECIPIENT = "0x0000000000000000000000000000000000000001";
+  private static final String STRANGER = "0x0000000000000000000000000000000000000002";
+
+  @TempDir
+  Path tempDir;
+
+  public TransactionHistoryTest() throws Exception {
+    super(20);
+  }
+
+  @Test
+  void indexesTransfersOfTrackedAddresses() throws Exception {
+    TransactionHistory history = open();
+    long mined = send(RECIPIENT, 1000);
+    send(STRANGER, 5);
+    long last = send(RECIPIENT, 2000);
+    waitFor(() -> history.indexedBlock() == last);
+
+    List<TransactionHistory.Transfer> transfers = history.transfers(RECIPIENT);
+    assertEquals(2, transfers.size());
+    assertEquals(BigInteger.valueOf(2000), transfers.get(0).getValue());
+    assertEquals(mined, transfers.get(1).getBlock());
+    assertEquals(SENDER.getAddress(), transfers.get(1).getFrom());
+    assertEquals(1, history.transfers(RECIPIENT, 1).size());
+    assertEquals(3, history.transfers(SENDER.getAddress().toUpperCase().replace("0X", "0x")).size());
+    assertTrue(history.transfers(STRANGER).isEmpty());
+  }
+
+  @Test
+  void resumesFromCheckpointAfterRestart() throws Exception {
+    TransactionHistory first = open();
+    long mined = send(RECIPIENT, 1000);
+    waitFor(() -> first.indexedBlock() == mined);
+
+    first.close();
+    TransactionHistory second = open();
+    assertEquals(mined, second.indexedBlock());
+    assertEquals(1, second.transfers(RECIPIENT).size());
+    long next = send(RECIPIENT, 2000);
+    waitFor(() -> second.indexedBlock() == next);
+    assertEquals(2, second.transfers(RECIPIENT).size());
+  }
+
+  @Test
+  void dropsTransfersFromReorganizedBlocks() throws Exception {
+    TransactionHistory history = open();
+    long kept = send(RECIPIENT, 1000);
+    long replaced = send(RECIPIENT, 2000);
+    waitFor(() -> history.indexedBlock() == replaced);
+    assertEquals(2, history.transfers(RECIPIENT).size());
+
+    long head = node.reorg(1);
+    waitFor(() -> history.indexedBlock() == head);
+    List<TransactionHistory.Transfer> transfers = history.transfers(RECIPIENT);
+    assertEquals(1, transfers.size());
+    assertEquals(kept, transfers.get(0).getBlock());
+
+    // The rollback is in the log, so a restart does not bring the dropped transfer back.
+    history.close();
+    assertEquals(1, open().transfers(RECIPIENT).size());
+  }
+
+  private TransactionHistory open() throws Exception {
+    return new TransactionHistory(web3, tracker,
+        address -> address.equals(RECIPIENT) || address.equals(SENDER.getAddress()), tempDir.toFile(), 2, 3);
+  }
+}
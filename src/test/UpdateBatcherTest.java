@@ -0,0 +1,47 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class UpdateBatcherTest {
+
+  private final List<Runnable> queued = new ArrayList<>();
+  private final List<Map<String, Integer>> flushed = new ArrayList<>();
+
+  @Test
+  void burstIsMergedIntoOneFlush() {
+    UpdateBatcher<String, Integer> batcher = new UpdateBatcher<>(queued::add, (older, newer) -> newer, flushed::add, 0);
+    for (int i = 0; i < 1000; i++) {
+      batcher.offer("wallet" + (i % 10), i);
+    }
+    assertEquals(1, queued.size());
+
+    queued.remove(0).run();
+    assertEquals(1, flushed.size());
+    assertEquals(10, flushed.get(0).size());
+    assertEquals(Integer.valueOf(999), flushed.get(0).get("wallet9"));
+
+    batcher.offerAll(Map.of("wallet1", 5));
+    assertEquals(1, queued.size());
+    queued.remove(0).run();
+    assertEquals(Map.of("wallet1", 5), flushed.get(1));
+  }
+
+  @Test
+  void flushesAreSpacedByTheInterval() throws Exception {
+    BlockingQueue<Long> flushTimes = new LinkedBlockingQueue<>();
+    UpdateBatcher<String, Integer> batcher = new UpdateBatcher<>(Executors.newSingleThreadExecutor(),
+        Integer::sum, batch -> flushTimes.add(System.nanoTime()), 100);
+    batcher.offer("a", 1);
+    long first = flushTimes.poll(5, TimeUnit.SECONDS);
+    batcher.offer("a", 1);
+    long second = flushTimes.poll(5, TimeUnit.SECONDS);
+    assertTrue(second - first >= TimeUnit.MILLISECONDS.toNanos(90), "flushed after " + (second - first) + "ns");
+  }
+}
@@ -3,13 +3,24 @@ import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.File;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import org.web3j.crypto.exception.CipherException;
 
 public class UserTest {
 
+  @TempDir
+  Path tempDir;
+
   private User user;
   private final String validPassword = "fun";
   private final String walletName = "UTC--2024-04-11T23-40-09.892441000Z--ea2d2e276033772f09311e0ce64dde5f2f329c17.json";
@@ -68,6 +79,13 @@ public class UserTest {
     assertEquals(0.0, user.getBalance());
   }
 
+  @Test
+  void walletBalancesCoverEveryWallet() throws IOException {
+    Map<String, BigInteger> balances = user.getWalletBalances();
+    assertEquals(user.getWalletNames(), List.copyOf(balances.keySet()));
+    assertEquals(BigInteger.ZERO, balances.get(walletName));
+  }
+
   @Test
   void testSignMessage() throws CipherException, IOException {
     user.loadWallet(walletName, validPassword);
@@ -75,6 +93,75 @@ public class UserTest {
        user.signMessage("Message"));
   }
 
+  @Test
+  void createNewAccountsRegistersEveryWallet() throws Exception {
+    XMLParser parser = newParser(tempDir);
+    User provisioner = new User("batman", parser, RpcClientFactory.getInstance().web3j(), tempDir.toFile());
+
+    Map<String, String> created = provisioner.createNewAccounts(3, WalletPasswordPolicy.random(12));
+    assertEquals(3, created.size());
+    assertEquals(3, new HashSet<>(created.values()).size());
+    assertEquals(List.copyOf(created.keySet()), parser.getUserWallets("batman"));
+    for (String name : created.keySet()) {
+      assertTrue(new File(tempDir.toFile(), name).isFile());
+    }
+    String first = created.keySet().iterator().next();
+    assertDoesNotThrow(() -> provisioner.loadWallet(first, created.get(first)));
+  }
+
+  @Test
+  void rejectedPasswordLeavesNoWallets() throws Exception {
+    XMLParser parser = newParser(tempDir);
+    User provisioner = new User("batman", parser, RpcClientFactory.getInstance().web3j(), tempDir.toFile());
+    WalletPasswordPolicy policy = index -> {
+      if (index == 2) {
+        throw new IllegalArgumentException("Password rejected");
+      }
+      return "fun";
+    };
+
+    System.setProperty("wallets.provisioning.parallelism", "1");
+    try {
+      assertThrows(IllegalArgumentException.class, () -> provisioner.createNewAccounts(3, policy));
+    } finally {
+      System.clearProperty("wallets.provisioning.parallelism");
+    }
+    try (var files = Files.list(tempDir)) {
+      assertEquals(List.of("users.xml"), files.map(file -> file.getFileName().toString()).toList());
+    }
+    assertTrue(parser.getUserWallets("batman").isEmpty());
+  }
+
+  @Test
+  void balanceErrorResponseIsRaised() throws Exception {
+    try (StubEthereumNode node = new StubEthereumNode()) {
+      User stubUser = new User("batman", XMLParser.getInstance(), RpcClientFactory.getInstance().web3j(node.url()));
+      stubUser.loadWallet(walletName, validPassword);
+      node.setErrorRate(1);
+      assertThrows(IOException.class, stubUser::getBalance);
+    }
+  }
+
+  @Test
+  void gasPriceErrorResponseIsRaised() throws Exception {
+    System.setProperty("transactions.legacy", "true");
+    try (StubEthereumNode node = new StubEthereumNode()) {
+      User stubUser = new User("batman", XMLParser.getInstance(), RpcClientFactory.getInstance().web3j(node.url()));
+      stubUser.loadWallet(walletName, validPassword);
+      node.setErrorRate(1);
+      assertThrows(IOException.class, () -> stubUser.submitTransaction("862eff1f5772b4bc7645a11a08d58a1df6d0549a", 0.1));
+    } finally {
+      System.clearProperty("transactions.legacy");
+    }
+  }
+
+  private static XMLParser newParser(Path dir) throws IOException {
+    File userFile = dir.resolve("users.xml").toFile();
+    Files.writeString(userFile.toPath(), "<?xml version=\"1.0\" encoding=\"UTF-8\"?><users>"
+        + "<user><username>batman</username><password>bat</password><wallets/></user></users>");
+    return new XMLParser(userFile, false);
+  }
+
 }
 
 
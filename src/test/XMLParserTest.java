@@ -0,0 +1,132 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class XMLParserTest {
+
+  @TempDir
+  Path tempDir;
+
+  private File userFile;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    userFile = tempDir.resolve("users.xml").toFile();
+    Files.writeString(userFile.toPath(), "<?xml version=\"1.0\" encoding=\"UTF-8\"?><users>"
+        + "<user><username>batman</username><password>bat</password>"
+        + "<wallets><wallet><name>first.json</name></wallet></wallets></user></users>");
+  }
+
+  @Test
+  void journaledWritesAreVisibleAfterReload() {
+    XMLParser parser = new XMLParser(userFile, true);
+    parser.newUser("robin", "bird");
+    parser.addNewWallet("batman", "second.json");
+
+    XMLParser reloaded = new XMLParser(userFile, true);
+    assertTrue(reloaded.validPassword("robin", "bird"));
+    assertEquals(List.of("first.json", "second.json"), reloaded.getUserWallets("batman"));
+  }
+
+  @Test
+  void journaledWritesLeaveSnapshotUntouchedUntilCompaction() throws IOException {
+    String before = Files.readString(userFile.toPath());
+    new XMLParser(userFile, true).newUser("robin", "bird");
+    assertEquals(before, Files.readString(userFile.toPath()));
+
+    UserJournal.forSnapshot(userFile).compact();
+    XMLParser fromSnapshot = new XMLParser(userFile, false);
+    assertTrue(fromSnapshot.validPassword("robin", "bird"));
+    assertEquals(List.of("first.json"), fromSnapshot.getUserWallets("batman"));
+  }
+
+  @Test
+  void tornJournalTailIsIgnored() throws IOException {
+    new XMLParser(userFile, true).addNewWallet("batman", "second.json");
+    Path journal = Path.of(userFile + ".journal");
+    Files.write(journal, new byte[] {0, 0, 0, 42, 2}, java.nio.file.StandardOpenOption.APPEND);
+
+    assertEquals(List.of("first.json", "second.json"),
+        new XMLParser(userFile, true).getUserWallets("batman"));
+  }
+
+  @Test
+  void bulkWalletsAreRegisteredTogether() {
+    List<String> names = List.of("second.json", "third.json", "fourth.json");
+    assertTrue(new XMLParser(userFile, false).addNewWallets("batman", names));
+    assertTrue(new XMLParser(userFile, true).addNewWallets("batman", List.of("fifth.json")));
+
+    assertEquals(List.of("first.json", "second.json", "third.json", "fourth.json", "fifth.json"),
+        new XMLParser(userFile, true).getUserWallets("batman"));
+  }
+
+  @Test
+  void streamingLoaderMatchesDomLoader() {
+    XMLParser dom = new XMLParser(userFile, false, false);
+    XMLParser streaming = new XMLParser(userFile, false, true);
+    assertEquals(dom.getUserWallets("batman"), streaming.getUserWallets("batman"));
+    assertTrue(streaming.validPassword("batman", "bat"));
+  }
+
+  @Test
+  void streamingLoaderSeesWalletsAddedThroughRewrite() {
+    XMLParser streaming = new XMLParser(userFile, false, true);
+    streaming.addNewWallet("batman", "second.json");
+    assertEquals(List.of("first.json", "second.json"), streaming.getUserWallets("batman"));
+    assertEquals(List.of("first.json", "second.json"),
+        new XMLParser(userFile, false, true).getUserWallets("batman"));
+  }
+
+  @Test
+  void concurrentSignupsForSameNameHaveOneWinner() throws Exception {
+    XMLParser parser = new XMLParser(userFile, true);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      results.add(executor.submit(() -> parser.newUser("robin", "bird")));
+    }
+    int created = 0;
+    for (Future<Boolean> result : results) {
+      created += result.get() ? 1 : 0;
+    }
+    executor.shutdown();
+    assertEquals(1, created);
+  }
+
+  @Test
+  void concurrentWalletCreationKeepsEveryWallet() throws Exception {
+    XMLParser parser = new XMLParser(userFile, true);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int i = 0; i < 100; i++) {
+      String walletName = "wallet" + i + ".json";
+      executor.submit(() -> parser.addNewWallet("batman", walletName));
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+    assertEquals(101, parser.getUserWallets("batman").size());
+    assertEquals(101, new XMLParser(userFile, true).getUserWallets("batman").size());
+  }
+
+  @Test
+  void walletListsAreImmutableSnapshots() {
+    XMLParser parser = new XMLParser(userFile, false);
+    List<String> before = parser.getUserWallets("batman");
+    parser.addNewWallet("batman", "second.json");
+    assertEquals(List.of("first.json"), before);
+    assertThrows(UnsupportedOperationException.class, () -> before.add("third.json"));
+  }
+
+}
@@ -0,0 +1,658 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.SignatureException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.SignedRawTransaction;
+import org.web3j.crypto.TransactionDecoder;
+import org.web3j.crypto.transaction.type.Transaction1559;
+import org.web3j.utils.Numeric;
+
+/**
+ * Local stand-in for an Ethereum JSON-RPC endpoint, so code that talks to a node can be exercised
+ * and measured offline. Serves single and batch requests on a loopback port; point a client at
+ * {@link #url()}.
+ * <p>
+ * Signed transactions are decoded, checked against the sender's nonce and balance, and mined into
+ * the next block. By default every transaction is mined into its own block at once; with
+ * {@link #setBlockTime} blocks are produced on a timer instead. {@link #setLatency} delays every
+ * HTTP request, and {@link #setErrorRate} makes a share of calls fail with a JSON-RPC error.
+ * <p>
+ * Mined blocks are kept and served by {@code eth_getBlockByNumber}, and {@link #reorg} replaces
+ * the newest ones to exercise reorg handling. {@link #webSocketUrl()} opens
+ * a WebSocket endpoint that answers the same calls and pushes {@code newHeads} subscriptions.
+ */
+public class StubEthereumNode implements AutoCloseable {
+
+  static {
+    // Without TCP_NODELAY, Nagle and delayed ACKs add ~40 ms to every keep-alive response. The
+    // property is process-wide, which is acceptable because only test and benchmark JVMs load this.
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+  }
+
+  public static final long CHAIN_ID = 11155111;
+  private static final BigInteger GAS_USED = BigInteger.valueOf(21_000);
+  private static final ObjectMapper mapper = new ObjectMapper();
+  private static final JsonNodeFactory nodes = JsonNodeFactory.instance;
+
+  private static final ScheduledExecutorService miner = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "stub-node-miner");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final HttpServer server;
+  private final Map<String, BigInteger> balances = new ConcurrentHashMap<>();
+  private final Map<String, Long> nonces = new HashMap<>();
+  private final Map<String, ObjectNode> receipts = new ConcurrentHashMap<>();
+  private final List<Transaction> mempool = new ArrayList<>();
+  private final Map<Long, List<Transaction>> blocks = new ConcurrentHashMap<>();
+  private final Map<Long, Integer> forks = new ConcurrentHashMap<>();
+  private final Map<String, WebSocket> headSubscriptions = new ConcurrentHashMap<>();
+  private final AtomicLong subscriptionIds = new AtomicLong();
+  private final AtomicLong blockNumber = new AtomicLong(1);
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong injectedErrors = new AtomicLong();
+  private volatile BigInteger defaultBalance = BigInteger.ZERO;
+  private volatile BigInteger gasPrice = BigInteger.valueOf(1_000_000_000L);
+  private volatile BigInteger baseFee = BigInteger.valueOf(1_000_000_000L);
+  private volatile BigInteger priorityFee = BigInteger.valueOf(100_000_000L);
+  private volatile long minLatencyNanos;
+  private volatile long maxLatencyNanos;
+  private volatile double errorRate;
+  private volatile ScheduledFuture<?> blockProducer;
+  private WebSocketEndpoint webSocket;
+
+  /**
+   * Starts the stub on a free loopback port.
+   * @throws IOException If the port cannot be bound.
+   */
+  public StubEthereumNode() throws IOException {
+    this(0);
+  }
+
+  /**
+   * Starts the stub on the given loopback port.
+   * @param port The port, or 0 for any free port.
+   * @throws IOException If the port cannot be bound.
+   */
+  public StubEthereumNode(int port) throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/", this::handle);
+    server.setExecutor(BackgroundExecutor.get());
+    server.start();
+  }
+
+  /**
+   * @return The JSON-RPC URL of this stub.
+   */
+  public String url() {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+  }
+
+  /**
+   * Starts the WebSocket endpoint on first use.
+   * @return Its URL.
+   * @throws IOException If the endpoint cannot be started.
+   */
+  public synchronized String webSocketUrl() throws IOException {
+    if (webSocket == null) {
+      WebSocketEndpoint endpoint = new WebSocketEndpoint();
+      endpoint.start();
+      try {
+        endpoint.started.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while starting the WebSocket endpoint", e);
+      }
+      if (endpoint.failure != null) {
+        throw new IOException("Cannot start the WebSocket endpoint", endpoint.failure);
+      }
+      webSocket = endpoint;
+    }
+    return "ws://127.0.0.1:" + webSocket.getPort() + "/";
+  }
+
+  /**
+   * @param address An address, in any case.
+   * @param wei The balance eth_getBalance returns for it.
+   */
+  public void setBalance(String address, BigInteger wei) {
+    balances.put(key(address), wei);
+  }
+
+  /**
+   * @param wei The balance returned for addresses without one set.
+   */
+  public void setDefaultBalance(BigInteger wei) {
+    defaultBalance = wei;
+  }
+
+  /**
+   * @param wei The price eth_gasPrice returns.
+   */
+  public void setGasPrice(BigInteger wei) {
+    gasPrice = wei;
+  }
+
+  /**
+   * Sets the base fee of every block and the tip eth_feeHistory reports as paid. An EIP-1559
+   * transaction is charged the base fee plus its tip, capped at its max fee.
+   * @param baseFeeWei The base fee per gas.
+   * @param priorityFeeWei The priority fee per gas.
+   */
+  public void setFees(BigInteger baseFeeWei, BigInteger priorityFeeWei) {
+    baseFee = baseFeeWei;
+    priorityFee = priorityFeeWei;
+  }
+
+  /**
+   * Delays every HTTP request by a random time in the given range.
+   * @param min The shortest delay.
+   * @param max The longest delay.
+   */
+  public void setLatency(Duration min, Duration max) {
+    minLatencyNanos = min.toNanos();
+    maxLatencyNanos = Math.max(min.toNanos(), max.toNanos());
+  }
+
+  /**
+   * @param rate The share of calls, from 0 to 1, answered with a JSON-RPC error instead of a result.
+   */
+  public void setErrorRate(double rate) {
+    errorRate = rate;
+  }
+
+  /**
+   * Produces a block on a timer, mining whatever is pending. Without a block time, each
+   * transaction is mined into its own block as soon as it is sent.
+   * @param blockTime The time between blocks, or null or zero to mine on every transaction.
+   */
+  public synchronized void setBlockTime(Duration blockTime) {
+    if (blockProducer != null) {
+      blockProducer.cancel(false);
+      blockProducer = null;
+    }
+    if (blockTime != null && !blockTime.isZero()) {
+      blockProducer = miner.scheduleAtFixedRate(this::mineBlock, blockTime.toMillis(),
+          blockTime.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Advances the chain by one block, including every pending transaction.
+   * @return The new block number.
+   */
+  public long mineBlock() {
+    long number;
+    synchronized (mempool) {
+      number = blockNumber.incrementAndGet();
+      String blockHash = blockHash(number);
+      for (int i = 0; i < mempool.size(); i++) {
+        Transaction transaction = mempool.get(i);
+        receipts.put(transaction.hash, transaction.receipt(number, blockHash, i));
+      }
+      blocks.put(number, List.copyOf(mempool));
+      mempool.clear();
+    }
+    publishHead(number);
+    return number;
+  }
+
+  /**
+   * Replaces the newest blocks with empty ones on another fork, undoing their transactions, then
+   * mines one more block so anyone following the head sees the chain move on.
+   * @param depth How many blocks to replace.
+   * @return The new head.
+   */
+  public long reorg(int depth) {
+    synchronized (mempool) {
+      long head = blockNumber.get();
+      for (long number = head; number > head - depth && number > 0; number--) {
+        List<Transaction> dropped = blocks.remove(number);
+        if (dropped != null) {
+          for (int i = dropped.size() - 1; i >= 0; i--) {
+            undo(dropped.get(i));
+          }
+        }
+        forks.merge(number, 1, Integer::sum);
+      }
+    }
+    return mineBlock();
+  }
+
+  public long blockNumber() {
+    return blockNumber.get();
+  }
+
+  /**
+   * @return The number of JSON-RPC calls served, counting each call in a batch.
+   */
+  public long requests() {
+    return requests.get();
+  }
+
+  /**
+   * @return The number of calls failed on purpose by {@link #setErrorRate}.
+   */
+  public long injectedErrors() {
+    return injectedErrors.get();
+  }
+
+  /**
+   * @param address An address, in any case.
+   * @return Its current balance in wei.
+   */
+  public BigInteger balance(String address) {
+    return balances.getOrDefault(key(address), defaultBalance);
+  }
+
+  @Override
+  public void close() {
+    setBlockTime(null);
+    server.stop(0);
+    synchronized (this) {
+      if (webSocket != null) {
+        try {
+          webSocket.stop(1000);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    long maxLatency = maxLatencyNanos;
+    if (maxLatency > 0) {
+      long delay = minLatencyNanos + (long) (ThreadLocalRandom.current().nextDouble() * (maxLatency - minLatencyNanos));
+      LockSupport.parkNanos(delay);
+    }
+    JsonNode request;
+    try (InputStream in = exchange.getRequestBody()) {
+      request = mapper.readTree(in);
+    }
+    JsonNode response;
+    if (request.isArray()) {
+      ArrayNode batch = nodes.arrayNode();
+      request.forEach(call -> batch.add(answer(call)));
+      response = batch;
+    } else {
+      response = answer(request);
+    }
+    byte[] body = mapper.writeValueAsBytes(response);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private ObjectNode answer(JsonNode call) {
+    requests.incrementAndGet();
+    ObjectNode response = nodes.objectNode();
+    response.put("jsonrpc", "2.0");
+    response.set("id", call.get("id"));
+    JsonNode params = call.path("params");
+    if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+      injectedErrors.incrementAndGet();
+      return error(response, -32000, "Injected failure");
+    }
+    try {
+      response.set("result", result(call.path("method").asText(), params));
+    } catch (UnsupportedOperationException e) {
+      return error(response, -32601, e.getMessage());
+    } catch (IllegalArgumentException e) {
+      return error(response, -32000, e.getMessage());
+    }
+    return response;
+  }
+
+  private static ObjectNode error(ObjectNode response, int code, String message) {
+    ObjectNode error = response.putObject("error");
+    error.put("code", code);
+    error.put("message", message);
+    return response;
+  }
+
+  private JsonNode result(String method, JsonNode params) {
+    switch (method) {
+      case "eth_blockNumber":
+        return quantity(BigInteger.valueOf(blockNumber.get()));
+      case "eth_getBlockByNumber":
+        return block(params.path(0).asText(), params.path(1).asBoolean());
+      case "eth_getBalance":
+        return quantity(balance(params.path(0).asText()));
+      case "eth_getTransactionCount":
+        return quantity(BigInteger.valueOf(nonce(params.path(0).asText(), params.path(1).asText("latest"))));
+      case "eth_sendRawTransaction":
+        return nodes.textNode(sendRawTransaction(params.path(0).asText()));
+      case "eth_getTransactionReceipt": {
+        ObjectNode receipt = receipts.get(params.path(0).asText().toLowerCase());
+        return receipt != null ? receipt : nodes.nullNode();
+      }
+      case "eth_gasPrice":
+        return quantity(gasPrice);
+      case "eth_feeHistory":
+        return feeHistory(Numeric.decodeQuantity(params.path(0).asText()).intValueExact(),
+            params.path(1).asText(), params.path(2).size());
+      case "eth_chainId":
+        return quantity(BigInteger.valueOf(CHAIN_ID));
+      case "net_version":
+        return nodes.textNode(Long.toString(CHAIN_ID));
+      default:
+        throw new UnsupportedOperationException("Method not found: " + method);
+    }
+  }
+
+  // "pending" counts transactions still waiting for a block; any other tag only mined ones.
+  private long nonce(String address, String tag) {
+    String from = key(address);
+    synchronized (mempool) {
+      long nonce = nonces.getOrDefault(from, 0L);
+      if (!tag.equals("pending")) {
+        nonce -= mempool.stream().filter(transaction -> transaction.from.equals(from)).count();
+      }
+      return nonce;
+    }
+  }
+
+  // Checks the nonce and balance, moves the value, charges the gas, and queues the transaction for the next block.
+  private String sendRawTransaction(String rawHex) {
+    RawTransaction decoded;
+    String from;
+    try {
+      decoded = TransactionDecoder.decode(rawHex);
+      if (!(decoded instanceof SignedRawTransaction signed)) {
+        throw new IllegalArgumentException("Transaction is not signed");
+      }
+      from = key(signed.getFrom());
+    } catch (SignatureException | RuntimeException e) {
+      throw new IllegalArgumentException("Invalid transaction: " + e.getMessage());
+    }
+    String hash = Numeric.toHexString(Hash.sha3(Numeric.hexStringToByteArray(rawHex)));
+    String to = decoded.getTo() == null ? null : key(decoded.getTo());
+    BigInteger value = decoded.getValue() == null ? BigInteger.ZERO : decoded.getValue();
+    BigInteger price;
+    if (decoded.getTransaction() instanceof Transaction1559 dynamic) {
+      if (dynamic.getMaxFeePerGas().compareTo(baseFee) < 0) {
+        throw new IllegalArgumentException("max fee per gas less than block base fee");
+      }
+      price = dynamic.getMaxFeePerGas().min(baseFee.add(dynamic.getMaxPriorityFeePerGas()));
+    } else {
+      price = decoded.getGasPrice();
+    }
+    BigInteger fee = GAS_USED.multiply(price);
+    synchronized (mempool) {
+      long expected = nonces.getOrDefault(from, 0L);
+      if (decoded.getNonce().longValueExact() != expected) {
+        throw new IllegalArgumentException(decoded.getNonce().longValueExact() < expected
+            ? "nonce too low" : "nonce too high");
+      }
+      BigInteger fromBalance = balance(from);
+      if (fromBalance.compareTo(value.add(fee)) < 0) {
+        throw new IllegalArgumentException("insufficient funds for gas * price + value");
+      }
+      nonces.put(from, expected + 1);
+      balances.put(from, fromBalance.subtract(value).subtract(fee));
+      if (to != null) {
+        balances.put(to, balance(to).add(value));
+      }
+      mempool.add(new Transaction(hash, from, to, decoded.getNonce(), value, fee.divide(GAS_USED)));
+    }
+    if (blockProducer == null) {
+      mineBlock();
+    }
+    return hash;
+  }
+
+  private void undo(Transaction transaction) {
+    receipts.remove(transaction.hash);
+    nonces.put(transaction.from, transaction.nonce.longValueExact());
+    balances.put(transaction.from, balance(transaction.from).add(transaction.value)
+        .add(transaction.gasPrice.multiply(GAS_USED)));
+    if (transaction.to != null) {
+      balances.put(transaction.to, balance(transaction.to).subtract(transaction.value));
+    }
+  }
+
+  private JsonNode block(String tag, boolean fullTransactions) {
+    long head = blockNumber.get();
+    long number = switch (tag) {
+      case "latest", "pending", "safe", "finalized" -> head;
+      case "earliest" -> 0;
+      default -> Numeric.decodeQuantity(tag).longValueExact();
+    };
+    if (number < 0 || number > head) {
+      return nodes.nullNode();
+    }
+    ObjectNode block = header(number);
+    ArrayNode transactions = block.putArray("transactions");
+    List<Transaction> included = blocks.getOrDefault(number, List.of());
+    for (int i = 0; i < included.size(); i++) {
+      Transaction transaction = included.get(i);
+      transactions.add(fullTransactions ? transaction.toJson(number, block.get("hash").asText(), i)
+          : nodes.textNode(transaction.hash));
+    }
+    return block;
+  }
+
+  // Every block has the same base fee and every reward percentile is the configured tip.
+  private JsonNode feeHistory(int blockCount, String newestTag, int percentiles) {
+    long head = blockNumber.get();
+    long newest = newestTag.startsWith("0x") ? Numeric.decodeQuantity(newestTag).longValueExact() : head;
+    int count = (int) Math.max(0, Math.min(blockCount, newest + 1));
+    ObjectNode history = nodes.objectNode();
+    history.put("oldestBlock", Numeric.encodeQuantity(BigInteger.valueOf(newest - count + 1)));
+    ArrayNode baseFees = history.putArray("baseFeePerGas");
+    ArrayNode gasUsedRatio = history.putArray("gasUsedRatio");
+    ArrayNode rewards = history.putArray("reward");
+    for (int i = 0; i < count; i++) {
+      baseFees.add(Numeric.encodeQuantity(baseFee));
+      gasUsedRatio.add(0.5);
+      ArrayNode reward = rewards.addArray();
+      for (int j = 0; j < percentiles; j++) {
+        reward.add(Numeric.encodeQuantity(priorityFee));
+      }
+    }
+    baseFees.add(Numeric.encodeQuantity(baseFee));
+    return history;
+  }
+
+  private ObjectNode header(long number) {
+    ObjectNode header = nodes.objectNode();
+    header.put("number", Numeric.encodeQuantity(BigInteger.valueOf(number)));
+    header.put("hash", blockHash(number));
+    header.put("parentHash", number == 0 ? "0x" + "0".repeat(64) : blockHash(number - 1));
+    header.put("timestamp", Numeric.encodeQuantity(BigInteger.valueOf(number * 12)));
+    header.put("gasLimit", Numeric.encodeQuantity(BigInteger.valueOf(30_000_000)));
+    header.put("gasUsed", "0x0");
+    header.put("baseFeePerGas", Numeric.encodeQuantity(baseFee));
+    header.put("logsBloom", "0x" + "0".repeat(512));
+    return header;
+  }
+
+  private void publishHead(long number) {
+    if (headSubscriptions.isEmpty()) {
+      return;
+    }
+    ObjectNode header = header(number);
+    headSubscriptions.forEach((id, connection) -> {
+      ObjectNode notification = nodes.objectNode();
+      notification.put("jsonrpc", "2.0");
+      notification.put("method", "eth_subscription");
+      ObjectNode params = notification.putObject("params");
+      params.put("subscription", id);
+      params.set("result", header);
+      if (connection.isOpen()) {
+        connection.send(notification.toString());
+      } else {
+        headSubscriptions.remove(id);
+      }
+    });
+  }
+
+  // Derived from the number and how many times that block was replaced by reorg().
+  private String blockHash(long number) {
+    BigInteger seed = BigInteger.valueOf(number).shiftLeft(32).or(BigInteger.valueOf(forks.getOrDefault(number, 0)));
+    return Numeric.toHexString(Hash.sha3(Numeric.toBytesPadded(seed, 32)));
+  }
+
+  private static JsonNode quantity(BigInteger value) {
+    return nodes.textNode(Numeric.encodeQuantity(value));
+  }
+
+  private static String key(String address) {
+    return Numeric.cleanHexPrefix(address).toLowerCase();
+  }
+
+  private static class Transaction {
+
+    private final String hash;
+    private final String from;
+    private final String to;
+    private final BigInteger nonce;
+    private final BigInteger value;
+    private final BigInteger gasPrice;
+
+    Transaction(String hash, String from, String to, BigInteger nonce, BigInteger value, BigInteger gasPrice) {
+      this.hash = hash;
+      this.from = from;
+      this.to = to;
+      this.nonce = nonce;
+      this.value = value;
+      this.gasPrice = gasPrice;
+    }
+
+    ObjectNode toJson(long blockNumber, String blockHash, int index) {
+      ObjectNode json = nodes.objectNode();
+      json.put("hash", hash);
+      json.put("nonce", Numeric.encodeQuantity(nonce));
+      json.put("blockHash", blockHash);
+      json.put("blockNumber", Numeric.encodeQuantity(BigInteger.valueOf(blockNumber)));
+      json.put("transactionIndex", Numeric.encodeQuantity(BigInteger.valueOf(index)));
+      json.put("from", Numeric.prependHexPrefix(from));
+      if (to != null) {
+        json.put("to", Numeric.prependHexPrefix(to));
+      }
+      json.put("value", Numeric.encodeQuantity(value));
+      json.put("gas", Numeric.encodeQuantity(GAS_USED));
+      json.put("gasPrice", Numeric.encodeQuantity(gasPrice));
+      json.put("input", "0x");
+      return json;
+    }
+
+    ObjectNode receipt(long blockNumber, String blockHash, int index) {
+      ObjectNode receipt = nodes.objectNode();
+      receipt.put("transactionHash", hash);
+      receipt.put("transactionIndex", Numeric.encodeQuantity(BigInteger.valueOf(index)));
+      receipt.put("blockHash", blockHash);
+      receipt.put("blockNumber", Numeric.encodeQuantity(BigInteger.valueOf(blockNumber)));
+      receipt.put("from", Numeric.prependHexPrefix(from));
+      if (to != null) {
+        receipt.put("to", Numeric.prependHexPrefix(to));
+      }
+      receipt.put("gasUsed", Numeric.encodeQuantity(GAS_USED));
+      receipt.put("cumulativeGasUsed", Numeric.encodeQuantity(GAS_USED.multiply(BigInteger.valueOf(index + 1))));
+      receipt.put("status", "0x1");
+      receipt.putArray("logs");
+      receipt.put("logsBloom", "0x" + "0".repeat(512));
+      return receipt;
+    }
+  }
+
+  // Answers JSON-RPC over WebSocket like the HTTP endpoint, plus eth_subscribe("newHeads").
+  private class WebSocketEndpoint extends WebSocketServer {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private volatile Exception failure;
+
+    WebSocketEndpoint() {
+      super(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+      setReuseAddr(true);
+    }
+
+    @Override
+    public void onStart() {
+      started.countDown();
+    }
+
+    @Override
+    public void onOpen(WebSocket connection, ClientHandshake handshake) {
+    }
+
+    @Override
+    public void onClose(WebSocket connection, int code, String reason, boolean remote) {
+      headSubscriptions.values().removeIf(subscriber -> subscriber == connection);
+    }
+
+    @Override
+    public void onMessage(WebSocket connection, String message) {
+      JsonNode call;
+      try {
+        call = mapper.readTree(message);
+      } catch (IOException e) {
+        return;
+      }
+      String method = call.path("method").asText();
+      ObjectNode response;
+      if (method.equals("eth_subscribe") || method.equals("eth_unsubscribe")) {
+        requests.incrementAndGet();
+        response = nodes.objectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", call.get("id"));
+        String argument = call.path("params").path(0).asText();
+        if (method.equals("eth_unsubscribe")) {
+          response.put("result", headSubscriptions.remove(argument) != null);
+        } else if (argument.equals("newHeads")) {
+          String id = Numeric.encodeQuantity(BigInteger.valueOf(subscriptionIds.incrementAndGet()));
+          headSubscriptions.put(id, connection);
+          response.put("result", id);
+        } else {
+          error(response, -32601, "Unsupported subscription: " + argument);
+        }
+      } else {
+        response = answer(call);
+      }
+      connection.send(response.toString());
+    }
+
+    @Override
+    public void onError(WebSocket connection, Exception e) {
+      if (connection == null) {
+        failure = e;
+        started.countDown();
+      }
+    }
+  }
+}